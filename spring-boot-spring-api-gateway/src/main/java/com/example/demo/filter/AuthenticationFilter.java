@@ -69,9 +69,9 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
             return true; // Admin can access all paths
         } else if ("USER".equalsIgnoreCase(role)) {
             if (path.startsWith("/api/books")) {
-                return method.equals("GET") && (path.equals("/api/books") || path.matches("/api/books/\\d+") && method.equals("GET")|| path.equals("/api/books/search"));
+                return method.equals("GET") && (path.equals("/api/books") || path.matches("/api/books/\\d+") && method.equals("GET")|| path.equals("/api/books/search") || path.equals("/api/books/search/top") || path.equals("/api/books/search/facets") || path.equals("/api/books/suggest") || path.equals("/api/books/batch") || path.matches("/api/books/\\d+/stock"));
             } else if (path.startsWith("/api/cart")) {
-                return method.equals("GET") && path.matches("/api/cart/\\d+") || method.equals("POST") && path.equals("/api/cart") || method.equals("DELETE") && path.matches("/api/cart/clear/\\d+");
+                return method.equals("GET") && path.matches("/api/cart/\\d+(/summary)?") || method.equals("POST") && (path.equals("/api/cart") || path.equals("/api/cart/batch")) || method.equals("DELETE") && path.matches("/api/cart/clear/\\d+");
             } else if (path.startsWith("/api/orders")) {
                 return method.equals("POST") && (path.equals("/api/orders/checkout") || path.matches("/api/orders/pay/\\d+")) || method.equals("GET") && (path.matches("/api/orders/\\d+") || path.matches("/api/orders/user/\\d+"));
             }
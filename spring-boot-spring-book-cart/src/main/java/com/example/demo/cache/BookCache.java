@@ -0,0 +1,131 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.metrics.MetricsSource;
+
+/**
+ * Read-through cache of the book details the cart shows, so cart views do not
+ * call the Book Management service for books they already resolved. Entries
+ * expire after {@code book.cache.ttl-seconds} and are evicted earlier when the
+ * book change stream reports a change. The cache stores its own copy of each
+ * book and hands out a fresh copy on every hit.
+ */
+@Component
+public class BookCache implements MetricsSource {
+
+	private final LruCache<Long, BookDTO> cache;
+
+	public BookCache(@Value("${book.cache.max-size:10000}") int maxSize,
+			@Value("${book.cache.ttl-seconds:300}") long ttlSeconds) {
+		this.cache = new LruCache<>(maxSize, ttlSeconds);
+	}
+
+	/**
+	 * Returns the details of a book, loading them on a miss.
+	 *
+	 * @param bookId the ID of the book
+	 * @param loader loads the book on a miss
+	 * @return a copy of the book details
+	 */
+	public BookDTO getOrLoad(Long bookId, Function<Long, BookDTO> loader) {
+		return copyOf(cache.getOrLoad(bookId, id -> copyOf(loader.apply(id))));
+	}
+
+	/**
+	 * Returns the details of several books, loading all misses with one call
+	 * to the loader. A loaded book is not cached if it was invalidated while the
+	 * loader ran.
+	 *
+	 * @param bookIds the IDs of the books
+	 * @param loader  loads the missing books keyed by ID
+	 * @return copies of the book details keyed by book ID
+	 */
+	public Map<Long, BookDTO> getOrLoadAll(Collection<Long> bookIds,
+			Function<Collection<Long>, Map<Long, BookDTO>> loader) {
+		Map<Long, BookDTO> books = new HashMap<>();
+		Map<Long, Long> stamps = new LinkedHashMap<>();
+		for (Long bookId : bookIds) {
+			BookDTO book = cache.get(bookId);
+			if (book != null) {
+				books.put(bookId, copyOf(book));
+			} else {
+				stamps.put(bookId, cache.invalidationStamp(bookId));
+			}
+		}
+		if (!stamps.isEmpty()) {
+			loader.apply(stamps.keySet()).forEach((bookId, book) -> {
+				Long stamp = stamps.get(bookId);
+				if (stamp != null) {
+					cache.putIfUnchanged(bookId, copyOf(book), stamp);
+				}
+				books.put(bookId, copyOf(book));
+			});
+		}
+		return books;
+	}
+
+	/**
+	 * Returns the details of the books that are cached, without loading the
+	 * others.
+	 *
+	 * @param bookIds the IDs of the books
+	 * @return copies of the cached book details keyed by book ID
+	 */
+	public Map<Long, BookDTO> getAllPresent(Collection<Long> bookIds) {
+		Map<Long, BookDTO> books = new HashMap<>();
+		for (Long bookId : bookIds) {
+			BookDTO book = cache.get(bookId);
+			if (book != null) {
+				books.put(bookId, copyOf(book));
+			}
+		}
+		return books;
+	}
+
+	/**
+	 * Evicts a book so the next read goes to the Book Management service.
+	 *
+	 * @param bookId the ID of the book
+	 */
+	public void invalidate(Long bookId) {
+		cache.invalidate(bookId);
+	}
+
+	/**
+	 * Evicts every book.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "bookCache";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		return cache.stats();
+	}
+
+	private static BookDTO copyOf(BookDTO book) {
+		if (book == null) {
+			return null;
+		}
+		BookDTO copy = new BookDTO();
+		copy.setId(book.getId());
+		copy.setTitle(book.getTitle());
+		copy.setAuthor(book.getAuthor());
+		copy.setPrice(book.getPrice());
+		return copy;
+	}
+}
@@ -0,0 +1,161 @@
+package com.example.demo.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.CartSummaryDTO;
+import com.example.demo.entity.CartItem;
+import com.example.demo.metrics.MetricsSource;
+
+/**
+ * Per-user totals of the cart, so the cart badge never loads book details.
+ * The aggregate of a cart holds the quantity and stored price of each book,
+ * loaded once from the cart store and then kept current by the cart service:
+ * adds and removals are applied as quantity changes, which give the same
+ * result in any order, and clearing a cart resets it. Changes the service
+ * cannot express that way, such as batches, evict the aggregate instead.
+ * <p>
+ * A change to a cart that is not cached stops loads of that cart in progress
+ * from being cached; loads of other carts are not affected. A change that lands between the store write of a concurrent
+ * change and its aggregate update can still be missed or counted twice, so
+ * entries also expire after {@code cart.summary.ttl-seconds}, which bounds
+ * how long such a summary and the changes of other instances go unseen.
+ */
+@Component
+public class CartSummaryCache implements MetricsSource {
+
+	private final LruCache<Long, Aggregate> cache;
+
+	public CartSummaryCache(@Value("${cart.summary.max-size:10000}") int maxSize,
+			@Value("${cart.summary.ttl-seconds:60}") long ttlSeconds) {
+		this.cache = new LruCache<>(maxSize, ttlSeconds);
+	}
+
+	/**
+	 * Returns the totals of a user's cart, loading its items on a miss.
+	 *
+	 * @param userId the ID of the user
+	 * @param loader loads the cart items on a miss, without book details
+	 * @return the item count, number of distinct books and total amount
+	 */
+	public CartSummaryDTO getOrLoad(Long userId, Function<Long, List<CartItem>> loader) {
+		return cache.getOrLoad(userId, id -> Aggregate.of(loader.apply(id))).toDTO(userId);
+	}
+
+	/**
+	 * Records that a quantity of a book was added to a user's cart.
+	 *
+	 * @param userId   the ID of the user
+	 * @param bookId   the ID of the book
+	 * @param quantity the quantity added
+	 * @param price    the price now stored for the book
+	 */
+	public void added(Long userId, Long bookId, int quantity, double price) {
+		Aggregate aggregate = cache.getIfPresent(userId);
+		if (aggregate == null) {
+			cache.invalidate(userId);
+			return;
+		}
+		aggregate.add(bookId, quantity, price);
+	}
+
+	/**
+	 * Records that an item was removed from a cart.
+	 *
+	 * @param cartItem the removed item
+	 */
+	public void removed(CartItem cartItem) {
+		Aggregate aggregate = cache.getIfPresent(cartItem.getUserId());
+		if (aggregate == null) {
+			cache.invalidate(cartItem.getUserId());
+			return;
+		}
+		aggregate.add(cartItem.getBookId(), -cartItem.getQuantity(), cartItem.getPrice());
+	}
+
+	/**
+	 * Records that a user's cart was cleared.
+	 *
+	 * @param userId the ID of the user
+	 */
+	public void cleared(Long userId) {
+		cache.invalidate(userId);
+		cache.put(userId, new Aggregate());
+	}
+
+	/**
+	 * Evicts a user's totals so the next read loads them again.
+	 *
+	 * @param userId the ID of the user
+	 */
+	public void invalidate(Long userId) {
+		cache.invalidate(userId);
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "cartSummary";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		return cache.stats();
+	}
+
+	/**
+	 * The quantity and stored price of each book in one cart, guarded by its
+	 * own lock.
+	 */
+	private static final class Aggregate {
+
+		private final Map<Long, Line> lines = new HashMap<>();
+
+		static Aggregate of(List<CartItem> cartItems) {
+			Aggregate aggregate = new Aggregate();
+			cartItems.forEach(cartItem -> aggregate.add(cartItem.getBookId(), cartItem.getQuantity(),
+					cartItem.getPrice()));
+			return aggregate;
+		}
+
+		/**
+		 * Changes the quantity of a book; a removal keeps the stored price. A
+		 * book whose quantity drops to zero leaves the cart.
+		 */
+		synchronized void add(Long bookId, int quantity, double price) {
+			Line line = lines.computeIfAbsent(bookId, id -> new Line());
+			line.quantity += quantity;
+			if (quantity > 0) {
+				line.price = price;
+			}
+			if (line.quantity == 0) {
+				lines.remove(bookId);
+			}
+		}
+
+		synchronized CartSummaryDTO toDTO(Long userId) {
+			int itemCount = 0;
+			int distinctTitles = 0;
+			double totalAmount = 0;
+			for (Line line : lines.values()) {
+				// A removal applied before its add leaves a negative line until the add arrives
+				if (line.quantity > 0) {
+					itemCount += line.quantity;
+					distinctTitles++;
+					totalAmount += line.quantity * line.price;
+				}
+			}
+			return new CartSummaryDTO(userId, itemCount, distinctTitles, totalAmount);
+		}
+	}
+
+	private static final class Line {
+
+		private int quantity;
+		private double price;
+	}
+}
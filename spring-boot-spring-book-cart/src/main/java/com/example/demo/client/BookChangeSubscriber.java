@@ -0,0 +1,186 @@
+package com.example.demo.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.cache.BookCache;
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.metrics.MetricsSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Listens to the book change stream of the Book Management service and evicts
+ * changed books from the {@link BookCache}, so price and title changes reach
+ * carts well before the cache entries expire.
+ * <p>
+ * The stream is read on one background thread and reconnected after
+ * {@code book.changes.retry-ms} when it drops, resuming after the last event
+ * handled. A stream opened without a position cannot replay what was missed,
+ * so the whole cache is dropped then. While disconnected, cached books can be
+ * stale for at most the cache's time to live. The connection uses its own
+ * read timeout, a few times the server's heartbeat interval, so a silently
+ * dead connection is noticed.
+ */
+@Component
+public class BookChangeSubscriber implements MetricsSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookChangeSubscriber.class);
+
+	private static final String BOOK_CHANGES_URL = "http://localhost:8085/api/books/changes";
+
+	private final BookCache bookCache;
+	private final ObjectMapper objectMapper;
+	private final RestTemplate restTemplate;
+	private final boolean enabled;
+	private final long retryMillis;
+	private final LongAdder eventCount = new LongAdder();
+	private final LongAdder resetCount = new LongAdder();
+	private final LongAdder connectCount = new LongAdder();
+	private volatile Long lastOffset;
+	private volatile boolean connected;
+	private volatile boolean running;
+	private Thread thread;
+
+	public BookChangeSubscriber(BookCache bookCache, ObjectMapper objectMapper,
+			@Value("${book.changes.enabled:true}") boolean enabled,
+			@Value("${book.changes.retry-ms:5000}") long retryMillis,
+			@Value("${book.changes.read-timeout-ms:60000}") int readTimeoutMillis) {
+		this.bookCache = bookCache;
+		this.objectMapper = objectMapper;
+		this.enabled = enabled;
+		this.retryMillis = retryMillis;
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(2000);
+		requestFactory.setReadTimeout(readTimeoutMillis);
+		this.restTemplate = new RestTemplate(requestFactory);
+	}
+
+	/**
+	 * Starts listening once the application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (!enabled || running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "book-changes");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Handles one event of the change stream.
+	 *
+	 * @param event the change event
+	 */
+	public void handle(BookChangeEventDTO event) {
+		if (event.getType() == BookChangeEventDTO.Type.RESET || event.getBookId() == null) {
+			bookCache.invalidateAll();
+			resetCount.increment();
+		} else {
+			bookCache.invalidate(event.getBookId());
+		}
+		lastOffset = event.getOffset();
+		eventCount.increment();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "bookChanges";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("connected", connected);
+		metrics.put("connects", connectCount.sum());
+		metrics.put("events", eventCount.sum());
+		metrics.put("resets", resetCount.sum());
+		metrics.put("lastOffset", lastOffset);
+		return metrics;
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				restTemplate.execute(BOOK_CHANGES_URL, HttpMethod.GET, request -> {
+					request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+					request.getHeaders().set("X-Internal-Request", "true"); // Custom header to indicate internal request
+					Long offset = lastOffset;
+					if (offset != null) {
+						request.getHeaders().set("Last-Event-ID", String.valueOf(offset));
+					}
+				}, this::consume);
+			} catch (RestClientException ex) {
+				logger.warn("Book change stream interrupted: {}", ex.getMessage());
+			} finally {
+				connected = false;
+			}
+			try {
+				Thread.sleep(retryMillis);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads Server-Sent Events until the stream ends. Only the {@code data}
+	 * field is used, since every event carries its offset in its payload.
+	 */
+	private Void consume(ClientHttpResponse response) throws IOException {
+		connected = true;
+		connectCount.increment();
+		if (lastOffset == null) {
+			bookCache.invalidateAll();
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+		StringBuilder data = new StringBuilder();
+		String line;
+		while (running && (line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				if (data.length() > 0) {
+					handle(objectMapper.readValue(data.toString(), BookChangeEventDTO.class));
+					data.setLength(0);
+				}
+			} else if (line.startsWith("data:")) {
+				if (data.length() > 0) {
+					data.append('\n');
+				}
+				data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+			}
+		}
+		return null;
+	}
+}
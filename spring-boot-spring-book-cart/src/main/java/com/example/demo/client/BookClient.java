@@ -0,0 +1,271 @@
+package com.example.demo.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.exception.BookLookupException;
+import com.example.demo.exception.BookServiceUnavailableException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.metrics.MetricsSource;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Client for the Book Management microservice. Resolves book details for one
+ * or many book IDs. Many IDs are resolved through the batch endpoint, in chunks
+ * fetched concurrently on a bounded pool. Every call waits at most
+ * {@code book.client.timeout-ms} for the response, enforced by the HTTP client
+ * so the call is aborted rather than abandoned; a chunk also has a deadline of
+ * twice that, covering the connect and pool waits in front of the response.
+ * <p>
+ * Every lookup first passes a {@link Bulkhead}, which caps the request threads
+ * waiting on the service, and then a {@link CircuitBreaker}, which stops
+ * calling the service while most recent lookups failed and lets a few trial
+ * lookups through once it has had time to recover. Rejected lookups fail at
+ * once with a {@link BookServiceUnavailableException}. A book that does not
+ * exist counts as a successful lookup.
+ */
+@Component
+public class BookClient implements MetricsSource {
+
+	private static final String BOOK_SERVICE_URL = "http://localhost:8085/api/books/";
+
+	private static final ParameterizedTypeReference<Map<Long, BookDTO>> BOOK_MAP_TYPE = new ParameterizedTypeReference<>() {
+	};
+
+	private final RestTemplate restTemplate;
+	private final CircuitBreaker circuitBreaker;
+	private final Bulkhead bulkhead;
+	private final ExecutorService executor;
+	private final long timeoutMillis;
+	private final int batchSize;
+
+	public BookClient(@Qualifier("bookRestTemplate") RestTemplate restTemplate, CircuitBreaker circuitBreaker,
+			Bulkhead bulkhead, @Value("${book.client.max-concurrency:8}") int maxConcurrency,
+			@Value("${book.client.timeout-ms:2000}") long timeoutMillis,
+			@Value("${book.client.batch-size:100}") int batchSize) {
+		this.restTemplate = restTemplate;
+		this.circuitBreaker = circuitBreaker;
+		this.bulkhead = bulkhead;
+		this.executor = Executors.newFixedThreadPool(maxConcurrency, new LookupThreadFactory());
+		this.timeoutMillis = timeoutMillis;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Fetches the details of a single book.
+	 *
+	 * @param bookId the ID of the book
+	 * @return the book details
+	 * @throws ResourceNotFoundException if the book does not exist
+	 * @throws BookLookupException       if the lookup failed or was rejected
+	 */
+	public BookDTO fetchBook(Long bookId) {
+		BookDTO book = guarded(Set.of(bookId), () -> {
+			try {
+				return exchange(bookId);
+			} catch (RestClientException ex) {
+				throw new BookLookupException(Set.of(bookId), ex);
+			}
+		});
+		if (book == null) {
+			throw new ResourceNotFoundException("Book not found for ID: " + bookId);
+		}
+		return book;
+	}
+
+	/**
+	 * Fetches the details of several books. Duplicate IDs are requested once and
+	 * the distinct IDs are split into chunks of at most
+	 * {@code book.client.batch-size}, each resolved by one call to the batch
+	 * endpoint. Chunks are fetched concurrently and every chunk is allowed to
+	 * finish before any error is reported, so the caller gets the complete set of
+	 * missing or failed IDs rather than the first one hit.
+	 *
+	 * @param bookIds the IDs of the books
+	 * @return the book details keyed by book ID
+	 * @throws ResourceNotFoundException if any of the books does not exist and
+	 *                                   every lookup succeeded
+	 * @throws BookLookupException       if any of the lookups failed, timed out
+	 *                                   or was rejected
+	 */
+	public Map<Long, BookDTO> fetchBooks(Collection<Long> bookIds) {
+		Set<Long> distinctIds = new LinkedHashSet<>(bookIds);
+		return guarded(distinctIds, () -> fetchDistinctBooks(new ArrayList<>(distinctIds)));
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "bookClient";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("circuitBreaker", circuitBreaker.stats());
+		metrics.put("bulkhead", bulkhead.stats());
+		return metrics;
+	}
+
+	/**
+	 * Runs a lookup through the bulkhead and the circuit breaker, reporting its
+	 * outcome to the breaker. The bulkhead is entered first so a rejected call
+	 * never takes one of the breaker's trial calls.
+	 */
+	private <T> T guarded(Set<Long> bookIds, Supplier<T> lookup) {
+		if (!bulkhead.tryEnter()) {
+			throw new BookServiceUnavailableException(bookIds, "too many concurrent lookups");
+		}
+		try {
+			CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+			if (permit == null) {
+				throw new BookServiceUnavailableException(bookIds, "circuit breaker open");
+			}
+			try {
+				T result = lookup.get();
+				permit.onSuccess();
+				return result;
+			} catch (ResourceNotFoundException ex) {
+				permit.onSuccess();
+				throw ex;
+			} catch (RuntimeException ex) {
+				permit.onFailure();
+				throw ex;
+			}
+		} finally {
+			bulkhead.exit();
+		}
+	}
+
+	private Map<Long, BookDTO> fetchDistinctBooks(List<Long> distinctIds) {
+		Map<List<Long>, CompletableFuture<Map<Long, BookDTO>>> lookups = new LinkedHashMap<>();
+		for (int from = 0; from < distinctIds.size(); from += batchSize) {
+			List<Long> chunk = distinctIds.subList(from, Math.min(from + batchSize, distinctIds.size()));
+			lookups.put(chunk, CompletableFuture.supplyAsync(() -> exchangeBatch(chunk), executor)
+					.orTimeout(2 * timeoutMillis, TimeUnit.MILLISECONDS));
+		}
+		CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0]))
+				.exceptionally(ex -> null)
+				.join();
+
+		Map<Long, BookDTO> books = new HashMap<>();
+		Set<Long> missingIds = new TreeSet<>();
+		Set<Long> failedIds = new TreeSet<>();
+		List<Throwable> failures = new ArrayList<>();
+		lookups.forEach((chunk, lookup) -> {
+			try {
+				Map<Long, BookDTO> found = lookup.join();
+				for (Long bookId : chunk) {
+					BookDTO book = found.get(bookId);
+					if (book != null) {
+						books.put(bookId, book);
+					} else {
+						missingIds.add(bookId);
+					}
+				}
+			} catch (CompletionException ex) {
+				failedIds.addAll(chunk);
+				failures.add(ex.getCause());
+			}
+		});
+
+		// A failed chunk wins over missing books, so a partial outage is never
+		// reported, and counted by the breaker, as a clean not-found
+		if (!failedIds.isEmpty()) {
+			throw new BookLookupException(failedIds, failures.get(0));
+		}
+		if (!missingIds.isEmpty()) {
+			throw new ResourceNotFoundException("Book not found for ID: " + joinIds(missingIds));
+		}
+		return books;
+	}
+
+	/**
+	 * Performs the HTTP lookup of a single book.
+	 *
+	 * @param bookId the ID of the book
+	 * @return the book details, or null if the book does not exist
+	 */
+	private BookDTO exchange(Long bookId) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Internal-Request", "true"); // Custom header to indicate internal request
+		HttpEntity<String> entity = new HttpEntity<>(headers);
+		try {
+			ResponseEntity<BookDTO> response = restTemplate.exchange(BOOK_SERVICE_URL + bookId, HttpMethod.GET, entity,
+					BookDTO.class);
+			return response == null ? null : response.getBody();
+		} catch (HttpClientErrorException.NotFound ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Performs the HTTP lookup of a chunk of books through the batch endpoint.
+	 *
+	 * @param bookIds the IDs of the books
+	 * @return the books found keyed by ID; never null
+	 */
+	private Map<Long, BookDTO> exchangeBatch(List<Long> bookIds) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Internal-Request", "true"); // Custom header to indicate internal request
+		HttpEntity<String> entity = new HttpEntity<>(headers);
+		String ids = bookIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+		ResponseEntity<Map<Long, BookDTO>> response = restTemplate.exchange(BOOK_SERVICE_URL + "batch?ids=" + ids,
+				HttpMethod.GET, entity, BOOK_MAP_TYPE);
+		Map<Long, BookDTO> books = response == null ? null : response.getBody();
+		return books == null ? Map.of() : books;
+	}
+
+	private static String joinIds(Set<Long> ids) {
+		return ids.size() == 1 ? String.valueOf(ids.iterator().next()) : ids.toString();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Creates named daemon threads for the lookup pool.
+	 */
+	private static class LookupThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "book-lookup-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
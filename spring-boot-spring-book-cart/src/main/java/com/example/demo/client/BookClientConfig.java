@@ -0,0 +1,48 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Circuit breaker and bulkhead guarding the {@link BookClient}, so a slow or
+ * failing Book Management service costs cart requests a quick rejection
+ * instead of a blocked request thread. Book lookups also get their own
+ * {@link RestTemplate} on the shared connection pool, whose response timeout
+ * is {@code book.client.timeout-ms}, so a lookup that times out really stops
+ * waiting on the socket.
+ */
+@Configuration
+public class BookClientConfig {
+
+	@Bean
+	public RestTemplate bookRestTemplate(CloseableHttpClient httpClient, HttpClientMetrics httpClientMetrics,
+			@Value("${book.client.timeout-ms:2000}") long timeoutMillis) {
+		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(Duration.ofMillis(timeoutMillis));
+		RestTemplate restTemplate = new RestTemplate(requestFactory);
+		restTemplate.getInterceptors().add(httpClientMetrics);
+		return restTemplate;
+	}
+
+	@Bean
+	public CircuitBreaker bookCircuitBreaker(
+			@Value("${book.client.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+			@Value("${book.client.breaker.window-size:20}") int windowSize,
+			@Value("${book.client.breaker.minimum-calls:10}") int minimumCalls,
+			@Value("${book.client.breaker.open-ms:10000}") long openMillis,
+			@Value("${book.client.breaker.half-open-calls:3}") int halfOpenCalls) {
+		return new CircuitBreaker(failureRateThreshold, windowSize, minimumCalls, openMillis, halfOpenCalls);
+	}
+
+	@Bean
+	public Bulkhead bookBulkhead(@Value("${book.client.bulkhead.max-concurrent-calls:16}") int maxConcurrentCalls,
+			@Value("${book.client.bulkhead.max-wait-ms:50}") long maxWaitMillis) {
+		return new Bulkhead(maxConcurrentCalls, maxWaitMillis);
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.demo.client;
+
+import java.util.BitSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Local copy of the set of existing book IDs, refreshed periodically from the
+ * Book Management service, so requests for books that do not exist are
+ * rejected without a remote lookup.
+ * <p>
+ * Book IDs are auto-increment, so an ID below the highest ID seen that is
+ * absent from the set cannot exist later, except for an insert that had taken
+ * its ID but not committed when the set was read. The set is therefore only
+ * trusted below the highest ID of the refresh before it, by which time such
+ * inserts have committed. Higher IDs may belong to books created since and are
+ * always looked up remotely, as are all IDs until two refreshes succeeded.
+ * Books deleted since the refresh still pass the filter and are rejected by
+ * the lookup.
+ */
+@Component
+public class BookIdFilter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookIdFilter.class);
+
+	private static final String BOOK_IDS_URL = "http://localhost:8085/api/books/ids";
+
+	private final RestTemplate restTemplate;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The downloaded ID set and the length up to which it is trusted.
+	 */
+	private record Snapshot(BitSet ids, int settledLength) {
+	}
+
+	public BookIdFilter(RestTemplate restTemplate) {
+		this.restTemplate = restTemplate;
+	}
+
+	/**
+	 * Tells whether a book may exist.
+	 *
+	 * @param bookId the ID of the book
+	 * @return false only if the book certainly does not exist
+	 */
+	public boolean mightExist(Long bookId) {
+		if (bookId == null || bookId <= 0) {
+			return false;
+		}
+		Snapshot current = snapshot;
+		return current == null || bookId >= current.settledLength() || current.ids().get(bookId.intValue());
+	}
+
+	/**
+	 * Downloads the current set of book IDs. On failure the previous set is kept.
+	 */
+	@Scheduled(fixedDelayString = "${book.id-filter.refresh-ms:60000}")
+	public void refresh() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Internal-Request", "true"); // Custom header to indicate internal request
+		try {
+			ResponseEntity<byte[]> response = restTemplate.exchange(BOOK_IDS_URL, HttpMethod.GET,
+					new HttpEntity<>(headers), byte[].class);
+			byte[] body = response == null ? null : response.getBody();
+			if (body != null) {
+				BitSet refreshed = BitSet.valueOf(body);
+				Snapshot previous = snapshot;
+				snapshot = new Snapshot(refreshed, previous == null ? 0 : previous.ids().length());
+				logger.debug("Book ID filter refreshed with {} IDs", refreshed.cardinality());
+			}
+		} catch (RestClientException ex) {
+			logger.warn("Could not refresh the book ID filter: {}", ex.getMessage());
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.demo.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent calls to another service, so a slow service
+ * ties up at most that many request threads. A call that finds every slot
+ * taken waits up to {@code maxWaitMillis} and is then rejected.
+ */
+public class Bulkhead {
+
+	private final int maxConcurrentCalls;
+	private final long maxWaitMillis;
+	private final Semaphore permits;
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/**
+	 * Creates a bulkhead.
+	 *
+	 * @param maxConcurrentCalls the number of calls allowed at once
+	 * @param maxWaitMillis      how long a call waits for a free slot
+	 */
+	public Bulkhead(int maxConcurrentCalls, long maxWaitMillis) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.maxWaitMillis = maxWaitMillis;
+		this.permits = new Semaphore(maxConcurrentCalls, true);
+	}
+
+	/**
+	 * Takes a slot for a call, waiting a short while if none is free. Every
+	 * successful call must be paired with {@link #exit()}.
+	 *
+	 * @return true if the call may be made, false if it is rejected
+	 */
+	public boolean tryEnter() {
+		try {
+			if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		rejectedCount.increment();
+		return false;
+	}
+
+	/**
+	 * Frees the slot of a finished call.
+	 */
+	public void exit() {
+		permits.release();
+	}
+
+	/**
+	 * Returns the number of calls in progress and of rejected calls.
+	 *
+	 * @return the bulkhead statistics
+	 */
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("maxConcurrentCalls", maxConcurrentCalls);
+		stats.put("activeCalls", maxConcurrentCalls - permits.availablePermits());
+		stats.put("rejected", rejectedCount.sum());
+		return stats;
+	}
+}
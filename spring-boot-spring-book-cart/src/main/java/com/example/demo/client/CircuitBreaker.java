@@ -0,0 +1,205 @@
+package com.example.demo.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for calls to another service. While closed, the outcomes of
+ * the last {@code windowSize} calls are kept; once at least
+ * {@code minimumCalls} were made and the share of failures reaches
+ * {@code failureRateThreshold} percent, the breaker opens and rejects every
+ * call for {@code openMillis}. After that it is half-open: up to
+ * {@code halfOpenCalls} trial calls go through, and the breaker closes again
+ * once they all succeed or opens again on the first failure.
+ * <p>
+ * Callers ask {@link #tryAcquire()} for a {@link Permit} before a call and
+ * report its outcome through the permit. Every change of state starts a new
+ * generation, and a permit only counts in the generation it was handed out
+ * in: a call admitted while closed that ends after the breaker opened cannot
+ * close or reopen it, and only the trial calls decide a half-open breaker.
+ */
+public class CircuitBreaker {
+
+	/**
+	 * The states of the breaker.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureRateThreshold;
+	private final int minimumCalls;
+	private final long openNanos;
+	private final int halfOpenCalls;
+	private final boolean[] outcomes;
+	private State state = State.CLOSED;
+	private long generation;
+	private int recorded;
+	private int next;
+	private int failures;
+	private long openedAt;
+	private int trialsStarted;
+	private int trialsSucceeded;
+	private long openedCount;
+	private long rejectedCount;
+
+	/**
+	 * Creates a closed breaker.
+	 *
+	 * @param failureRateThreshold the percentage of failed calls that opens it
+	 * @param windowSize           the number of recent calls whose outcome is
+	 *                             kept
+	 * @param minimumCalls         the number of calls needed before it can open
+	 * @param openMillis           how long it stays open before trial calls
+	 * @param halfOpenCalls        the number of trial calls while half-open
+	 */
+	public CircuitBreaker(int failureRateThreshold, int windowSize, int minimumCalls, long openMillis,
+			int halfOpenCalls) {
+		this.failureRateThreshold = failureRateThreshold;
+		this.outcomes = new boolean[Math.max(1, windowSize)];
+		this.minimumCalls = Math.max(1, Math.min(minimumCalls, outcomes.length));
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+		this.halfOpenCalls = Math.max(1, halfOpenCalls);
+	}
+
+	/**
+	 * Asks to make a call. An open breaker whose time is up turns half-open and
+	 * hands out its trial calls.
+	 *
+	 * @return the permit to report the call's outcome with, or null if the call
+	 *         is rejected
+	 */
+	public synchronized Permit tryAcquire() {
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openNanos) {
+				rejectedCount++;
+				return null;
+			}
+			state = State.HALF_OPEN;
+			generation++;
+			trialsStarted = 0;
+			trialsSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (trialsStarted >= halfOpenCalls) {
+				rejectedCount++;
+				return null;
+			}
+			trialsStarted++;
+		}
+		return new Permit(generation);
+	}
+
+	/**
+	 * Returns the current state. An open breaker whose time is up reports
+	 * itself open until the next call turns it half-open.
+	 *
+	 * @return the state
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the state, the failure rate of the current window and how often
+	 * the breaker opened and rejected calls.
+	 *
+	 * @return the breaker statistics
+	 */
+	public synchronized Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("state", state.name());
+		stats.put("failureRate", recorded == 0 ? 0.0 : (double) failures / recorded);
+		stats.put("windowCalls", recorded);
+		stats.put("opened", openedCount);
+		stats.put("rejected", rejectedCount);
+		return stats;
+	}
+
+	private synchronized void onSuccess(long permitGeneration) {
+		if (permitGeneration != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			if (++trialsSucceeded >= halfOpenCalls) {
+				close();
+			}
+		} else if (state == State.CLOSED) {
+			record(false);
+		}
+	}
+
+	private synchronized void onFailure(long permitGeneration) {
+		if (permitGeneration != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			open();
+		} else if (state == State.CLOSED) {
+			record(true);
+		}
+	}
+
+	private void record(boolean failed) {
+		if (recorded == outcomes.length) {
+			if (outcomes[next]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		outcomes[next] = failed;
+		if (failed) {
+			failures++;
+		}
+		next = (next + 1) % outcomes.length;
+		// A success can complete the minimum number of calls, so both outcomes check the rate
+		if (failures > 0 && recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+			open();
+		}
+	}
+
+	private void open() {
+		state = State.OPEN;
+		generation++;
+		openedAt = System.nanoTime();
+		openedCount++;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		generation++;
+		recorded = 0;
+		next = 0;
+		failures = 0;
+	}
+
+	/**
+	 * Leave to make one call, handed out by {@link CircuitBreaker#tryAcquire()}.
+	 * Its outcome counts only while the breaker is still in the generation the
+	 * permit was handed out in.
+	 */
+	public final class Permit {
+
+		private final long generation;
+
+		private Permit(long generation) {
+			this.generation = generation;
+		}
+
+		/**
+		 * Reports that the call succeeded.
+		 */
+		public void onSuccess() {
+			CircuitBreaker.this.onSuccess(generation);
+		}
+
+		/**
+		 * Reports that the call failed or timed out.
+		 */
+		public void onFailure() {
+			CircuitBreaker.this.onFailure(generation);
+		}
+	}
+}
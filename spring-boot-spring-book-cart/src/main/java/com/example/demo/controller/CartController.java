@@ -15,6 +15,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.dto.CartBatchRequestDTO;
+import com.example.demo.dto.CartOperationDTO;
+import com.example.demo.dto.CartSummaryDTO;
 import com.example.demo.entity.CartItem;
 import com.example.demo.service.CartService;
 
@@ -26,6 +29,8 @@ import com.example.demo.service.CartService;
 @RequestMapping("/api/cart")
 public class CartController {
 
+	private static final int MAX_BATCH_OPERATIONS = 500;
+
 	private final CartService cartService;
 
 	@Autowired
@@ -53,6 +58,18 @@ public class CartController {
 	    }
 	}
 
+	/**
+	 * GET /api/cart/{userId}/summary : Get the item count, number of distinct
+	 * books and total amount of a user's cart, without loading book details.
+	 * 
+	 * @param userId the id of the user
+	 * @return the cart totals, all zero for an empty cart
+	 */
+	@GetMapping("/{userId}/summary")
+	public CartSummaryDTO getCartSummary(@PathVariable Long userId) {
+		return cartService.getCartSummary(userId);
+	}
+
 	/**
 	 * POST /api/cart : Add a new item to the cart.
 	 * 
@@ -64,6 +81,26 @@ public class CartController {
 		return cartService.addCartItem(cartItem);
 	}
 
+	/**
+	 * POST /api/cart/batch : Apply a batch of add, update and remove operations
+	 * to a user's cart, in order and all or nothing.
+	 * 
+	 * @param request the user and the operations
+	 * @return the cart items after the batch, 400 (Bad Request) if an operation
+	 *         is invalid, or 404 (Not Found) if an updated item or added book
+	 *         does not exist
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<Object> applyBatch(@RequestBody CartBatchRequestDTO request) {
+	    String error = validate(request);
+	    if (error != null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", error);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    return ResponseEntity.ok(cartService.applyBatch(request.getUserId(), request.getOperations()));
+	}
+
 	/**
 	 * DELETE /api/cart/{id} : Remove an item from the cart.
 	 * 
@@ -84,4 +121,36 @@ public class CartController {
 	public void clearCart(@PathVariable Long userId) {
 		cartService.clearCart(userId);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Checks a batch request.
+	 * 
+	 * @param request the batch request
+	 * @return the error message, or null if the request is valid
+	 */
+	private static String validate(CartBatchRequestDTO request) {
+	    if (request.getUserId() == null) {
+	        return "User ID cannot be null";
+	    }
+	    if (request.getOperations() == null || request.getOperations().isEmpty()) {
+	        return "At least one operation is required";
+	    }
+	    if (request.getOperations().size() > MAX_BATCH_OPERATIONS) {
+	        return "At most " + MAX_BATCH_OPERATIONS + " operations can be applied at once";
+	    }
+	    for (CartOperationDTO operation : request.getOperations()) {
+	        if (operation.getType() == null) {
+	            return "Every operation needs a type of ADD, UPDATE or REMOVE";
+	        }
+	        boolean needsBook = operation.getType() == CartOperationDTO.Type.ADD;
+	        boolean needsQuantity = operation.getType() != CartOperationDTO.Type.REMOVE;
+	        if (needsBook ? operation.getBookId() == null : operation.getItemId() == null) {
+	            return operation.getType() + " needs " + (needsBook ? "a book ID" : "an item ID");
+	        }
+	        if (needsQuantity && (operation.getQuantity() == null || operation.getQuantity() < 1)) {
+	            return "Quantity must be at least 1";
+	        }
+	    }
+	    return null;
+	}
+}
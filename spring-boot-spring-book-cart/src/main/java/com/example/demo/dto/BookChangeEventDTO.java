@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object for one entry of the book change stream published by
+ * the Book Management microservice. Only the fields the cart uses are mapped.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookChangeEventDTO {
+
+	/**
+	 * The kinds of change.
+	 */
+	public enum Type {
+		/**
+		 * A book was created or updated.
+		 */
+		SAVED,
+		/**
+		 * A book was deleted.
+		 */
+		DELETED,
+		/**
+		 * Books changed in a way not described event by event; everything cached
+		 * should be dropped.
+		 */
+		RESET
+	}
+
+	private long offset;
+	private Type type;
+	private Long bookId;
+	private String title;
+	private String author;
+	private Double price;
+}
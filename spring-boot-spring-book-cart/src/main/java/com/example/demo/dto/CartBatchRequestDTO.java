@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for a batch of cart operations of one user, applied in
+ * order and all or nothing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequestDTO {
+
+	private Long userId;
+
+	private List<CartOperationDTO> operations;
+}
@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one operation of a cart batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationDTO {
+
+	/**
+	 * The kinds of operation.
+	 */
+	public enum Type {
+		/**
+		 * Adds a book to the cart; needs the book ID and quantity.
+		 */
+		ADD,
+		/**
+		 * Changes the quantity of a cart item; needs the item ID and quantity.
+		 */
+		UPDATE,
+		/**
+		 * Removes a cart item; needs the item ID. Unknown items are ignored.
+		 */
+		REMOVE
+	}
+
+	private Type type;
+
+	private Long itemId;
+
+	private Long bookId;
+
+	private Integer quantity;
+}
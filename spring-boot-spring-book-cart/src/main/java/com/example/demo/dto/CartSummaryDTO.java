@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the totals of a user's cart, as shown by the cart
+ * badge. The amount uses the prices stored on the cart items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummaryDTO {
+
+	private Long userId;
+
+	private int itemCount;
+
+	private int distinctTitles;
+
+	private double totalAmount;
+}
@@ -1,9 +1,19 @@
 package com.example.demo.entity;
 
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Transient;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -12,9 +22,15 @@ import lombok.Data;
 
 /**
  * Entity class representing an item in the shopping cart. 
- * Maps to a database table using JPA annotations.
+ * Maps to a database table using JPA annotations. A user has at most one
+ * item per book; adding the book again raises its quantity. Every change to
+ * a cart refreshes the last-touched time of all its items, which the expiry
+ * sweeper uses to find abandoned carts.
  */
 @Entity
+@Table(uniqueConstraints = {
+		@UniqueConstraint(name = "uk_cart_item_user_book", columnNames = { "user_id", "book_id" }) }, indexes = {
+				@Index(name = "idx_cart_item_last_touched", columnList = "last_touched") })
 @Data
 public class CartItem {
 	@Id
@@ -36,4 +52,14 @@ public class CartItem {
 	@Transient
 	private String bookName;
 
+	@JsonIgnore
+	@Column(name = "last_touched", nullable = false)
+	private Instant lastTouched;
+
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		lastTouched = Instant.now();
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.demo.exception;
+
+import java.util.Set;
+
+/**
+ * Exception thrown when book details could not be fetched from the Book
+ * Management microservice because of a failure or timeout, as opposed to the
+ * book not existing. Carries the IDs of the books that could not be resolved.
+ */
+public class BookLookupException extends RuntimeException {
+
+	private final Set<Long> failedBookIds;
+
+	/**
+	 * Constructs a new BookLookupException for the given book IDs.
+	 *
+	 * @param failedBookIds the IDs of the books that could not be fetched
+	 * @param cause         the first failure encountered
+	 */
+	public BookLookupException(Set<Long> failedBookIds, Throwable cause) {
+		super("Could not fetch book details for IDs: " + failedBookIds, cause);
+		this.failedBookIds = Set.copyOf(failedBookIds);
+	}
+
+	/**
+	 * Constructs a new BookLookupException with its own message, for lookups
+	 * that failed without an underlying exception.
+	 *
+	 * @param message       the detail message
+	 * @param failedBookIds the IDs of the books that could not be fetched
+	 */
+	protected BookLookupException(String message, Set<Long> failedBookIds) {
+		super(message);
+		this.failedBookIds = Set.copyOf(failedBookIds);
+	}
+
+	/**
+	 * Returns the IDs of the books that could not be fetched.
+	 *
+	 * @return the failed book IDs
+	 */
+	public Set<Long> getFailedBookIds() {
+		return failedBookIds;
+	}
+}
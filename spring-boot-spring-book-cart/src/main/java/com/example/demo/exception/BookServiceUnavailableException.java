@@ -0,0 +1,22 @@
+package com.example.demo.exception;
+
+import java.util.Set;
+
+/**
+ * Exception thrown when a book lookup is not even attempted, because the
+ * circuit breaker around the Book Management microservice is open or all
+ * concurrent lookups allowed are in progress.
+ */
+public class BookServiceUnavailableException extends BookLookupException {
+
+	/**
+	 * Constructs a new BookServiceUnavailableException for the given book IDs.
+	 *
+	 * @param failedBookIds the IDs of the books that were not fetched
+	 * @param reason        why the lookup was rejected
+	 */
+	public BookServiceUnavailableException(Set<Long> failedBookIds, String reason) {
+		super("Book Management service unavailable (" + reason + "), could not fetch book details for IDs: "
+				+ failedBookIds, failedBookIds);
+	}
+}
@@ -18,6 +18,14 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleUserNotFoundException(ResourceNotFoundException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
 	}
+	@ExceptionHandler(BookServiceUnavailableException.class)
+	public ResponseEntity<String> handleBookServiceUnavailableException(BookServiceUnavailableException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+	}
+	@ExceptionHandler(BookLookupException.class)
+	public ResponseEntity<String> handleBookLookupException(BookLookupException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_GATEWAY);
+	}
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<String> handleGeneralException(Exception ex) {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -1,8 +1,13 @@
 package com.example.demo.repository;
 
 import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.entity.CartItem;
 
@@ -20,4 +25,16 @@ public interface CartRepository extends JpaRepository<CartItem, Long> {
 	 * @return a list of cart items belonging to the user
 	 */
 	List<CartItem> findByUserId(Long userId);
-}
\ No newline at end of file
+
+	/**
+	 * Removes all cart items of a user in a single statement, without loading
+	 * them first.
+	 * 
+	 * @param userId the ID of the user
+	 * @return the number of items removed
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("DELETE FROM CartItem c WHERE c.userId = :userId")
+	int deleteByUserId(@Param("userId") Long userId);
+}
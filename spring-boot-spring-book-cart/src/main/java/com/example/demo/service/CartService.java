@@ -2,6 +2,8 @@ package com.example.demo.service;
 
 import java.util.List;
 
+import com.example.demo.dto.CartOperationDTO;
+import com.example.demo.dto.CartSummaryDTO;
 import com.example.demo.entity.CartItem;
 
 /**
@@ -18,13 +20,32 @@ public interface CartService {
 	List<CartItem> getCartItems(Long userId);
 
 	/**
-	 * Adds a new item to the cart.
+	 * Retrieves the totals of a user's cart, without book details.
+	 * 
+	 * @param userId the ID of the user
+	 * @return the item count, number of distinct books and total amount
+	 */
+	CartSummaryDTO getCartSummary(Long userId);
+
+	/**
+	 * Adds a book to the cart, raising the quantity of its item if the book is
+	 * already in the cart.
 	 * 
 	 * @param cartItem the item to add
-	 * @return the added cart item
+	 * @return the cart item holding the book, with its total quantity
 	 */
 	CartItem addCartItem(CartItem cartItem);
 
+	/**
+	 * Applies a batch of add, update and remove operations to a user's cart, in
+	 * order and all or nothing.
+	 * 
+	 * @param userId     the ID of the user
+	 * @param operations the operations to apply
+	 * @return the cart items after the batch
+	 */
+	List<CartItem> applyBatch(Long userId, List<CartOperationDTO> operations);
+
 	/**
 	 * Removes an item from the cart.
 	 * 
@@ -1,84 +1,310 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 
+import com.example.demo.cache.BookCache;
+import com.example.demo.cache.CartSummaryCache;
+import com.example.demo.client.BookClient;
+import com.example.demo.client.BookIdFilter;
 import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.CartOperationDTO;
+import com.example.demo.dto.CartSummaryDTO;
 import com.example.demo.entity.CartItem;
+import com.example.demo.exception.BookLookupException;
 import com.example.demo.exception.ResourceNotFoundException;
-import com.example.demo.repository.CartRepository;
-
+import com.example.demo.metrics.MetricsSource;
+import com.example.demo.store.CartStore;
 
 /**
  * Implementation of the CartService interface. Provides methods for managing
  * cart items, including interaction with the Book Management microservice.
+ * When book details cannot be fetched, because the service fails or its
+ * circuit breaker is open, books already in the cart fall back to the price
+ * stored on their cart item, without a title.
  */
 @Service
-public class CartServiceImpl implements CartService {
+public class CartServiceImpl implements CartService, MetricsSource {
 
-	private final CartRepository cartRepository;
-	private final RestTemplate restTemplate;
+	private static final Logger logger = LoggerFactory.getLogger(CartServiceImpl.class);
 
-	private static final String BOOK_SERVICE_URL = "http://localhost:8085/api/books/";
+	private final CartStore cartStore;
+	private final BookClient bookClient;
+	private final BookIdFilter bookIdFilter;
+	private final BookCache bookCache;
+	private final CartSummaryCache cartSummaryCache;
+	private final LongAdder fallbackCount = new LongAdder();
 
 	@Autowired
-	public CartServiceImpl(CartRepository cartRepository, RestTemplate restTemplate) {
-		this.cartRepository = cartRepository;
-		this.restTemplate = restTemplate;
+	public CartServiceImpl(CartStore cartStore, BookClient bookClient, BookIdFilter bookIdFilter,
+			BookCache bookCache, CartSummaryCache cartSummaryCache) {
+		this.cartStore = cartStore;
+		this.bookClient = bookClient;
+		this.bookIdFilter = bookIdFilter;
+		this.bookCache = bookCache;
+		this.cartSummaryCache = cartSummaryCache;
 	}
 
 	/**
-	 * Retrieves all cart items for a specific user. Fetches book details from the
-	 * Book Management microservice.
+	 * Retrieves all cart items for a specific user. Book details are read from
+	 * the local book cache; books it does not hold are fetched from the Book
+	 * Management microservice, each distinct book once. If that fails, items
+	 * keep their stored price.
 	 * 
 	 * @param userId the ID of the user
 	 * @return a list of cart items belonging to the user
 	 */
 	@Override
-	 public List<CartItem> getCartItems(Long userId) {
-        List<CartItem> cartItems = cartRepository.findByUserId(userId);
-        for (CartItem cartItem : cartItems) {
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("X-Internal-Request", "true"); // Custom header to indicate internal request
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<BookDTO> response = restTemplate.exchange(BOOK_SERVICE_URL + cartItem.getBookId(), HttpMethod.GET, entity, BookDTO.class);
-            BookDTO book = response.getBody();
-            if (book != null) {
-                cartItem.setBookName(book.getTitle());
-                cartItem.setPrice(book.getPrice()); // Set the price
-            } else {
-                throw new ResourceNotFoundException("Book not found for ID: " + cartItem.getBookId());
-            }
-        }
-        return cartItems;
-    }
-
-    @Override
-    public CartItem addCartItem(CartItem cartItem) {
-        // Fetch book details from book management microservice
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("X-Internal-Request", "true"); // Custom header to indicate internal request
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        ResponseEntity<BookDTO> response = restTemplate.exchange(BOOK_SERVICE_URL + cartItem.getBookId(), HttpMethod.GET, entity, BookDTO.class);
-        BookDTO book = response.getBody();
-        if (book != null) {
-            cartItem.setBookName(book.getTitle());
-            cartItem.setPrice(book.getPrice()); // Set the price
-            // Save cart item with book details
-            return cartRepository.save(cartItem);
-        } else {
-            throw new ResourceNotFoundException("Book not found for ID: " + cartItem.getBookId());
-        }
-    }
+	public List<CartItem> getCartItems(Long userId) {
+		List<CartItem> cartItems = cartStore.findByUserId(userId);
+		if (cartItems.isEmpty()) {
+			return cartItems;
+		}
+		Map<Long, BookDTO> books = lookupBooks(
+				cartItems.stream().map(CartItem::getBookId).collect(Collectors.toSet()), cartItems);
+		for (CartItem cartItem : cartItems) {
+			BookDTO book = books.get(cartItem.getBookId());
+			cartItem.setBookName(book.getTitle());
+			cartItem.setPrice(book.getPrice()); // Set the price
+		}
+		return cartItems;
+	}
+
+	/**
+	 * Retrieves the totals of a user's cart from the summary cache, which loads
+	 * the cart items on a miss but never their book details. The amount uses
+	 * the prices stored on the items.
+	 * 
+	 * @param userId the ID of the user
+	 * @return the item count, number of distinct books and total amount
+	 */
+	@Override
+	public CartSummaryDTO getCartSummary(Long userId) {
+		return cartSummaryCache.getOrLoad(userId, cartStore::findByUserId);
+	}
+
+	/**
+	 * Adds a book to the cart. If the book is already in the cart, its quantity
+	 * is raised instead of adding another item. Book details are read from the
+	 * local book cache, or fetched from the Book Management microservice, before
+	 * saving.
+	 * Book IDs the local ID filter knows to be missing are rejected without a
+	 * remote lookup. If the lookup fails, a book already in the cart is added at
+	 * its stored price.
+	 * 
+	 * @param cartItem the item to add
+	 * @return the cart item holding the book, with its total quantity
+	 * @throws ResourceNotFoundException if the book does not exist
+	 * @throws BookLookupException       if the lookup failed and the book is not
+	 *                                   in the cart yet
+	 */
+	@Override
+	public CartItem addCartItem(CartItem cartItem) {
+		if (!bookIdFilter.mightExist(cartItem.getBookId())) {
+			throw new ResourceNotFoundException("Book not found for ID: " + cartItem.getBookId());
+		}
+		BookDTO book;
+		try {
+			book = bookCache.getOrLoad(cartItem.getBookId(), bookClient::fetchBook);
+		} catch (BookLookupException ex) {
+			book = lookupBooksFailed(Set.of(cartItem.getBookId()), cartStore.findByUserId(cartItem.getUserId()), ex)
+					.get(cartItem.getBookId());
+		}
+		cartItem.setPrice(book.getPrice()); // Set the price
+		// Add to the user's item for this book, or create it
+		CartItem saved = cartStore.add(cartItem);
+		cartSummaryCache.added(saved.getUserId(), saved.getBookId(), cartItem.getQuantity(), saved.getPrice());
+		saved.setBookName(book.getTitle());
+		return saved;
+	}
+
+	/**
+	 * Applies a batch of operations to a user's cart. The details of every book
+	 * in the cart and of every added book are resolved first, with one batched
+	 * lookup and before the cart is locked, so no remote call runs under the
+	 * lock. The operations are then applied to the cart as it is stored once
+	 * locked, checking that updated items belong to the user, and all changes
+	 * are written before the lock is released, so nothing is written if any
+	 * operation fails and no concurrent change is lost. Adding a book already in
+	 * the cart raises the quantity of its item by the added amount in the store,
+	 * the way a single add does. Items are listed in cart order, followed by the
+	 * added ones. If the lookup fails, books already in the cart keep their
+	 * stored price.
+	 * 
+	 * @param userId     the ID of the user
+	 * @param operations the operations to apply
+	 * @return the cart items after the batch
+	 * @throws ResourceNotFoundException if an updated item or an added book does
+	 *                                   not exist
+	 * @throws BookLookupException       if the lookup failed and an added book is
+	 *                                   not in the cart yet
+	 */
+	@Override
+	public List<CartItem> applyBatch(Long userId, List<CartOperationDTO> operations) {
+		List<CartItem> current = cartStore.findByUserId(userId);
+		Set<Long> itemIds = current.stream().map(CartItem::getId).collect(Collectors.toSet());
+		Set<Long> bookIds = new HashSet<>();
+		current.forEach(cartItem -> bookIds.add(cartItem.getBookId()));
+		// Fail before any lookup on what the unlocked read already shows
+		for (CartOperationDTO operation : operations) {
+			if (operation.getType() == CartOperationDTO.Type.ADD) {
+				if (!bookIdFilter.mightExist(operation.getBookId())) {
+					throw new ResourceNotFoundException("Book not found for ID: " + operation.getBookId());
+				}
+				bookIds.add(operation.getBookId());
+			} else if (operation.getType() == CartOperationDTO.Type.UPDATE
+					&& !itemIds.contains(operation.getItemId())) {
+				throw new ResourceNotFoundException("Cart item not found for ID: " + operation.getItemId());
+			}
+		}
+		Map<Long, BookDTO> books = new HashMap<>();
+		if (!bookIds.isEmpty()) {
+			books.putAll(lookupBooks(bookIds, current));
+		}
+
+		List<CartItem> result = cartStore.withLockedCart(userId,
+				items -> applyOperations(userId, operations, items, books));
+		cartSummaryCache.invalidate(userId);
+
+		// Books of items another request added between the first read and the lock
+		Set<Long> unresolvedIds = result.stream().map(CartItem::getBookId)
+				.filter(bookId -> !books.containsKey(bookId)).collect(Collectors.toSet());
+		if (!unresolvedIds.isEmpty()) {
+			books.putAll(lookupBooks(unresolvedIds, result));
+		}
+		for (CartItem cartItem : result) {
+			BookDTO book = books.get(cartItem.getBookId());
+			cartItem.setBookName(book.getTitle());
+			cartItem.setPrice(book.getPrice()); // Set the price
+		}
+		return result;
+	}
+
+	/**
+	 * Applies the operations of a batch to the locked items of a cart and writes
+	 * the changes. An added book already in the cart becomes an item without ID
+	 * carrying only the added quantity, which the store adds to the stored one;
+	 * once the batch sets the item's quantity outright, later adds are folded
+	 * into that value instead.
+	 */
+	private List<CartItem> applyOperations(Long userId, List<CartOperationDTO> operations, List<CartItem> cartItems,
+			Map<Long, BookDTO> books) {
+		Map<Long, CartItem> items = new LinkedHashMap<>();
+		cartItems.forEach(cartItem -> items.put(cartItem.getId(), cartItem));
+		List<CartItem> removed = new ArrayList<>();
+		Set<Long> changedIds = new HashSet<>();
+		Map<Long, CartItem> added = new LinkedHashMap<>();
+		for (CartOperationDTO operation : operations) {
+			switch (operation.getType()) {
+			case ADD -> {
+				CartItem existing = findByBook(items.values(), operation.getBookId());
+				if (existing != null && changedIds.contains(existing.getId())) {
+					existing.setQuantity(existing.getQuantity() + operation.getQuantity());
+					continue;
+				}
+				CartItem cartItem = added.computeIfAbsent(operation.getBookId(), bookId -> {
+					CartItem newItem = new CartItem();
+					newItem.setUserId(userId);
+					newItem.setBookId(bookId);
+					return newItem;
+				});
+				cartItem.setQuantity(cartItem.getQuantity() + operation.getQuantity());
+			}
+			case UPDATE -> {
+				CartItem cartItem = items.get(operation.getItemId());
+				if (cartItem == null) {
+					throw new ResourceNotFoundException("Cart item not found for ID: " + operation.getItemId());
+				}
+				// The new quantity replaces whatever earlier adds of the book would raise
+				added.remove(cartItem.getBookId());
+				cartItem.setQuantity(operation.getQuantity());
+				changedIds.add(cartItem.getId());
+			}
+			case REMOVE -> {
+				CartItem cartItem = items.remove(operation.getItemId());
+				if (cartItem != null) {
+					removed.add(cartItem);
+					changedIds.remove(cartItem.getId());
+					added.remove(cartItem.getBookId());
+				}
+			}
+			}
+		}
+		added.values().forEach(cartItem -> cartItem.setPrice(books.get(cartItem.getBookId()).getPrice()));
+
+		List<CartItem> saved = new ArrayList<>(added.size() + changedIds.size());
+		items.values().stream().filter(cartItem -> changedIds.contains(cartItem.getId())).forEach(saved::add);
+		saved.addAll(added.values());
+		if (!saved.isEmpty() || !removed.isEmpty()) {
+			saved = cartStore.applyChanges(saved, removed);
+		}
+		Map<Long, CartItem> savedById = new LinkedHashMap<>();
+		saved.forEach(cartItem -> savedById.put(cartItem.getId(), cartItem));
+
+		List<CartItem> result = new ArrayList<>(items.size() + added.size());
+		items.values().forEach(cartItem -> result.add(savedById.getOrDefault(cartItem.getId(), cartItem)));
+		savedById.values().stream().filter(cartItem -> !items.containsKey(cartItem.getId())).forEach(result::add);
+		return result;
+	}
+
+	/**
+	 * Resolves book details through the book cache, falling back to the stored
+	 * prices of the given cart items if the lookup fails.
+	 */
+	private Map<Long, BookDTO> lookupBooks(Collection<Long> bookIds, Collection<CartItem> cartItems) {
+		try {
+			return bookCache.getOrLoadAll(bookIds, bookClient::fetchBooks);
+		} catch (BookLookupException ex) {
+			return lookupBooksFailed(bookIds, cartItems, ex);
+		}
+	}
+
+	/**
+	 * Builds the book details of a failed lookup from the books still cached
+	 * and the stored prices of the cart items. The lookup error is rethrown if
+	 * a book is neither cached nor in the cart.
+	 */
+	private Map<Long, BookDTO> lookupBooksFailed(Collection<Long> bookIds, Collection<CartItem> cartItems,
+			BookLookupException ex) {
+		Map<Long, BookDTO> books = bookCache.getAllPresent(bookIds);
+		for (CartItem cartItem : cartItems) {
+			if (bookIds.contains(cartItem.getBookId()) && !books.containsKey(cartItem.getBookId())) {
+				BookDTO book = new BookDTO();
+				book.setId(cartItem.getBookId());
+				book.setPrice(cartItem.getPrice());
+				books.put(cartItem.getBookId(), book);
+			}
+		}
+		if (!books.keySet().containsAll(bookIds)) {
+			throw ex;
+		}
+		fallbackCount.increment();
+		logger.warn("Using stored prices for books {}: {}", ex.getFailedBookIds(), ex.getMessage());
+		return books;
+	}
+
+	private static CartItem findByBook(Iterable<CartItem> cartItems, Long bookId) {
+		for (CartItem cartItem : cartItems) {
+			if (cartItem.getBookId().equals(bookId)) {
+				return cartItem;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Removes an item from the cart.
 	 * 
@@ -86,7 +312,10 @@ public class CartServiceImpl implements CartService {
 	 */
 	@Override
 	public void removeCartItem(Long id) {
-		cartRepository.deleteById(id);
+		CartItem removed = cartStore.deleteById(id);
+		if (removed != null) {
+			cartSummaryCache.removed(removed);
+		}
 	}
 
 	/**
@@ -96,7 +325,19 @@ public class CartServiceImpl implements CartService {
 	 */
 	@Override
 	public void clearCart(Long userId) {
-		List<CartItem> cartItems = cartRepository.findByUserId(userId);
-		cartRepository.deleteAll(cartItems);
+		cartStore.deleteByUserId(userId);
+		cartSummaryCache.cleared(userId);
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "cartService";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("storedPriceFallbacks", fallbackCount.sum());
+		return metrics;
 	}
-}
\ No newline at end of file
+}
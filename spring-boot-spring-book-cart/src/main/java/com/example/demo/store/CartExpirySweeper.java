@@ -0,0 +1,163 @@
+package com.example.demo.store;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.cache.CartSummaryCache;
+import com.example.demo.metrics.MetricsSource;
+
+/**
+ * Removes carts that nobody changed for {@code cart.expiry.idle-days}. Every
+ * change refreshes the last-touched time of all items of a cart, so a cart is
+ * abandoned exactly when its items are.
+ * <p>
+ * Each run works in small batches so it never competes with live traffic for
+ * long: a batch picks the users owning the oldest items through the
+ * last-touched index, then deletes their idle items through the user index.
+ * Both statements run on their own, outside any transaction, so row locks are
+ * held for one statement only, and the sweeper pauses between batches. A run
+ * stops after {@code cart.expiry.max-batches} batches and resumes on the next
+ * run. A cart touched between the two statements keeps the items touched.
+ * <p>
+ * A run can take {@code max-batches} times {@code pause-ms} and more, so the
+ * scheduler pool ({@code spring.task.scheduling.pool.size}) has a thread for
+ * every scheduled task of this service; otherwise a run would hold up the
+ * write-behind flush and the book ID refresh until it ends.
+ */
+@Component
+public class CartExpirySweeper implements MetricsSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(CartExpirySweeper.class);
+
+	private static final String SELECT_SQL = "SELECT DISTINCT user_id FROM (SELECT user_id FROM cart_item "
+			+ "WHERE last_touched < ? ORDER BY last_touched LIMIT ?) oldest";
+
+	private static final String DELETE_SQL = "DELETE FROM cart_item WHERE last_touched < ? AND user_id IN (%s)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final CartStore cartStore;
+	private final CartSummaryCache cartSummaryCache;
+	private final long idleMillis;
+	private final int batchSize;
+	private final long pauseMillis;
+	private final int maxBatches;
+	private final LongAdder expiredCarts = new LongAdder();
+	private final LongAdder expiredItems = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final AtomicLong lastRunMillis = new AtomicLong();
+
+	public CartExpirySweeper(JdbcTemplate jdbcTemplate, CartStore cartStore, CartSummaryCache cartSummaryCache,
+			@Value("${cart.expiry.idle-days:30}") long idleDays,
+			@Value("${cart.expiry.batch-size:500}") int batchSize,
+			@Value("${cart.expiry.pause-ms:100}") long pauseMillis,
+			@Value("${cart.expiry.max-batches:100}") int maxBatches) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.cartStore = cartStore;
+		this.cartSummaryCache = cartSummaryCache;
+		this.idleMillis = TimeUnit.DAYS.toMillis(idleDays);
+		this.batchSize = batchSize;
+		this.pauseMillis = pauseMillis;
+		this.maxBatches = maxBatches;
+	}
+
+	/**
+	 * Removes idle carts batch by batch until none are left or the run reaches
+	 * its batch limit. A failed batch ends the run; the next run retries.
+	 *
+	 * @return the number of items removed
+	 */
+	@Scheduled(initialDelayString = "${cart.expiry.sweep-ms:3600000}",
+			fixedDelayString = "${cart.expiry.sweep-ms:3600000}")
+	public int sweep() {
+		if (idleMillis <= 0) {
+			return 0;
+		}
+		long start = System.currentTimeMillis();
+		Timestamp cutoff = Timestamp.from(Instant.ofEpochMilli(start - idleMillis));
+		int removed = 0;
+		try {
+			for (int batch = 0; batch < maxBatches; batch++) {
+				if (batch > 0 && !pause()) {
+					break;
+				}
+				List<Long> userIds = jdbcTemplate.queryForList(SELECT_SQL, Long.class, cutoff, batchSize);
+				if (userIds.isEmpty()) {
+					break;
+				}
+				int deleted = jdbcTemplate.update(
+						String.format(DELETE_SQL, String.join(", ", Collections.nCopies(userIds.size(), "?"))),
+						arguments(cutoff, userIds));
+				cartStore.afterExpiry(userIds);
+				userIds.forEach(cartSummaryCache::invalidate);
+				expiredCarts.add(userIds.size());
+				expiredItems.add(deleted);
+				removed += deleted;
+				// The batch took every idle item that was left
+				if (deleted < batchSize) {
+					break;
+				}
+			}
+		} catch (DataAccessException ex) {
+			failures.increment();
+			logger.warn("Could not expire idle carts, retrying on the next run: {}", ex.getMessage());
+		}
+		lastRunMillis.set(System.currentTimeMillis() - start);
+		if (removed > 0) {
+			logger.info("Expired {} items of carts idle since {}", removed, cutoff);
+		}
+		return removed;
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "cartExpiry";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("expiredCarts", expiredCarts.sum());
+		metrics.put("expiredItems", expiredItems.sum());
+		metrics.put("failures", failures.sum());
+		metrics.put("lastRunMs", lastRunMillis.get());
+		return metrics;
+	}
+
+	private static Object[] arguments(Timestamp cutoff, List<Long> userIds) {
+		List<Object> arguments = new ArrayList<>(userIds.size() + 1);
+		arguments.add(cutoff);
+		arguments.addAll(userIds);
+		return arguments.toArray();
+	}
+
+	/**
+	 * Waits between batches to leave room for live traffic.
+	 *
+	 * @return false if the thread was interrupted
+	 */
+	private boolean pause() {
+		try {
+			Thread.sleep(pauseMillis);
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
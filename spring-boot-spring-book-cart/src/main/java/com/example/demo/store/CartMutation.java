@@ -0,0 +1,58 @@
+package com.example.demo.store;
+
+import com.example.demo.entity.CartItem;
+
+/**
+ * One change to a cart item as recorded in the write-ahead log: the full new
+ * state of the item, or its deletion.
+ *
+ * @param sequence the position of the change among all changes
+ * @param itemId   the ID of the cart item
+ * @param userId   the ID of the user owning the item
+ * @param bookId   the ID of the book, null for a deletion
+ * @param quantity the quantity, 0 for a deletion
+ * @param price    the price, 0 for a deletion
+ * @param deleted  whether the item was removed
+ */
+public record CartMutation(long sequence, long itemId, long userId, Long bookId, int quantity, double price,
+		boolean deleted) {
+
+	/**
+	 * Records the new state of an item.
+	 *
+	 * @param sequence the position of the change
+	 * @param cartItem the item
+	 * @return the mutation
+	 */
+	public static CartMutation saved(long sequence, CartItem cartItem) {
+		return new CartMutation(sequence, cartItem.getId(), cartItem.getUserId(), cartItem.getBookId(),
+				cartItem.getQuantity(), cartItem.getPrice(), false);
+	}
+
+	/**
+	 * Records the removal of an item.
+	 *
+	 * @param sequence the position of the change
+	 * @param itemId   the ID of the item
+	 * @param userId   the ID of the user owning the item
+	 * @return the mutation
+	 */
+	public static CartMutation deleted(long sequence, long itemId, long userId) {
+		return new CartMutation(sequence, itemId, userId, null, 0, 0, true);
+	}
+
+	/**
+	 * Returns the item in the state this mutation recorded.
+	 *
+	 * @return the cart item
+	 */
+	public CartItem toCartItem() {
+		CartItem cartItem = new CartItem();
+		cartItem.setId(itemId);
+		cartItem.setUserId(userId);
+		cartItem.setBookId(bookId);
+		cartItem.setQuantity(quantity);
+		cartItem.setPrice(price);
+		return cartItem;
+	}
+}
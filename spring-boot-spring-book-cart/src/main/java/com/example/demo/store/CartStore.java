@@ -0,0 +1,90 @@
+package com.example.demo.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import com.example.demo.entity.CartItem;
+
+/**
+ * Storage of cart items. Backed by the database directly, or by the
+ * write-behind store when {@code cart.store.write-behind} is enabled.
+ */
+public interface CartStore {
+
+	/**
+	 * Finds all cart items for a specific user.
+	 * 
+	 * @param userId the ID of the user
+	 * @return a list of cart items belonging to the user
+	 */
+	List<CartItem> findByUserId(Long userId);
+
+	/**
+	 * Saves a cart item, assigning an ID to a new one.
+	 * 
+	 * @param cartItem the item to save
+	 * @return the saved cart item
+	 */
+	CartItem save(CartItem cartItem);
+
+	/**
+	 * Adds a book to a user's cart as one atomic step: a new item if the book is
+	 * not in the cart yet, otherwise the quantity is added to the existing item
+	 * and its price refreshed.
+	 * 
+	 * @param cartItem the user, book, quantity and price to add
+	 * @return the cart item holding the book, with its total quantity
+	 */
+	CartItem add(CartItem cartItem);
+
+	/**
+	 * Removes a cart item. Unknown IDs are ignored.
+	 * 
+	 * @param id the ID of the item
+	 * @return the removed item, or null if no item has the ID
+	 */
+	CartItem deleteById(Long id);
+
+	/**
+	 * Removes all cart items of a user.
+	 * 
+	 * @param userId the ID of the user
+	 */
+	void deleteByUserId(Long userId);
+
+	/**
+	 * Saves and removes several cart items of one user as one atomic change.
+	 * Removals are applied first. A new item for a book that is already in the
+	 * cart is merged into the existing item by adding its quantity.
+	 * 
+	 * @param saved   the items to insert or update
+	 * @param deleted the items to remove
+	 * @return the saved items with their IDs and quantities, in the order given
+	 */
+	List<CartItem> applyChanges(List<CartItem> saved, List<CartItem> deleted);
+
+	/**
+	 * Runs an action on a user's cart while no other change to it can be
+	 * applied. The action gets the items as stored at that moment and may write
+	 * through {@link #applyChanges}, so the read and the write form one atomic
+	 * step. The action must do all its checks before it writes, and must not
+	 * block on other services, since the cart stays locked until it returns.
+	 * 
+	 * @param <T>    the result type
+	 * @param userId the ID of the user
+	 * @param action reads the current items and writes the changes
+	 * @return the result of the action
+	 */
+	<T> T withLockedCart(Long userId, Function<List<CartItem>, T> action);
+
+	/**
+	 * Called after the {@link CartExpirySweeper} removed the stored carts of
+	 * these users directly in the database, so a store holding carts of its own
+	 * can reconcile them.
+	 * 
+	 * @param userIds the users whose carts expired
+	 */
+	default void afterExpiry(Collection<Long> userIds) {
+	}
+}
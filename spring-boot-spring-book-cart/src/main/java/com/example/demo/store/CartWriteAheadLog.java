@@ -0,0 +1,212 @@
+package com.example.demo.store;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Write-ahead log of cart mutations, one JSON object per line, split into
+ * numbered segment files. Mutations are appended to the current segment and,
+ * when sync is on, forced to disk before the append returns. A flush rolls
+ * over to a new segment first, and once the flushed mutations are in the
+ * database the older segments are deleted. Whatever segments remain at startup
+ * hold the mutations that never reached the database.
+ * <p>
+ * Mutations the database keeps rejecting are moved to a separate dead-letter
+ * file in the same directory, with the error, so they no longer hold back the
+ * segments they were in. That file is never replayed; it is kept for an
+ * operator to inspect.
+ */
+public class CartWriteAheadLog implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(CartWriteAheadLog.class);
+
+	private static final String PREFIX = "cart-wal-";
+	private static final String SUFFIX = ".log";
+	private static final String DEAD_LETTER_FILE = "cart-dead-letter.log";
+
+	private final Path directory;
+	private final ObjectMapper objectMapper;
+	private final boolean sync;
+	private FileChannel channel;
+	private long segment;
+
+	public CartWriteAheadLog(Path directory, ObjectMapper objectMapper, boolean sync) {
+		this.directory = directory;
+		this.objectMapper = objectMapper;
+		this.sync = sync;
+	}
+
+	/**
+	 * Reads back the mutations left by the previous run and starts a new segment.
+	 * A damaged last line, left by a crash during an append that was therefore
+	 * never acknowledged, ends the segment it is in.
+	 *
+	 * @return the mutations in the order they were appended
+	 * @throws IOException if the log cannot be read or written
+	 */
+	public synchronized List<CartMutation> open() throws IOException {
+		Files.createDirectories(directory);
+		List<CartMutation> mutations = new ArrayList<>();
+		for (Path file : segments().values()) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!line.isBlank()) {
+						mutations.add(objectMapper.readValue(line, CartMutation.class));
+					}
+				}
+			} catch (IOException ex) {
+				logger.warn("Cart write-ahead log segment {} is damaged: {}", file, ex.getMessage());
+			}
+		}
+		TreeMap<Long, Path> existing = segments();
+		segment = existing.isEmpty() ? 1 : existing.lastKey() + 1;
+		channel = openSegment(segment);
+		return mutations;
+	}
+
+	/**
+	 * Appends mutations to the current segment.
+	 *
+	 * @param mutations the mutations to append
+	 * @throws UncheckedIOException if they could not be written
+	 */
+	public synchronized void append(List<CartMutation> mutations) {
+		try {
+			StringBuilder lines = new StringBuilder();
+			for (CartMutation mutation : mutations) {
+				lines.append(objectMapper.writeValueAsString(mutation)).append('\n');
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (sync) {
+				channel.force(false);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Could not append to the cart write-ahead log", ex);
+		}
+	}
+
+	/**
+	 * Closes the current segment and starts the next one.
+	 *
+	 * @return the number of the new segment
+	 * @throws UncheckedIOException if the new segment could not be created
+	 */
+	public synchronized long roll() {
+		try {
+			channel.close();
+			segment++;
+			channel = openSegment(segment);
+			return segment;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Could not roll the cart write-ahead log", ex);
+		}
+	}
+
+	/**
+	 * Deletes the segments before the given one.
+	 *
+	 * @param firstKept the number of the first segment to keep
+	 */
+	public synchronized void deleteBefore(long firstKept) {
+		try {
+			for (Path file : segments().headMap(firstKept).values()) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException ex) {
+			logger.warn("Could not delete flushed cart write-ahead log segments: {}", ex.getMessage());
+		}
+	}
+
+	/**
+	 * Appends a mutation the database rejected to the dead-letter file, forced
+	 * to disk before it returns, since the mutation is no longer queued.
+	 *
+	 * @param mutation the rejected mutation
+	 * @param error    why the database rejected it
+	 * @throws UncheckedIOException if it could not be written
+	 */
+	public synchronized void deadLetter(CartMutation mutation, String error) {
+		try (FileChannel deadLetters = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			String line = objectMapper.writeValueAsString(new DeadLetter(mutation, error, System.currentTimeMillis()));
+			ByteBuffer buffer = ByteBuffer.wrap((line + '\n').getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				deadLetters.write(buffer);
+			}
+			deadLetters.force(false);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Could not append to the cart dead-letter log", ex);
+		}
+	}
+
+	/**
+	 * Returns the number of the current segment.
+	 *
+	 * @return the segment number
+	 */
+	public synchronized long currentSegment() {
+		return segment;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	/**
+	 * A line of the dead-letter file.
+	 *
+	 * @param mutation the rejected mutation
+	 * @param error    why the database rejected it
+	 * @param failedAt when it was given up, in epoch milliseconds
+	 */
+	public record DeadLetter(CartMutation mutation, String error, long failedAt) {
+	}
+
+	private FileChannel openSegment(long number) throws IOException {
+		return FileChannel.open(directory.resolve(String.format("%s%012d%s", PREFIX, number, SUFFIX)),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Returns the segment files by number.
+	 */
+	private TreeMap<Long, Path> segments() throws IOException {
+		TreeMap<Long, Path> segments = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					segments.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())),
+							file);
+				} catch (NumberFormatException ex) {
+					logger.warn("Ignoring unexpected file {} in the cart write-ahead log", file);
+				}
+			}
+		}
+		return segments;
+	}
+}
@@ -0,0 +1,217 @@
+package com.example.demo.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entity.CartItem;
+import com.example.demo.repository.CartRepository;
+
+/**
+ * Cart store that reads and writes the database on every call. Used unless
+ * the write-behind store is enabled. Books are added with a single upsert on
+ * the unique (user, book) key, so concurrent adds of the same book add up
+ * instead of racing on a read-modify-write. Batches of changes are written
+ * with JDBC batches, since Hibernate cannot batch inserts into a table with
+ * database-generated IDs. Every change also refreshes the last-touched time of
+ * the rest of the cart, so the cart expires as a whole.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.write-behind", havingValue = "false", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+	private static final String UPSERT_SQL = "INSERT INTO cart_item (user_id, book_id, quantity, price, last_touched) "
+			+ "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP(6)) ON DUPLICATE KEY UPDATE "
+			+ "quantity = quantity + VALUES(quantity), price = VALUES(price), last_touched = VALUES(last_touched)";
+
+	private static final String UPDATE_SQL = "UPDATE cart_item SET book_id = ?, quantity = ?, price = ?, "
+			+ "last_touched = CURRENT_TIMESTAMP(6) WHERE id = ? AND user_id = ?";
+
+	private static final String LOCK_SQL = "SELECT id, user_id, book_id, quantity, price FROM cart_item "
+			+ "WHERE user_id = ? ORDER BY id FOR UPDATE";
+
+	private static final String SELECT_BY_USER_SQL = "SELECT id, user_id, book_id, quantity, price FROM cart_item "
+			+ "WHERE user_id = ? ORDER BY id";
+
+	private static final String SELECT_BY_BOOK_SQL = "SELECT id, user_id, book_id, quantity, price FROM cart_item "
+			+ "WHERE user_id = ? AND book_id = ? ORDER BY id";
+
+	private static final RowMapper<CartItem> CART_ITEM_MAPPER = (resultSet, rowNum) -> {
+		CartItem cartItem = new CartItem();
+		cartItem.setId(resultSet.getLong("id"));
+		cartItem.setUserId(resultSet.getLong("user_id"));
+		cartItem.setBookId(resultSet.getLong("book_id"));
+		cartItem.setQuantity(resultSet.getInt("quantity"));
+		cartItem.setPrice(resultSet.getDouble("price"));
+		return cartItem;
+	};
+
+	// Items touched within the hour are left alone, so most changes rewrite no other row
+	static final String TOUCH_SQL = "UPDATE cart_item SET last_touched = CURRENT_TIMESTAMP(6) "
+			+ "WHERE user_id = ? AND last_touched < TIMESTAMPADD(HOUR, -1, CURRENT_TIMESTAMP(6))";
+
+	private final CartRepository cartRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+
+	public JpaCartStore(CartRepository cartRepository, JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager) {
+		this.cartRepository = cartRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public List<CartItem> findByUserId(Long userId) {
+		return cartRepository.findByUserId(userId);
+	}
+
+	@Override
+	public CartItem save(CartItem cartItem) {
+		return transactionTemplate.execute(status -> {
+			CartItem saved = cartRepository.save(cartItem);
+			jdbcTemplate.update(TOUCH_SQL, saved.getUserId());
+			return saved;
+		});
+	}
+
+	/**
+	 * Upserts the item and reads it back in the same transaction. The upsert
+	 * holds the row lock until commit, so the quantity read is the one written.
+	 * The read goes through JDBC: the request may already have loaded the cart
+	 * through Hibernate, which would hand back those items with the quantity
+	 * from before the upsert. Lines of the book that predate the unique key are
+	 * folded into the result.
+	 */
+	@Override
+	public CartItem add(CartItem cartItem) {
+		return transactionTemplate.execute(status -> {
+			jdbcTemplate.update(UPSERT_SQL, cartItem.getUserId(), cartItem.getBookId(), cartItem.getQuantity(),
+					cartItem.getPrice());
+			jdbcTemplate.update(TOUCH_SQL, cartItem.getUserId());
+			List<CartItem> lines = jdbcTemplate.query(SELECT_BY_BOOK_SQL, CART_ITEM_MAPPER, cartItem.getUserId(),
+					cartItem.getBookId());
+			if (lines.isEmpty()) {
+				throw new IllegalStateException("Cart item for book " + cartItem.getBookId() + " vanished after upsert");
+			}
+			return merged(lines);
+		});
+	}
+
+	/**
+	 * Reads the item and deletes it in one transaction, as the repository's
+	 * own deleteById does, so the removed item can be returned at no extra
+	 * cost.
+	 */
+	@Override
+	public CartItem deleteById(Long id) {
+		return transactionTemplate.execute(status -> cartRepository.findById(id).map(cartItem -> {
+			cartRepository.delete(cartItem);
+			return cartItem;
+		}).orElse(null));
+	}
+
+	@Override
+	public void deleteByUserId(Long userId) {
+		cartRepository.deleteByUserId(userId);
+	}
+
+	/**
+	 * Writes the changes in one transaction: one delete statement, one batch of
+	 * updates and one batch of upserts, then one touch per user. New items then
+	 * get their IDs and quantities from a JDBC read of the cart in the same
+	 * transaction, which sees the upserted quantities.
+	 */
+	@Override
+	public List<CartItem> applyChanges(List<CartItem> saved, List<CartItem> deleted) {
+		return transactionTemplate.execute(status -> {
+			if (!deleted.isEmpty()) {
+				cartRepository.deleteAllByIdInBatch(deleted.stream().map(CartItem::getId).toList());
+			}
+			List<CartItem> updates = saved.stream().filter(cartItem -> cartItem.getId() != null).toList();
+			if (!updates.isEmpty()) {
+				jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (statement, cartItem) -> {
+					statement.setLong(1, cartItem.getBookId());
+					statement.setInt(2, cartItem.getQuantity());
+					statement.setDouble(3, cartItem.getPrice());
+					statement.setLong(4, cartItem.getId());
+					statement.setLong(5, cartItem.getUserId());
+				});
+			}
+			List<CartItem> inserts = saved.stream().filter(cartItem -> cartItem.getId() == null).toList();
+			if (!inserts.isEmpty()) {
+				jdbcTemplate.batchUpdate(UPSERT_SQL, inserts, inserts.size(), (statement, cartItem) -> {
+					statement.setLong(1, cartItem.getUserId());
+					statement.setLong(2, cartItem.getBookId());
+					statement.setInt(3, cartItem.getQuantity());
+					statement.setDouble(4, cartItem.getPrice());
+				});
+				Map<Long, Map<Long, CartItem>> stored = new HashMap<>();
+				for (CartItem cartItem : inserts) {
+					CartItem current = stored.computeIfAbsent(cartItem.getUserId(), this::itemsByBook)
+							.get(cartItem.getBookId());
+					cartItem.setId(current.getId());
+					cartItem.setQuantity(current.getQuantity());
+				}
+			}
+			List<Object[]> touches = new ArrayList<>();
+			Stream.concat(saved.stream(), deleted.stream()).map(CartItem::getUserId).distinct()
+					.forEach(userId -> touches.add(new Object[] { userId }));
+			if (!touches.isEmpty()) {
+				jdbcTemplate.batchUpdate(TOUCH_SQL, touches);
+			}
+			return new ArrayList<>(saved);
+		});
+	}
+
+	/**
+	 * Reads the cart with SELECT ... FOR UPDATE and runs the action in the same
+	 * transaction. The locking read goes through the (user, book) key, so it
+	 * also blocks inserts of new lines into the cart until commit. The items are
+	 * read with JDBC, so the action can change them without Hibernate writing
+	 * them back.
+	 */
+	@Override
+	public <T> T withLockedCart(Long userId, Function<List<CartItem>, T> action) {
+		return transactionTemplate.execute(
+				status -> action.apply(jdbcTemplate.query(LOCK_SQL, CART_ITEM_MAPPER, userId)));
+	}
+
+	private Map<Long, CartItem> itemsByBook(Long userId) {
+		Map<Long, List<CartItem>> lines = jdbcTemplate.query(SELECT_BY_USER_SQL, CART_ITEM_MAPPER, userId).stream()
+				.collect(Collectors.groupingBy(CartItem::getBookId));
+		Map<Long, CartItem> items = new HashMap<>();
+		lines.forEach((bookId, bookLines) -> items.put(bookId, merged(bookLines)));
+		return items;
+	}
+
+	/**
+	 * Folds the lines of one book, ordered by ID, into a detached item with the
+	 * ID of the first line, the price of the last and the total quantity. A
+	 * table that has the unique (user, book) key only ever yields one line;
+	 * without it every upsert inserts another line, and summing them keeps the
+	 * quantity the user sees right until the duplicates are merged.
+	 */
+	private static CartItem merged(List<CartItem> lines) {
+		CartItem first = lines.get(0);
+		CartItem item = new CartItem();
+		item.setId(first.getId());
+		item.setUserId(first.getUserId());
+		item.setBookId(first.getBookId());
+		item.setPrice(lines.get(lines.size() - 1).getPrice());
+		item.setQuantity(lines.stream().mapToInt(CartItem::getQuantity).sum());
+		item.setLastTouched(first.getLastTouched());
+		return item;
+	}
+}
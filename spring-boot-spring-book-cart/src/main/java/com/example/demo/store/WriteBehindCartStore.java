@@ -0,0 +1,619 @@
+package com.example.demo.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.CartItem;
+import com.example.demo.metrics.MetricsSource;
+import com.example.demo.repository.CartRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cart store that keeps active carts in memory, one entry per user, and writes
+ * changes to the database in the background. A cart is loaded from the
+ * database on first use; after that it is read and changed in memory under its
+ * own lock, so users never contend with each other.
+ * <p>
+ * Every change is appended to the {@link CartWriteAheadLog} before it is
+ * applied or acknowledged, and queued by item ID, so repeated changes to an
+ * item collapse into its latest state. Every {@code cart.store.flush-ms} the
+ * queue is written as one batch of upserts and deletes. If the database is
+ * unreachable the batch stays queued and in the log; on startup the log is
+ * replayed into the database before any cart is served. If the database
+ * rejects the batch, its changes are written one by one and those it still
+ * rejects go to the log's dead-letter file, so one bad row cannot hold back
+ * the rest of the queue. Carts idle for
+ * {@code cart.store.idle-seconds} with nothing left to write are dropped from
+ * memory. Each flush also refreshes the last-touched time of the carts it
+ * wrote, and a loaded cart whose stored items the {@link CartExpirySweeper}
+ * removed is written back in full, since a cart in memory is still in use.
+ * <p>
+ * Item IDs are assigned here, continuing from the highest ID in the database,
+ * so the store assumes it is the only writer of the cart table.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.write-behind", havingValue = "true")
+public class WriteBehindCartStore implements CartStore, MetricsSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+	private static final String UPSERT_SQL = "INSERT INTO cart_item (id, user_id, book_id, quantity, price, "
+			+ "last_touched) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP(6)) ON DUPLICATE KEY UPDATE "
+			+ "user_id = VALUES(user_id), book_id = VALUES(book_id), quantity = VALUES(quantity), "
+			+ "price = VALUES(price), last_touched = VALUES(last_touched)";
+
+	private static final String DELETE_SQL = "DELETE FROM cart_item WHERE id = ?";
+
+	private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM cart_item";
+
+	private final CartRepository cartRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final CartWriteAheadLog log;
+	private final long idleMillis;
+	private final Map<Long, Cart> carts = new ConcurrentHashMap<>();
+	private final Map<Long, Long> owners = new ConcurrentHashMap<>();
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicLong unloads = new AtomicLong();
+	private final Object queueLock = new Object();
+	private Map<Long, CartMutation> queue = new HashMap<>();
+	private long sequence;
+	private volatile long flushedSequence;
+	private final LongAdder mutationCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder flushedRows = new LongAdder();
+	private final LongAdder flushFailures = new LongAdder();
+	private final LongAdder restoredCount = new LongAdder();
+	private final LongAdder deadLetterCount = new LongAdder();
+
+	public WriteBehindCartStore(CartRepository cartRepository, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+			@Value("${cart.store.wal-dir:data/cart-wal}") String walDirectory,
+			@Value("${cart.store.wal-sync:true}") boolean walSync,
+			@Value("${cart.store.idle-seconds:600}") long idleSeconds) {
+		this.cartRepository = cartRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.log = new CartWriteAheadLog(Paths.get(walDirectory), objectMapper, walSync);
+		this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+	}
+
+	/**
+	 * Replays the changes the previous run did not write, then continues item
+	 * IDs after the highest one in use.
+	 *
+	 * @throws IOException           if the log cannot be read or written
+	 * @throws IllegalStateException if the replayed changes cannot be written
+	 */
+	@PostConstruct
+	public void recover() throws IOException {
+		List<CartMutation> replayed = log.open();
+		long maxId = 0;
+		synchronized (queueLock) {
+			for (CartMutation mutation : replayed) {
+				queue.put(mutation.itemId(), mutation);
+				sequence = Math.max(sequence, mutation.sequence());
+				maxId = Math.max(maxId, mutation.itemId());
+			}
+		}
+		if (!replayed.isEmpty()) {
+			logger.info("Replaying {} cart changes from the write-ahead log", replayed.size());
+			if (!flush()) {
+				throw new IllegalStateException("Could not write the cart changes of the previous run");
+			}
+		}
+		Long maxStoredId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+		ids.set(Math.max(maxId, maxStoredId == null ? 0 : maxStoredId));
+	}
+
+	@Override
+	public List<CartItem> findByUserId(Long userId) {
+		return withCart(userId, cart -> {
+			List<CartItem> items = new ArrayList<>(cart.items.size());
+			cart.items.values().forEach(item -> items.add(copyOf(item)));
+			return items;
+		});
+	}
+
+	@Override
+	public CartItem save(CartItem cartItem) {
+		CartItem saved = copyOf(cartItem);
+		if (saved.getId() == null) {
+			saved.setId(ids.incrementAndGet());
+		} else {
+			Long owner = ownerOf(saved.getId());
+			if (owner != null && !owner.equals(saved.getUserId())) {
+				delete(owner, saved.getId());
+			}
+		}
+		withCart(saved.getUserId(), cart -> {
+			record(cart, List.of(CartMutation.saved(0, saved)));
+			cart.items.put(saved.getId(), saved);
+			owners.put(saved.getId(), saved.getUserId());
+			return null;
+		});
+		return copyOf(saved);
+	}
+
+	/**
+	 * Adds the quantity to the user's item for the book, or creates the item,
+	 * under the cart's lock.
+	 */
+	@Override
+	public CartItem add(CartItem cartItem) {
+		return withCart(cartItem.getUserId(), cart -> {
+			CartItem line = copyOf(cartItem);
+			CartItem existing = findByBook(cart, line.getBookId());
+			if (existing != null) {
+				line.setId(existing.getId());
+				line.setQuantity(existing.getQuantity() + line.getQuantity());
+			} else {
+				line.setId(ids.incrementAndGet());
+			}
+			record(cart, List.of(CartMutation.saved(0, line)));
+			cart.items.put(line.getId(), line);
+			owners.put(line.getId(), line.getUserId());
+			return copyOf(line);
+		});
+	}
+
+	@Override
+	public CartItem deleteById(Long id) {
+		Long owner = ownerOf(id);
+		return owner == null ? null : delete(owner, id);
+	}
+
+	/**
+	 * Removes every item of the cart with a single log append; the flush
+	 * deletes them in the same batch as other queued changes.
+	 */
+	@Override
+	public void deleteByUserId(Long userId) {
+		withCart(userId, cart -> {
+			List<CartMutation> mutations = new ArrayList<>();
+			cart.items.keySet().forEach(itemId -> mutations.add(CartMutation.deleted(0, itemId, userId)));
+			if (!mutations.isEmpty()) {
+				record(cart, mutations);
+				cart.items.keySet().forEach(owners::remove);
+				cart.items.clear();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Applies the changes of each user under the cart's lock with a single log
+	 * append, so they become durable and visible together. A new item for a
+	 * book added to the cart meanwhile is merged into that item.
+	 */
+	@Override
+	public List<CartItem> applyChanges(List<CartItem> saved, List<CartItem> deleted) {
+		Map<Long, List<CartItem>> savedByUser = new LinkedHashMap<>();
+		Map<Long, List<CartItem>> deletedByUser = new LinkedHashMap<>();
+		List<CartItem> result = new ArrayList<>(saved.size());
+		for (CartItem cartItem : saved) {
+			CartItem copy = copyOf(cartItem);
+			savedByUser.computeIfAbsent(copy.getUserId(), userId -> new ArrayList<>()).add(copy);
+			result.add(copy);
+		}
+		for (CartItem cartItem : deleted) {
+			deletedByUser.computeIfAbsent(cartItem.getUserId(), userId -> new ArrayList<>()).add(cartItem);
+			savedByUser.computeIfAbsent(cartItem.getUserId(), userId -> new ArrayList<>());
+		}
+		savedByUser.forEach((userId, userSaved) -> withCart(userId, cart -> {
+			List<CartMutation> mutations = new ArrayList<>();
+			List<Long> removedIds = new ArrayList<>();
+			for (CartItem cartItem : deletedByUser.getOrDefault(userId, List.of())) {
+				if (cart.items.containsKey(cartItem.getId())) {
+					mutations.add(CartMutation.deleted(0, cartItem.getId(), userId));
+					removedIds.add(cartItem.getId());
+				}
+			}
+			for (CartItem cartItem : userSaved) {
+				if (cartItem.getId() == null) {
+					CartItem existing = findByBook(cart, cartItem.getBookId());
+					if (existing != null && !removedIds.contains(existing.getId())) {
+						cartItem.setId(existing.getId());
+						cartItem.setQuantity(existing.getQuantity() + cartItem.getQuantity());
+					} else {
+						cartItem.setId(ids.incrementAndGet());
+					}
+				}
+				mutations.add(CartMutation.saved(0, cartItem));
+			}
+			if (!mutations.isEmpty()) {
+				record(cart, mutations);
+				removedIds.forEach(itemId -> {
+					cart.items.remove(itemId);
+					owners.remove(itemId);
+				});
+				userSaved.forEach(cartItem -> {
+					cart.items.put(cartItem.getId(), copyOf(cartItem));
+					owners.put(cartItem.getId(), userId);
+				});
+			}
+			return null;
+		}));
+		return result;
+	}
+
+	/**
+	 * Runs the action under the cart's lock. applyChanges called from the
+	 * action takes the same lock again, so it is applied before any other
+	 * change to the cart.
+	 */
+	@Override
+	public <T> T withLockedCart(Long userId, Function<List<CartItem>, T> action) {
+		return withCart(userId, cart -> {
+			List<CartItem> items = new ArrayList<>(cart.items.size());
+			cart.items.values().forEach(item -> items.add(copyOf(item)));
+			return action.apply(items);
+		});
+	}
+
+	/**
+	 * Queues every item of the loaded carts among these users again, so the
+	 * next flush restores the rows the sweeper removed. Carts not in memory are
+	 * left expired. A cart being loaded meanwhile may hold the removed rows and
+	 * is dropped instead of installed.
+	 */
+	@Override
+	public void afterExpiry(Collection<Long> userIds) {
+		unloads.incrementAndGet();
+		for (Long userId : userIds) {
+			Cart cart = carts.get(userId);
+			if (cart == null) {
+				continue;
+			}
+			synchronized (cart) {
+				if (!cart.evicted && !cart.items.isEmpty()) {
+					List<CartMutation> mutations = new ArrayList<>();
+					cart.items.values().forEach(cartItem -> mutations.add(CartMutation.saved(0, cartItem)));
+					record(cart, mutations);
+					restoredCount.add(mutations.size());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued changes to the database in one batch. A batch the
+	 * database rejects is written again one change at a time, and each change
+	 * it still rejects is dead-lettered. Changes that fail because the database
+	 * could not be reached are queued again unless a newer change to the same
+	 * item was queued meanwhile.
+	 *
+	 * @return true if the queue was written, dead-lettered or empty
+	 */
+	@Scheduled(fixedDelayString = "${cart.store.flush-ms:500}")
+	public synchronized boolean flush() {
+		Map<Long, CartMutation> batch = null;
+		long batchSequence = 0;
+		long firstKeptSegment = 0;
+		boolean empty;
+		synchronized (queueLock) {
+			empty = queue.isEmpty();
+			if (empty) {
+				flushedSequence = sequence;
+			} else {
+				batch = queue;
+				queue = new HashMap<>();
+				batchSequence = sequence;
+				firstKeptSegment = log.roll();
+			}
+		}
+		// Carts are locked before the queue elsewhere, so eviction runs outside the queue lock
+		if (empty) {
+			evictIdleCarts();
+			return true;
+		}
+		List<Object[]> upserts = new ArrayList<>();
+		List<Object[]> deletes = new ArrayList<>();
+		Map<Long, Object[]> touches = new LinkedHashMap<>();
+		for (CartMutation mutation : batch.values()) {
+			touches.putIfAbsent(mutation.userId(), new Object[] { mutation.userId() });
+			if (mutation.deleted()) {
+				deletes.add(new Object[] { mutation.itemId() });
+			} else {
+				upserts.add(new Object[] { mutation.itemId(), mutation.userId(), mutation.bookId(),
+						mutation.quantity(), mutation.price() });
+			}
+		}
+		try {
+			// Deletes go first: a removed item and its replacement share the (user, book) key
+			if (!deletes.isEmpty()) {
+				jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+			}
+			if (!upserts.isEmpty()) {
+				jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+			}
+			jdbcTemplate.batchUpdate(JpaCartStore.TOUCH_SQL, new ArrayList<>(touches.values()));
+		} catch (DataAccessException ex) {
+			flushFailures.increment();
+			if (!isRejection(ex)) {
+				requeue(batch.values());
+				logger.warn("Could not write {} cart changes, retrying on the next flush: {}", batch.size(),
+						ex.getMessage());
+				return false;
+			}
+			logger.warn("Database rejected a batch of {} cart changes, writing them one by one: {}", batch.size(),
+					ex.getMessage());
+			if (!writeOneByOne(batch.values(), touches.values())) {
+				return false;
+			}
+		}
+		log.deleteBefore(firstKeptSegment);
+		flushedRows.add(batch.size());
+		flushedSequence = batchSequence;
+		evictIdleCarts();
+		return true;
+	}
+
+	/**
+	 * Writes the changes of a rejected batch one at a time, deletes first. A
+	 * change the database rejects on its own is dead-lettered; once the
+	 * database cannot be reached, the remaining changes are queued again.
+	 *
+	 * @return true if no change was queued again
+	 */
+	private boolean writeOneByOne(Collection<CartMutation> mutations, Collection<Object[]> touches) {
+		List<CartMutation> ordered = new ArrayList<>(mutations.size());
+		mutations.stream().filter(CartMutation::deleted).forEach(ordered::add);
+		mutations.stream().filter(mutation -> !mutation.deleted()).forEach(ordered::add);
+		for (int i = 0; i < ordered.size(); i++) {
+			CartMutation mutation = ordered.get(i);
+			try {
+				if (mutation.deleted()) {
+					jdbcTemplate.update(DELETE_SQL, mutation.itemId());
+				} else {
+					jdbcTemplate.update(UPSERT_SQL, mutation.itemId(), mutation.userId(), mutation.bookId(),
+							mutation.quantity(), mutation.price());
+				}
+			} catch (DataAccessException ex) {
+				if (!isRejection(ex) || !deadLetter(mutation, ex)) {
+					requeue(ordered.subList(i, ordered.size()));
+					logger.warn("Could not write {} cart changes, retrying on the next flush: {}",
+							ordered.size() - i, ex.getMessage());
+					return false;
+				}
+			}
+		}
+		try {
+			jdbcTemplate.batchUpdate(JpaCartStore.TOUCH_SQL, new ArrayList<>(touches));
+		} catch (DataAccessException ex) {
+			// The rows are written; their carts age from the previous touch
+			logger.warn("Could not refresh the last-touched time of {} carts: {}", touches.size(), ex.getMessage());
+		}
+		return true;
+	}
+
+	/**
+	 * Moves a change the database rejected to the dead-letter file.
+	 *
+	 * @return false if the dead-letter file could not be written
+	 */
+	private boolean deadLetter(CartMutation mutation, DataAccessException ex) {
+		String error = ex.getMostSpecificCause().getMessage();
+		try {
+			log.deadLetter(mutation, error);
+		} catch (UncheckedIOException deadLetterFailure) {
+			logger.error("Could not dead-letter cart change {}: {}", mutation, deadLetterFailure.getMessage());
+			return false;
+		}
+		deadLetterCount.increment();
+		logger.error("Database rejected cart change {}, moved it to the dead-letter log: {}", mutation, error);
+		return true;
+	}
+
+	private void requeue(Collection<CartMutation> mutations) {
+		synchronized (queueLock) {
+			mutations.forEach(mutation -> queue.putIfAbsent(mutation.itemId(), mutation));
+		}
+	}
+
+	/**
+	 * Returns whether the database refused the statement itself, as opposed to
+	 * being unreachable or timing out, so writing it again cannot succeed.
+	 */
+	private static boolean isRejection(DataAccessException ex) {
+		return ex instanceof NonTransientDataAccessException && !(ex instanceof NonTransientDataAccessResourceException);
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		flush();
+		log.close();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "cartStore";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		synchronized (queueLock) {
+			metrics.put("queued", queue.size());
+		}
+		metrics.put("carts", carts.size());
+		metrics.put("mutations", mutationCount.sum());
+		metrics.put("coalesced", coalescedCount.sum());
+		metrics.put("flushedRows", flushedRows.sum());
+		metrics.put("flushFailures", flushFailures.sum());
+		metrics.put("deadLettered", deadLetterCount.sum());
+		metrics.put("restoredAfterExpiry", restoredCount.sum());
+		metrics.put("walSegment", log.currentSegment());
+		return metrics;
+	}
+
+	/**
+	 * Runs an action on a user's cart under its lock, loading the cart first if
+	 * needed. A cart evicted while the action waited for the lock is loaded
+	 * again.
+	 */
+	private <T> T withCart(Long userId, Function<Cart, T> action) {
+		while (true) {
+			Cart cart = carts.get(userId);
+			if (cart == null && (cart = install(userId)) == null) {
+				continue;
+			}
+			synchronized (cart) {
+				if (!cart.evicted) {
+					cart.lastAccess = System.currentTimeMillis();
+					return action.apply(cart);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads a user's cart outside the cart map, so the query holds no map lock,
+	 * and installs it unless another thread installed one first. A cart evicted
+	 * or expired while this one was loading may have left stale rows behind, so
+	 * the loaded cart is then dropped and null is returned for the caller to try
+	 * again. The check runs under the new cart's lock, so no other thread uses
+	 * the cart before it passes.
+	 */
+	private Cart install(Long userId) {
+		long unloadsBefore = unloads.get();
+		Cart loaded = load(userId);
+		synchronized (loaded) {
+			Cart cart = carts.putIfAbsent(userId, loaded);
+			if (cart != null) {
+				return cart;
+			}
+			if (unloads.get() != unloadsBefore) {
+				loaded.evicted = true;
+				carts.remove(userId, loaded);
+				return null;
+			}
+			loaded.items.keySet().forEach(itemId -> owners.put(itemId, userId));
+			return loaded;
+		}
+	}
+
+	private Cart load(Long userId) {
+		Cart cart = new Cart();
+		for (CartItem cartItem : cartRepository.findByUserId(userId)) {
+			cart.items.put(cartItem.getId(), cartItem);
+		}
+		return cart;
+	}
+
+	/**
+	 * Returns the user owning an item, from memory if the cart is loaded.
+	 */
+	private Long ownerOf(Long itemId) {
+		Long owner = owners.get(itemId);
+		return owner != null ? owner : cartRepository.findById(itemId).map(CartItem::getUserId).orElse(null);
+	}
+
+	private static CartItem findByBook(Cart cart, Long bookId) {
+		for (CartItem cartItem : cart.items.values()) {
+			if (cartItem.getBookId().equals(bookId)) {
+				return cartItem;
+			}
+		}
+		return null;
+	}
+
+	private CartItem delete(Long userId, Long itemId) {
+		return withCart(userId, cart -> {
+			CartItem cartItem = cart.items.get(itemId);
+			if (cartItem == null) {
+				return null;
+			}
+			record(cart, List.of(CartMutation.deleted(0, itemId, userId)));
+			cart.items.remove(itemId);
+			owners.remove(itemId);
+			return copyOf(cartItem);
+		});
+	}
+
+	/**
+	 * Logs and queues changes to a cart. Called under the cart's lock, before
+	 * the cart itself is changed, so a change that cannot be logged is not
+	 * applied. Logging and queueing happen under one lock so a flush never
+	 * deletes a log segment holding a change it did not take.
+	 */
+	private void record(Cart cart, List<CartMutation> mutations) {
+		synchronized (queueLock) {
+			List<CartMutation> sequenced = new ArrayList<>(mutations.size());
+			for (CartMutation mutation : mutations) {
+				sequenced.add(new CartMutation(++sequence, mutation.itemId(), mutation.userId(), mutation.bookId(),
+						mutation.quantity(), mutation.price(), mutation.deleted()));
+			}
+			log.append(sequenced);
+			for (CartMutation mutation : sequenced) {
+				if (queue.put(mutation.itemId(), mutation) != null) {
+					coalescedCount.increment();
+				}
+			}
+			cart.lastSequence = sequence;
+		}
+		mutationCount.add(mutations.size());
+	}
+
+	/**
+	 * Drops carts that were idle long enough and have no unwritten changes.
+	 */
+	private void evictIdleCarts() {
+		long idleSince = System.currentTimeMillis() - idleMillis;
+		carts.forEach((userId, cart) -> {
+			synchronized (cart) {
+				if (cart.lastAccess < idleSince && cart.lastSequence <= flushedSequence) {
+					cart.evicted = true;
+					unloads.incrementAndGet();
+					carts.remove(userId, cart);
+					cart.items.keySet().forEach(owners::remove);
+				}
+			}
+		});
+	}
+
+	private static CartItem copyOf(CartItem cartItem) {
+		CartItem copy = new CartItem();
+		copy.setId(cartItem.getId());
+		copy.setUserId(cartItem.getUserId());
+		copy.setBookId(cartItem.getBookId());
+		copy.setQuantity(cartItem.getQuantity());
+		copy.setPrice(cartItem.getPrice());
+		copy.setBookName(cartItem.getBookName());
+		return copy;
+	}
+
+	/**
+	 * The items of one user's cart, guarded by the cart's own lock.
+	 */
+	private static final class Cart {
+
+		private final Map<Long, CartItem> items = new LinkedHashMap<>();
+		private long lastAccess;
+		private long lastSequence;
+		private boolean evicted;
+	}
+}
@@ -0,0 +1,19 @@
+-- One cart line per book. The schema is managed outside the
+-- application, so run this by hand before deploying the upserting cart store.
+
+-- Fold duplicate lines of a book into the one with the lowest ID, keeping the
+-- total quantity and the price of the newest line
+UPDATE cart_item keep_line
+JOIN (SELECT user_id, book_id, MIN(id) AS keep_id, MAX(id) AS newest_id, SUM(quantity) AS total
+		FROM cart_item
+		GROUP BY user_id, book_id
+		HAVING COUNT(*) > 1) dup ON keep_line.id = dup.keep_id
+JOIN cart_item newest ON newest.id = dup.newest_id
+SET keep_line.quantity = dup.total, keep_line.price = newest.price;
+
+DELETE extra
+FROM cart_item extra
+JOIN cart_item keep_line ON keep_line.user_id = extra.user_id AND keep_line.book_id = extra.book_id
+		AND keep_line.id < extra.id;
+
+ALTER TABLE cart_item ADD CONSTRAINT uk_cart_item_user_book UNIQUE (user_id, book_id);
@@ -0,0 +1,6 @@
+-- Last-touched time of cart lines, read by the idle cart sweeper.
+-- The schema is managed outside the application, so run this by hand.
+
+ALTER TABLE cart_item
+		ADD COLUMN last_touched DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+		ADD INDEX idx_cart_item_last_touched (last_touched);
@@ -0,0 +1,73 @@
+package com.example.demo.BookChangeSubscriberTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.cache.BookCache;
+import com.example.demo.client.BookChangeSubscriber;
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BookChangeSubscriberTest {
+
+    private BookCache bookCache;
+    private BookChangeSubscriber subscriber;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setUp() {
+        bookCache = new BookCache(100, 60);
+        subscriber = new BookChangeSubscriber(bookCache, new ObjectMapper(), false, 5000, 60000);
+        loads = new AtomicInteger();
+        load(1L);
+        load(2L);
+    }
+
+    @Test
+    public void testSavedEventEvictsOnlyThatBook() {
+        subscriber.handle(event(1, BookChangeEventDTO.Type.SAVED, 1L));
+
+        load(1L);
+        load(2L);
+
+        assertEquals(3, loads.get());
+        assertEquals(1L, subscriber.getMetrics().get("lastOffset"));
+    }
+
+    @Test
+    public void testResetEventEvictsEverything() {
+        subscriber.handle(event(7, BookChangeEventDTO.Type.RESET, null));
+
+        load(1L);
+        load(2L);
+
+        assertEquals(4, loads.get());
+        Map<String, Object> metrics = subscriber.getMetrics();
+        assertEquals(1L, metrics.get("resets"));
+        assertEquals(7L, metrics.get("lastOffset"));
+    }
+
+    private void load(Long bookId) {
+        bookCache.getOrLoad(bookId, id -> {
+            loads.incrementAndGet();
+            BookDTO book = new BookDTO();
+            book.setId(id);
+            book.setTitle("Book " + id);
+            return book;
+        });
+    }
+
+    private static BookChangeEventDTO event(long offset, BookChangeEventDTO.Type type, Long bookId) {
+        BookChangeEventDTO event = new BookChangeEventDTO();
+        event.setOffset(offset);
+        event.setType(type);
+        event.setBookId(bookId);
+        return event;
+    }
+}
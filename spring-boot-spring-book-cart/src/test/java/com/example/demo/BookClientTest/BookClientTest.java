@@ -0,0 +1,158 @@
+package com.example.demo.BookClientTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.client.BookClient;
+import com.example.demo.client.Bulkhead;
+import com.example.demo.client.CircuitBreaker;
+import com.example.demo.dto.BookDTO;
+import com.example.demo.exception.BookLookupException;
+import com.example.demo.exception.BookServiceUnavailableException;
+import com.example.demo.exception.ResourceNotFoundException;
+
+public class BookClientTest {
+
+    private static final String BOOK_SERVICE_URL = "http://localhost:8085/api/books/";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private BookClient bookClient;
+
+    private BookDTO book1;
+    private BookDTO book2;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookClient = new BookClient(restTemplate, new CircuitBreaker(50, 2, 2, 60000, 1), new Bulkhead(4, 0), 4,
+                1000, 2);
+
+        book1 = new BookDTO();
+        book1.setId(1L);
+        book1.setTitle("Book One");
+        book1.setPrice(100.0);
+
+        book2 = new BookDTO();
+        book2.setId(2L);
+        book2.setTitle("Book Two");
+        book2.setPrice(50.0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookClient.shutdown();
+    }
+
+    @Test
+    public void testFetchBooksLooksUpEachDistinctIdOnce() {
+        stubBatch("1,2", Map.of(1L, book1, 2L, book2));
+
+        Map<Long, BookDTO> result = bookClient.fetchBooks(Arrays.asList(1L, 2L, 1L, 1L));
+
+        assertEquals(2, result.size());
+        assertEquals("Book One", result.get(1L).getTitle());
+        assertEquals("Book Two", result.get(2L).getTitle());
+        verify(restTemplate, times(1)).exchange(eq(BOOK_SERVICE_URL + "batch?ids=1,2"), eq(HttpMethod.GET),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class));
+    }
+
+    @Test
+    public void testFetchBooksReportsFailedChunk() {
+        stubBatch("1,2", Map.of(1L, book1, 2L, book2));
+        when(restTemplate.exchange(eq(BOOK_SERVICE_URL + "batch?ids=3"), eq(HttpMethod.GET), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class))).thenThrow(new ResourceAccessException("Connection refused"));
+
+        BookLookupException ex = assertThrows(BookLookupException.class, () -> {
+            bookClient.fetchBooks(Arrays.asList(1L, 2L, 3L));
+        });
+
+        assertEquals(Set.of(3L), ex.getFailedBookIds());
+    }
+
+    @Test
+    public void testFetchBooksMissingBook() {
+        stubBatch("1,2", Map.of(1L, book1));
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            bookClient.fetchBooks(Arrays.asList(1L, 2L));
+        });
+    }
+
+    @Test
+    public void testFailedChunkWinsOverMissingBook() {
+        stubBatch("1,2", Map.of(1L, book1));
+        when(restTemplate.exchange(eq(BOOK_SERVICE_URL + "batch?ids=3"), eq(HttpMethod.GET), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class))).thenThrow(new ResourceAccessException("Read timed out"));
+
+        BookLookupException ex = assertThrows(BookLookupException.class, () -> {
+            bookClient.fetchBooks(Arrays.asList(1L, 2L, 3L));
+        });
+
+        assertEquals(Set.of(3L), ex.getFailedBookIds());
+    }
+
+    @Test
+    public void testFetchBookNotFound() {
+        stubBook(1L, null);
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            bookClient.fetchBook(1L);
+        });
+    }
+
+    @Test
+    public void testOpenBreakerRejectsWithoutCalling() {
+        when(restTemplate.exchange(eq(BOOK_SERVICE_URL + 1L), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(BookDTO.class))).thenThrow(new ResourceAccessException("Read timed out"));
+
+        assertThrows(BookLookupException.class, () -> bookClient.fetchBook(1L));
+        assertThrows(BookLookupException.class, () -> bookClient.fetchBook(1L));
+        assertThrows(BookServiceUnavailableException.class, () -> bookClient.fetchBook(1L));
+
+        verify(restTemplate, times(2)).exchange(eq(BOOK_SERVICE_URL + 1L), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(BookDTO.class));
+    }
+
+    @Test
+    public void testMissingBookDoesNotOpenBreaker() {
+        stubBook(1L, null);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ResourceNotFoundException.class, () -> bookClient.fetchBook(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBatch(String ids, Map<Long, BookDTO> books) {
+        when(restTemplate.exchange(eq(BOOK_SERVICE_URL + "batch?ids=" + ids), eq(HttpMethod.GET),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class))).thenReturn(ResponseEntity.ok(books));
+    }
+
+    private void stubBook(Long bookId, BookDTO book) {
+        when(restTemplate.exchange(eq(BOOK_SERVICE_URL + bookId), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(BookDTO.class))).thenReturn(ResponseEntity.ok(book));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.BookIdFilterTest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.client.BookIdFilter;
+
+public class BookIdFilterTest {
+
+    private static final String BOOK_IDS_URL = "http://localhost:8085/api/books/ids";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private BookIdFilter bookIdFilter;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookIdFilter = new BookIdFilter(restTemplate);
+    }
+
+    @Test
+    public void testEveryIdMightExistUntilTwoRefreshes() {
+        assertTrue(bookIdFilter.mightExist(2L));
+        assertFalse(bookIdFilter.mightExist(0L));
+        assertFalse(bookIdFilter.mightExist(null));
+
+        stubIds(1, 3);
+        bookIdFilter.refresh();
+        assertTrue(bookIdFilter.mightExist(2L));
+    }
+
+    @Test
+    public void testRejectsMissingIdsBelowSettledMaximum() {
+        stubIds(1, 3);
+        bookIdFilter.refresh();
+        stubIds(1, 2, 3, 5, 9);
+        bookIdFilter.refresh();
+
+        assertTrue(bookIdFilter.mightExist(1L));
+        assertTrue(bookIdFilter.mightExist(2L));
+        assertFalse(bookIdFilter.mightExist(0L));
+        assertTrue(bookIdFilter.mightExist(4L)); // above the previous maximum, may still be committing
+        assertTrue(bookIdFilter.mightExist(100L));
+
+        stubIds(1, 2, 3, 5, 9);
+        bookIdFilter.refresh();
+        assertFalse(bookIdFilter.mightExist(4L));
+        assertFalse(bookIdFilter.mightExist(8L));
+        assertTrue(bookIdFilter.mightExist(9L));
+    }
+
+    @Test
+    public void testKeepsPreviousSetWhenRefreshFails() {
+        stubIds(1, 3);
+        bookIdFilter.refresh();
+        bookIdFilter.refresh();
+        when(restTemplate.exchange(eq(BOOK_IDS_URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        bookIdFilter.refresh();
+
+        assertFalse(bookIdFilter.mightExist(2L));
+        assertTrue(bookIdFilter.mightExist(3L));
+    }
+
+    private void stubIds(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        when(restTemplate.exchange(eq(BOOK_IDS_URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenReturn(ResponseEntity.ok(bits.toByteArray()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.CartExpirySweeperTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.cache.CartSummaryCache;
+import com.example.demo.store.CartExpirySweeper;
+import com.example.demo.store.CartStore;
+
+public class CartExpirySweeperTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private CartSummaryCache cartSummaryCache;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testSweepRunsBatchesUntilFewerThanBatchSizeExpire() {
+        CartExpirySweeper sweeper = new CartExpirySweeper(jdbcTemplate, cartStore, cartSummaryCache, 30, 2, 0, 10);
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(Long.class), any(), eq(2)))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(jdbcTemplate.update(startsWith("DELETE"), any(), any(), any())).thenReturn(3);
+        when(jdbcTemplate.update(startsWith("DELETE"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any()))
+                .thenReturn(1);
+
+        assertEquals(4, sweeper.sweep());
+
+        verify(cartStore).afterExpiry(List.of(1L, 2L));
+        verify(cartStore).afterExpiry(List.of(3L));
+        verify(cartSummaryCache).invalidate(3L);
+        assertEquals(3L, sweeper.getMetrics().get("expiredCarts"));
+        assertEquals(4L, sweeper.getMetrics().get("expiredItems"));
+    }
+
+    @Test
+    public void testSweepStopsAtMaxBatches() {
+        CartExpirySweeper sweeper = new CartExpirySweeper(jdbcTemplate, cartStore, cartSummaryCache, 30, 2, 0, 1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(Long.class), any(), eq(2)))
+                .thenReturn(List.of(1L, 2L));
+        when(jdbcTemplate.update(startsWith("DELETE"), any(), any(), any())).thenReturn(2);
+
+        assertEquals(2, sweeper.sweep());
+
+        verify(jdbcTemplate, times(1)).queryForList(startsWith("SELECT"), eq(Long.class), any(), eq(2));
+    }
+
+    @Test
+    public void testFailedBatchEndsTheRun() {
+        CartExpirySweeper sweeper = new CartExpirySweeper(jdbcTemplate, cartStore, cartSummaryCache, 30, 2, 0, 10);
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(Long.class), any(), eq(2)))
+                .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+
+        assertEquals(0, sweeper.sweep());
+
+        verify(cartStore, never()).afterExpiry(anyList());
+        assertEquals(1L, sweeper.getMetrics().get("failures"));
+    }
+
+    @Test
+    public void testZeroIdleDaysKeepsCarts() {
+        CartExpirySweeper sweeper = new CartExpirySweeper(jdbcTemplate, cartStore, cartSummaryCache, 0, 2, 0, 10);
+
+        assertEquals(0, sweeper.sweep());
+
+        verify(jdbcTemplate, never()).queryForList(startsWith("SELECT"), eq(Long.class), any(), any());
+    }
+}
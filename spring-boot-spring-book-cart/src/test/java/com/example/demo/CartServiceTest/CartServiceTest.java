@@ -1,35 +1,63 @@
 package com.example.demo.CartServiceTest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.web.client.RestTemplate;
+import org.mockito.Spy;
+import org.springframework.web.client.ResourceAccessException;
 
+import com.example.demo.cache.BookCache;
+import com.example.demo.cache.CartSummaryCache;
+import com.example.demo.client.BookClient;
+import com.example.demo.client.BookIdFilter;
 import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.CartOperationDTO;
+import com.example.demo.dto.CartSummaryDTO;
 import com.example.demo.entity.CartItem;
+import com.example.demo.exception.BookLookupException;
+import com.example.demo.exception.BookServiceUnavailableException;
 import com.example.demo.exception.ResourceNotFoundException;
-import com.example.demo.repository.CartRepository;
 import com.example.demo.service.CartServiceImpl;
+import com.example.demo.store.CartStore;
 
 public class CartServiceTest {
 
     @Mock
-    private CartRepository cartRepository;
+    private CartStore cartStore;
 
     @Mock
-    private RestTemplate restTemplate;
+    private BookClient bookClient;
+
+    @Mock
+    private BookIdFilter bookIdFilter;
+
+    @Spy
+    private BookCache bookCache = new BookCache(100, 60);
+
+    @Spy
+    private CartSummaryCache cartSummaryCache = new CartSummaryCache(100, 60);
 
     @InjectMocks
     private CartServiceImpl cartService;
@@ -65,14 +93,16 @@ public class CartServiceTest {
         book2.setId(2L);
         book2.setTitle("Book Two");
         book2.setPrice(50.0);
+
+        when(bookIdFilter.mightExist(1L)).thenReturn(true);
+        when(bookIdFilter.mightExist(2L)).thenReturn(true);
     }
 
     @Test
     public void testGetCartItems() {
         List<CartItem> cartItems = Arrays.asList(cartItem1, cartItem2);
-        when(cartRepository.findByUserId(1L)).thenReturn(cartItems);
-        when(restTemplate.getForObject("http://localhost:8085/api/books/1", BookDTO.class)).thenReturn(book1);
-        when(restTemplate.getForObject("http://localhost:8085/api/books/2", BookDTO.class)).thenReturn(book2);
+        when(cartStore.findByUserId(1L)).thenReturn(cartItems);
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1, 2L, book2));
 
         List<CartItem> result = cartService.getCartItems(1L);
 
@@ -83,11 +113,135 @@ public class CartServiceTest {
         assertEquals(50.0, result.get(1).getPrice());
     }
 
+    @Test
+    public void testGetCartItemsFetchesOnlyUncachedBooks() {
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1));
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1));
+        cartService.getCartItems(1L);
+
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1, cartItem2));
+        when(bookClient.fetchBooks(Set.of(2L))).thenReturn(Map.of(2L, book2));
+        List<CartItem> result = cartService.getCartItems(1L);
+
+        assertEquals("Book One", result.get(0).getBookName());
+        assertEquals("Book Two", result.get(1).getBookName());
+        verify(bookClient, times(1)).fetchBooks(Set.of(2L));
+    }
+
+    @Test
+    public void testGetCartSummaryLoadsNoBooks() {
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1, cartItem2));
+
+        cartService.getCartSummary(1L);
+        CartSummaryDTO summary = cartService.getCartSummary(1L);
+
+        assertEquals(3, summary.getItemCount());
+        assertEquals(2, summary.getDistinctTitles());
+        assertEquals(250.0, summary.getTotalAmount());
+        verify(cartStore, times(1)).findByUserId(1L);
+        verify(bookClient, never()).fetchBooks(anyCollection());
+    }
+
+    @Test
+    public void testGetCartSummaryFollowsAddRemoveAndClear() {
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1));
+        cartService.getCartSummary(1L);
+
+        when(bookClient.fetchBook(2L)).thenReturn(book2);
+        when(cartStore.add(cartItem2)).thenReturn(cartItem2);
+        cartService.addCartItem(cartItem2);
+        assertEquals(3, cartService.getCartSummary(1L).getItemCount());
+        assertEquals(250.0, cartService.getCartSummary(1L).getTotalAmount());
+
+        when(cartStore.deleteById(1L)).thenReturn(cartItem1);
+        cartService.removeCartItem(1L);
+        CartSummaryDTO summary = cartService.getCartSummary(1L);
+        assertEquals(1, summary.getItemCount());
+        assertEquals(1, summary.getDistinctTitles());
+        assertEquals(50.0, summary.getTotalAmount());
+
+        cartService.clearCart(1L);
+        assertEquals(0, cartService.getCartSummary(1L).getItemCount());
+        verify(cartStore, times(1)).findByUserId(1L);
+        // Only reads of the summary count towards the hit rate
+        assertEquals(4L, cartSummaryCache.getMetrics().get("hits"));
+        assertEquals(1L, cartSummaryCache.getMetrics().get("misses"));
+    }
+
+    @Test
+    public void testGetCartItemsFallsBackToStoredPrices() {
+        cartItem1.setPrice(90.0);
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1, cartItem2));
+        when(bookClient.fetchBooks(anyCollection()))
+                .thenThrow(new BookServiceUnavailableException(Set.of(1L, 2L), "circuit breaker open"));
+
+        List<CartItem> result = cartService.getCartItems(1L);
+
+        assertEquals(90.0, result.get(0).getPrice());
+        assertEquals(50.0, result.get(1).getPrice());
+        assertNull(result.get(0).getBookName());
+        assertEquals(1L, cartService.getMetrics().get("storedPriceFallbacks"));
+    }
+
+    @Test
+    public void testAddCartItemFallsBackToStoredPrice() {
+        cartItem1.setPrice(90.0);
+        when(cartStore.findByUserId(1L)).thenReturn(Arrays.asList(cartItem1));
+        when(bookClient.fetchBook(1L))
+                .thenThrow(new BookLookupException(Set.of(1L), new ResourceAccessException("Read timed out")));
+        CartItem added = new CartItem();
+        added.setUserId(1L);
+        added.setBookId(1L);
+        added.setQuantity(1);
+        when(cartStore.add(added)).thenReturn(added);
+
+        CartItem result = cartService.addCartItem(added);
+
+        assertEquals(90.0, result.getPrice());
+    }
+
+    @Test
+    public void testAddCartItemOfNewBookFailsWhenLookupFails() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>());
+        when(bookClient.fetchBook(2L))
+                .thenThrow(new BookLookupException(Set.of(2L), new ResourceAccessException("Read timed out")));
+
+        assertThrows(BookLookupException.class, () -> {
+            cartService.addCartItem(cartItem2);
+        });
+        verify(cartStore, never()).add(cartItem2);
+    }
+
+    @Test
+    public void testAddCartItemUsesCachedBook() {
+        when(bookClient.fetchBook(1L)).thenReturn(book1);
+        when(cartStore.add(cartItem1)).thenReturn(cartItem1);
+
+        cartService.addCartItem(cartItem1);
+        CartItem result = cartService.addCartItem(cartItem1);
+
+        assertEquals("Book One", result.getBookName());
+        verify(bookClient, times(1)).fetchBook(1L);
+    }
+
+    @Test
+    public void testAddCartItemRefetchesInvalidatedBook() {
+        when(bookClient.fetchBook(1L)).thenReturn(book1);
+        when(cartStore.add(cartItem1)).thenReturn(cartItem1);
+
+        cartService.addCartItem(cartItem1);
+        bookCache.invalidate(1L);
+        cartService.addCartItem(cartItem1);
+
+        verify(bookClient, times(2)).fetchBook(1L);
+    }
+
     @Test
     public void testGetCartItemsBookNotFound() {
         List<CartItem> cartItems = Arrays.asList(cartItem1);
-        when(cartRepository.findByUserId(1L)).thenReturn(cartItems);
-        when(restTemplate.getForObject("http://localhost:8085/api/books/1", BookDTO.class)).thenReturn(null);
+        when(cartStore.findByUserId(1L)).thenReturn(cartItems);
+        when(bookClient.fetchBooks(anyCollection()))
+                .thenThrow(new ResourceNotFoundException("Book not found for ID: 1"));
 
         assertThrows(ResourceNotFoundException.class, () -> {
             cartService.getCartItems(1L);
@@ -96,8 +250,8 @@ public class CartServiceTest {
 
     @Test
     public void testAddCartItem() {
-        when(restTemplate.getForObject("http://localhost:8085/api/books/1", BookDTO.class)).thenReturn(book1);
-        when(cartRepository.save(cartItem1)).thenReturn(cartItem1);
+        when(bookClient.fetchBook(1L)).thenReturn(book1);
+        when(cartStore.add(cartItem1)).thenReturn(cartItem1);
 
         CartItem result = cartService.addCartItem(cartItem1);
 
@@ -107,30 +261,160 @@ public class CartServiceTest {
 
     @Test
     public void testAddCartItemBookNotFound() {
-        when(restTemplate.getForObject("http://localhost:8085/api/books/1", BookDTO.class)).thenReturn(null);
+        when(bookClient.fetchBook(1L)).thenThrow(new ResourceNotFoundException("Book not found for ID: 1"));
 
         assertThrows(ResourceNotFoundException.class, () -> {
             cartService.addCartItem(cartItem1);
         });
     }
 
+    @Test
+    public void testAddCartItemRejectedByIdFilter() {
+        when(bookIdFilter.mightExist(1L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            cartService.addCartItem(cartItem1);
+        });
+        verify(bookClient, never()).fetchBook(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApplyBatch() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>(Arrays.asList(cartItem1, cartItem2)));
+        stubLockedCart(copyOf(cartItem1), copyOf(cartItem2));
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1, 2L, book2));
+        when(cartStore.applyChanges(anyList(), anyList())).thenAnswer(invocation -> {
+            List<CartItem> saved = invocation.getArgument(0);
+            saved.stream().filter(cartItem -> cartItem.getId() == null).forEach(cartItem -> cartItem.setId(3L));
+            return saved;
+        });
+
+        List<CartItem> result = cartService.applyBatch(1L, List.of(
+                new CartOperationDTO(CartOperationDTO.Type.UPDATE, 1L, null, 5),
+                new CartOperationDTO(CartOperationDTO.Type.REMOVE, 2L, null, null),
+                new CartOperationDTO(CartOperationDTO.Type.ADD, null, 2L, 1)));
+
+        ArgumentCaptor<List<CartItem>> saved = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<CartItem>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(cartStore, times(1)).applyChanges(saved.capture(), deleted.capture());
+        verify(bookClient, times(1)).fetchBooks(anyCollection());
+        assertEquals(2, saved.getValue().size());
+        assertEquals(5, saved.getValue().get(0).getQuantity());
+        assertEquals(50.0, saved.getValue().get(1).getPrice());
+        assertEquals(1, deleted.getValue().size());
+        assertEquals(2L, deleted.getValue().get(0).getId());
+        assertEquals(2, result.size());
+        assertEquals("Book One", result.get(0).getBookName());
+        assertEquals(3L, result.get(1).getId());
+        assertEquals("Book Two", result.get(1).getBookName());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApplyBatchAddOfBookInCartRaisesQuantity() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>(Arrays.asList(cartItem1)));
+        // Another request raised the quantity from 2 to 4 before the batch locked the cart
+        CartItem locked = copyOf(cartItem1);
+        locked.setQuantity(4);
+        stubLockedCart(locked);
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1));
+        when(cartStore.applyChanges(anyList(), anyList())).thenAnswer(invocation -> {
+            List<CartItem> saved = invocation.getArgument(0);
+            CartItem merged = copyOf(locked);
+            merged.setQuantity(locked.getQuantity() + saved.get(0).getQuantity());
+            return List.of(merged);
+        });
+
+        List<CartItem> result = cartService.applyBatch(1L, List.of(
+                new CartOperationDTO(CartOperationDTO.Type.ADD, null, 1L, 1),
+                new CartOperationDTO(CartOperationDTO.Type.ADD, null, 1L, 2)));
+
+        ArgumentCaptor<List<CartItem>> saved = ArgumentCaptor.forClass(List.class);
+        verify(cartStore).applyChanges(saved.capture(), anyList());
+        assertEquals(1, saved.getValue().size());
+        assertNull(saved.getValue().get(0).getId());
+        assertEquals(3, saved.getValue().get(0).getQuantity());
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(7, result.get(0).getQuantity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApplyBatchUpdateReplacesEarlierAdds() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>(Arrays.asList(cartItem1)));
+        stubLockedCart(copyOf(cartItem1));
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1));
+        when(cartStore.applyChanges(anyList(), anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        cartService.applyBatch(1L, List.of(
+                new CartOperationDTO(CartOperationDTO.Type.ADD, null, 1L, 1),
+                new CartOperationDTO(CartOperationDTO.Type.UPDATE, 1L, null, 6),
+                new CartOperationDTO(CartOperationDTO.Type.ADD, null, 1L, 2)));
+
+        ArgumentCaptor<List<CartItem>> saved = ArgumentCaptor.forClass(List.class);
+        verify(cartStore).applyChanges(saved.capture(), anyList());
+        assertEquals(1, saved.getValue().size());
+        assertEquals(1L, saved.getValue().get(0).getId());
+        assertEquals(8, saved.getValue().get(0).getQuantity());
+    }
+
+    @Test
+    public void testApplyBatchUnknownItemWritesNothing() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>(Arrays.asList(cartItem1)));
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            cartService.applyBatch(1L, List.of(
+                    new CartOperationDTO(CartOperationDTO.Type.ADD, null, 2L, 1),
+                    new CartOperationDTO(CartOperationDTO.Type.UPDATE, 9L, null, 2)));
+        });
+        verify(bookClient, never()).fetchBooks(anyCollection());
+        verify(cartStore, never()).applyChanges(anyList(), anyList());
+    }
+
+    @Test
+    public void testApplyBatchItemRemovedBeforeLockWritesNothing() {
+        when(cartStore.findByUserId(1L)).thenReturn(new ArrayList<>(Arrays.asList(cartItem1)));
+        stubLockedCart();
+        when(bookClient.fetchBooks(anyCollection())).thenReturn(Map.of(1L, book1));
+
+        assertThrows(ResourceNotFoundException.class, () -> {
+            cartService.applyBatch(1L, List.of(new CartOperationDTO(CartOperationDTO.Type.UPDATE, 1L, null, 2)));
+        });
+        verify(cartStore, never()).applyChanges(anyList(), anyList());
+    }
+
     @Test
     public void testRemoveCartItem() {
-        doNothing().when(cartRepository).deleteById(1L);
+        when(cartStore.deleteById(1L)).thenReturn(cartItem1);
 
         cartService.removeCartItem(1L);
 
-        verify(cartRepository, times(1)).deleteById(1L);
+        verify(cartStore, times(1)).deleteById(1L);
     }
 
     @Test
     public void testClearCart() {
-        List<CartItem> cartItems = Arrays.asList(cartItem1, cartItem2);
-        when(cartRepository.findByUserId(1L)).thenReturn(cartItems);
-        doNothing().when(cartRepository).deleteAll(cartItems);
-
         cartService.clearCart(1L);
 
-        verify(cartRepository, times(1)).deleteAll(cartItems);
+        verify(cartStore, times(1)).deleteByUserId(1L);
+        verify(cartStore, never()).findByUserId(1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubLockedCart(CartItem... lockedItems) {
+        when(cartStore.withLockedCart(eq(1L), any())).thenAnswer(invocation -> invocation
+                .getArgument(1, Function.class).apply(new ArrayList<>(Arrays.asList(lockedItems))));
+    }
+
+    private static CartItem copyOf(CartItem cartItem) {
+        CartItem copy = new CartItem();
+        copy.setId(cartItem.getId());
+        copy.setUserId(cartItem.getUserId());
+        copy.setBookId(cartItem.getBookId());
+        copy.setQuantity(cartItem.getQuantity());
+        copy.setPrice(cartItem.getPrice());
+        return copy;
     }
 }
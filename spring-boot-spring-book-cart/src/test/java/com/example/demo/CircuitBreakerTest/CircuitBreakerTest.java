@@ -0,0 +1,98 @@
+package com.example.demo.CircuitBreakerTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.client.CircuitBreaker;
+import com.example.demo.client.CircuitBreaker.Permit;
+import com.example.demo.client.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAtFailureRateAfterMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 4, 4, 60000, 1);
+
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(State.CLOSED, breaker.getState());
+        call(breaker, false);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals(1L, breaker.stats().get("rejected"));
+    }
+
+    @Test
+    public void testOldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(100, 2, 2, 60000, 1);
+
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+        assertEquals(State.CLOSED, breaker.getState());
+        call(breaker, true);
+
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulTrials() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 2, 1, 0, 2);
+        call(breaker, true);
+        assertEquals(State.OPEN, breaker.getState());
+
+        Permit first = breaker.tryAcquire();
+        Permit second = breaker.tryAcquire();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        first.onSuccess();
+        second.onSuccess();
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenReopensOnFailedTrial() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 2, 1, 0, 2);
+        call(breaker, true);
+
+        breaker.tryAcquire().onFailure();
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.stats().get("opened"));
+    }
+
+    @Test
+    public void testLateOutcomesOfCallsFromBeforeTheBreakerOpenedAreIgnored() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 2, 1, 0, 1);
+        Permit lateSuccess = breaker.tryAcquire();
+        Permit lateFailure = breaker.tryAcquire();
+        call(breaker, true);
+
+        Permit trial = breaker.tryAcquire();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        lateSuccess.onSuccess();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        lateFailure.onFailure();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+
+        trial.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(1L, breaker.stats().get("opened"));
+    }
+
+    private static void call(CircuitBreaker breaker, boolean fail) {
+        Permit permit = breaker.tryAcquire();
+        assertNotNull(permit);
+        if (fail) {
+            permit.onFailure();
+        } else {
+            permit.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.JpaCartStoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entity.CartItem;
+import com.example.demo.repository.CartRepository;
+import com.example.demo.store.JpaCartStore;
+
+@DataJpaTest(properties = { "spring.datasource.url=jdbc:h2:mem:cart;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JpaCartStore.class)
+public class JpaCartStoreTest {
+
+    @Autowired
+    private JpaCartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Test
+    public void testAddToExistingLineReturnsNewQuantityAfterCartWasLoaded() {
+        cartRepository.saveAndFlush(item(2, 10.0));
+        // Loads the line into the persistence context, as the request does before the add
+        assertEquals(2, cartStore.findByUserId(1L).get(0).getQuantity());
+
+        CartItem added = cartStore.add(item(3, 12.0));
+
+        assertEquals(5, added.getQuantity());
+        assertEquals(12.0, added.getPrice());
+        assertEquals(1, cartRepository.count());
+    }
+
+    @Test
+    public void testApplyChangesReturnsUpsertedQuantityAfterCartWasLoaded() {
+        CartItem existing = cartRepository.saveAndFlush(item(2, 10.0));
+        cartStore.findByUserId(1L);
+
+        List<CartItem> saved = cartStore.applyChanges(List.of(item(4, 10.0)), List.of());
+
+        assertEquals(existing.getId(), saved.get(0).getId());
+        assertEquals(6, saved.get(0).getQuantity());
+    }
+
+    private static CartItem item(int quantity, double price) {
+        CartItem cartItem = new CartItem();
+        cartItem.setUserId(1L);
+        cartItem.setBookId(100L);
+        cartItem.setQuantity(quantity);
+        cartItem.setPrice(price);
+        return cartItem;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.WriteBehindCartStoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entity.CartItem;
+import com.example.demo.repository.CartRepository;
+import com.example.demo.store.WriteBehindCartStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WriteBehindCartStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cartRepository.findByUserId(1L)).thenReturn(new ArrayList<>());
+        when(jdbcTemplate.queryForObject(startsWith("SELECT"), eq(Long.class))).thenReturn(10L);
+    }
+
+    @Test
+    public void testCartIsServedFromMemory() throws IOException {
+        WriteBehindCartStore store = open();
+
+        CartItem saved = store.save(item(1L, 100L));
+        List<CartItem> items = store.findByUserId(1L);
+
+        assertEquals(11L, saved.getId());
+        assertEquals(1, items.size());
+        assertEquals(100L, items.get(0).getBookId());
+        verify(cartRepository, times(1)).findByUserId(1L);
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT"), anyList());
+    }
+
+    @Test
+    public void testAddOfBookInCartRaisesQuantity() throws IOException {
+        WriteBehindCartStore store = open();
+
+        CartItem first = store.add(item(1L, 100L));
+        CartItem second = store.add(item(1L, 100L));
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, second.getQuantity());
+        assertEquals(1, store.findByUserId(1L).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushWritesCoalescedChanges() throws IOException {
+        WriteBehindCartStore store = open();
+        CartItem first = store.save(item(1L, 100L));
+        CartItem second = store.save(item(1L, 101L));
+        second.setQuantity(3);
+        store.save(second);
+        store.deleteById(first.getId());
+
+        assertTrue(store.flush());
+
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), upserts.capture());
+        assertEquals(1, upserts.getValue().size());
+        assertArrayEquals(new Object[] { 12L, 1L, 101L, 3, 10.0 }, upserts.getValue().get(0));
+        ArgumentCaptor<List<Object[]>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), deletes.capture());
+        assertArrayEquals(new Object[] { 11L }, deletes.getValue().get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnwrittenChangesAreReplayedAfterACrash() throws IOException {
+        WriteBehindCartStore store = open();
+        store.save(item(1L, 100L));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+        assertFalse(store.flush());
+
+        MockitoAnnotations.openMocks(this);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT"), eq(Long.class))).thenReturn(10L);
+        WriteBehindCartStore restarted = open();
+
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), upserts.capture());
+        assertArrayEquals(new Object[] { 11L, 1L, 100L, 1, 10.0 }, upserts.getValue().get(0));
+        when(cartRepository.findByUserId(2L)).thenReturn(new ArrayList<>());
+        assertEquals(12L, restarted.save(item(2L, 100L)).getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testClearCartDeletesEveryItemInOneFlush() throws IOException {
+        WriteBehindCartStore store = open();
+        store.add(item(1L, 100L));
+        store.add(item(1L, 101L));
+        assertTrue(store.flush());
+
+        store.deleteByUserId(1L);
+        assertTrue(store.flush());
+
+        assertTrue(store.findByUserId(1L).isEmpty());
+        ArgumentCaptor<List<Object[]>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), deletes.capture());
+        assertEquals(2, deletes.getValue().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoadedCartIsWrittenBackAfterExpiry() throws IOException {
+        WriteBehindCartStore store = open();
+        store.add(item(1L, 100L));
+        assertTrue(store.flush());
+
+        store.afterExpiry(List.of(1L, 2L));
+        assertTrue(store.flush());
+
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), upserts.capture());
+        assertArrayEquals(new Object[] { 11L, 1L, 100L, 1, 10.0 }, upserts.getValue().get(0));
+        verify(cartRepository, never()).findByUserId(2L);
+    }
+
+    @Test
+    public void testRejectedChangeIsDeadLetteredAndTheRestIsWritten() throws IOException {
+        WriteBehindCartStore store = open();
+        store.save(item(1L, 100L));
+        store.save(item(1L, 101L));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new DataIntegrityViolationException("Data too long"));
+        when(jdbcTemplate.update(startsWith("INSERT"), eq(11L), eq(1L), eq(100L), eq(1), eq(10.0)))
+                .thenThrow(new DataIntegrityViolationException("Data too long"));
+
+        assertTrue(store.flush());
+
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq(12L), eq(1L), eq(101L), eq(1), eq(10.0));
+        assertEquals(1L, store.getMetrics().get("deadLettered"));
+        assertEquals(0, store.getMetrics().get("queued"));
+        List<String> deadLetters = Files.readAllLines(directory.resolve("cart-dead-letter.log"));
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains("\"itemId\":11"));
+    }
+
+    private WriteBehindCartStore open() throws IOException {
+        WriteBehindCartStore store = new WriteBehindCartStore(cartRepository, jdbcTemplate, new ObjectMapper(),
+                directory.toString(), true, 600);
+        store.recover();
+        return store;
+    }
+
+    private static CartItem item(Long userId, Long bookId) {
+        CartItem cartItem = new CartItem();
+        cartItem.setUserId(userId);
+        cartItem.setBookId(bookId);
+        cartItem.setQuantity(1);
+        cartItem.setPrice(10.0);
+        return cartItem;
+    }
+}
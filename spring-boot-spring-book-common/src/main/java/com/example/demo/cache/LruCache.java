@@ -0,0 +1,272 @@
+package com.example.demo.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache with least-recently-used eviction and a time to
+ * live. Keys are spread over independently locked segments so concurrent
+ * readers rarely contend. Tracks hit, miss and eviction counts.
+ * <p>
+ * Loads are guarded against invalidations key by key: each segment numbers
+ * its invalidations and remembers the number of the last invalidation of
+ * recently invalidated keys, so a load is only dropped when its own key or
+ * the whole cache was invalidated after it started. Once a segment remembers
+ * more than {@value #TRACKED_INVALIDATIONS} keys it forgets the oldest, and
+ * loads that started before that invalidation are dropped as well.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LruCache<K, V> {
+
+	private static final int SEGMENTS = 16;
+	private static final int TRACKED_INVALIDATIONS = 1024;
+
+	private final Segment<K, V>[] segments;
+	private final long ttlNanos;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxSize    the maximum number of entries kept
+	 * @param ttlSeconds how long an entry stays valid after it was stored
+	 */
+	@SuppressWarnings("unchecked") // The array only ever holds segments of this cache's types
+	public LruCache(int maxSize, long ttlSeconds) {
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<>(segmentSize, evictions);
+		}
+	}
+
+	/**
+	 * Returns the cached value for a key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if absent or expired
+	 */
+	public V get(K key) {
+		V value = segmentFor(key).get(key, System.nanoTime());
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the cached value for a key without counting a hit or miss, for
+	 * callers that update an entry in place rather than read it.
+	 *
+	 * @param key the key
+	 * @return the value, or null if absent or expired
+	 */
+	public V getIfPresent(K key) {
+		return segmentFor(key).get(key, System.nanoTime());
+	}
+
+	/**
+	 * Returns the cached value for a key, loading and caching it on a miss. A
+	 * null result of the loader is returned but not cached. If the key or the
+	 * whole cache is invalidated while the loader runs, the loaded value is
+	 * returned but not cached, so a slow load can never reinstate data that was
+	 * invalidated by a concurrent write. Invalidations of other keys do not
+	 * affect the load.
+	 *
+	 * @param key    the key
+	 * @param loader loads the value on a miss
+	 * @return the cached or loaded value
+	 */
+	public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+		Segment<K, V> segment = segmentFor(key);
+		long stamp = segment.stamp();
+		value = loader.apply(key);
+		if (value != null) {
+			segment.putIfUnchanged(key, value, System.nanoTime() + ttlNanos, stamp);
+		}
+		return value;
+	}
+
+	/**
+	 * Stores a value.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 */
+	public void put(K key, V value) {
+		segmentFor(key).put(key, value, System.nanoTime() + ttlNanos);
+	}
+
+	/**
+	 * Returns a stamp for loading a key. Taken before a load that bypasses
+	 * {@link #getOrLoad}, it lets {@link #putIfUnchanged} drop the result if the
+	 * key was invalidated meanwhile.
+	 *
+	 * @param key the key about to be loaded
+	 * @return the current invalidation stamp of the key
+	 */
+	public long invalidationStamp(K key) {
+		return segmentFor(key).stamp();
+	}
+
+	/**
+	 * Stores a value unless the key or the whole cache was invalidated since
+	 * the stamp was taken.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 * @param stamp the stamp of the key taken before the value was loaded
+	 */
+	public void putIfUnchanged(K key, V value, long stamp) {
+		segmentFor(key).putIfUnchanged(key, value, System.nanoTime() + ttlNanos, stamp);
+	}
+
+	/**
+	 * Removes a key from the cache.
+	 *
+	 * @param key the key
+	 */
+	public void invalidate(K key) {
+		segmentFor(key).invalidate(key);
+	}
+
+	/**
+	 * Removes every entry from the cache.
+	 */
+	public void invalidateAll() {
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Returns the current number of entries, including expired ones not yet
+	 * evicted.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.entries.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the hit, miss and eviction counts and the hit rate.
+	 *
+	 * @return the cache statistics
+	 */
+	public Map<String, Object> stats() {
+		long hitCount = hits.sum();
+		long missCount = misses.sum();
+		long requests = hitCount + missCount;
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("size", size());
+		stats.put("hits", hitCount);
+		stats.put("misses", missCount);
+		stats.put("evictions", evictions.sum());
+		stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+		return stats;
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	private record Entry<V>(V value, long expiresAt) {
+	}
+
+	/**
+	 * One independently locked part of the cache, kept in access order. Each
+	 * invalidation raises the segment's version; the version of the last
+	 * invalidation of each recently invalidated key is kept in invalidation
+	 * order, and loads stamped before {@code floor} are dropped whatever their
+	 * key.
+	 */
+	private static class Segment<K, V> {
+
+		private final LinkedHashMap<K, Entry<V>> entries;
+		private final LinkedHashMap<K, Long> invalidated = new LinkedHashMap<>();
+		private long version;
+		private long floor;
+
+		Segment(int maxSize, LongAdder evictions) {
+			this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+					if (size() > maxSize) {
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized V get(K key, long now) {
+			Entry<V> entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt() - now <= 0) {
+				entries.remove(key);
+				return null;
+			}
+			return entry.value();
+		}
+
+		synchronized void put(K key, V value, long expiresAt) {
+			entries.put(key, new Entry<>(value, expiresAt));
+		}
+
+		synchronized long stamp() {
+			return version;
+		}
+
+		synchronized void putIfUnchanged(K key, V value, long expiresAt, long stamp) {
+			Long invalidatedAt = invalidated.get(key);
+			if (stamp >= floor && (invalidatedAt == null || invalidatedAt <= stamp)) {
+				entries.put(key, new Entry<>(value, expiresAt));
+			}
+		}
+
+		synchronized void invalidate(K key) {
+			entries.remove(key);
+			version++;
+			invalidated.remove(key);
+			invalidated.put(key, version);
+			if (invalidated.size() > TRACKED_INVALIDATIONS) {
+				Iterator<Long> oldest = invalidated.values().iterator();
+				floor = oldest.next();
+				oldest.remove();
+			}
+		}
+
+		synchronized void clear() {
+			entries.clear();
+			invalidated.clear();
+			version++;
+			floor = version;
+		}
+	}
+}
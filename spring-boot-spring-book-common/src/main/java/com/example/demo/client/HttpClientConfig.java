@@ -0,0 +1,80 @@
+package com.example.demo.client;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client for calls to other services. Connections are pooled and kept
+ * alive, with a limit per route and in total, and every call is bounded by a
+ * connect timeout, a read timeout and a limit on how long it waits for a free
+ * pooled connection, so a hung downstream service cannot hold request threads
+ * indefinitely. Latencies are recorded per route by {@link HttpClientMetrics}.
+ * <p>
+ * Only services that call others set {@code http.client.enabled=true}; the
+ * rest get no client from the common module.
+ */
+@Configuration
+@ConditionalOnProperty(name = "http.client.enabled", havingValue = "true")
+public class HttpClientConfig {
+
+	@Bean(destroyMethod = "close")
+	public PoolingHttpClientConnectionManager connectionManager(
+			@Value("${http.client.max-connections:50}") int maxConnections,
+			@Value("${http.client.max-connections-per-route:20}") int maxConnectionsPerRoute,
+			@Value("${http.client.connect-timeout-ms:1000}") long connectTimeoutMillis,
+			@Value("${http.client.read-timeout-ms:3000}") long readTimeoutMillis,
+			@Value("${http.client.connection-ttl-seconds:300}") long connectionTtlSeconds) {
+		return PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(maxConnections)
+				.setMaxConnPerRoute(maxConnectionsPerRoute)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+						.setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+						.setTimeToLive(TimeValue.ofSeconds(connectionTtlSeconds))
+						.setValidateAfterInactivity(TimeValue.ofSeconds(2))
+						.build())
+				.build();
+	}
+
+	@Bean
+	public HttpClientMetrics httpClientMetrics(PoolingHttpClientConnectionManager connectionManager) {
+		return new HttpClientMetrics(connectionManager);
+	}
+
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+			@Value("${http.client.read-timeout-ms:3000}") long readTimeoutMillis,
+			@Value("${http.client.pool-timeout-ms:1000}") long poolTimeoutMillis,
+			@Value("${http.client.idle-timeout-seconds:30}") long idleTimeoutSeconds) {
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMillis))
+						.setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+						.build())
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+				.build();
+	}
+
+	@Bean
+	@Primary
+	public RestTemplate restTemplate(CloseableHttpClient httpClient, HttpClientMetrics httpClientMetrics) {
+		RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+		restTemplate.getInterceptors().add(httpClientMetrics);
+		return restTemplate;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.demo.client;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import com.example.demo.metrics.MetricsSource;
+
+/**
+ * Records the latency of every outgoing call per route, and reports it with
+ * the state of the connection pool. Calls are grouped by method and path with
+ * numeric path segments replaced by {@code {id}}, so one histogram covers all
+ * books, carts or users rather than one per ID. A call is timed until its status
+ * and headers arrive.
+ */
+public class HttpClientMetrics implements ClientHttpRequestInterceptor, MetricsSource {
+
+	private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	public HttpClientMetrics(PoolingHttpClientConnectionManager connectionManager) {
+		this.connectionManager = connectionManager;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		LatencyHistogram histogram = histograms.computeIfAbsent(route(request), route -> new LatencyHistogram());
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			failed = response.getStatusCode().isError();
+			return response;
+		} finally {
+			histogram.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "httpClient";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		PoolStats pool = connectionManager.getTotalStats();
+		Map<String, Object> poolStats = new LinkedHashMap<>();
+		poolStats.put("leased", pool.getLeased());
+		poolStats.put("available", pool.getAvailable());
+		poolStats.put("pending", pool.getPending());
+		poolStats.put("max", pool.getMax());
+		Map<String, Object> routes = new TreeMap<>();
+		histograms.forEach((route, histogram) -> routes.put(route, histogram.stats()));
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("pool", poolStats);
+		metrics.put("routes", routes);
+		return metrics;
+	}
+
+	/**
+	 * Returns the route a call is grouped under, such as
+	 * {@code GET localhost:8085/api/books/{id}}.
+	 */
+	static String route(HttpRequest request) {
+		String path = request.getURI().getRawPath();
+		return request.getMethod() + " " + request.getURI().getAuthority()
+				+ NUMERIC_SEGMENT.matcher(path == null ? "" : path).replaceAll("/{id}");
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.demo.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of call latencies over fixed buckets, recorded without locks.
+ * Percentiles are reported as the upper bound of the bucket they fall in, so
+ * they are accurate to the bucket width.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Upper bounds of the buckets in milliseconds; a last bucket takes the rest.
+	 */
+	private static final long[] BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+	private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final LongAdder errors = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records one call.
+	 *
+	 * @param nanos  how long the call took
+	 * @param failed whether the call failed or got an error status
+	 */
+	public void record(long nanos, boolean failed) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int bucket = 0;
+		while (bucket < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[bucket]) {
+			bucket++;
+		}
+		buckets[bucket].increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		if (failed) {
+			errors.increment();
+		}
+	}
+
+	/**
+	 * Returns the call and error counts, the mean and maximum latency and the
+	 * 50th, 95th and 99th percentiles, all in milliseconds.
+	 *
+	 * @return the histogram statistics
+	 */
+	public Map<String, Object> stats() {
+		long[] counts = new long[buckets.length];
+		long count = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("count", count);
+		stats.put("errors", errors.sum());
+		stats.put("meanMs", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+		stats.put("maxMs", maxNanos.get() / 1_000_000.0);
+		stats.put("p50Ms", percentile(counts, count, 0.50));
+		stats.put("p95Ms", percentile(counts, count, 0.95));
+		stats.put("p99Ms", percentile(counts, count, 0.99));
+		return stats;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given percentile, or the
+	 * maximum for the open-ended last bucket.
+	 */
+	private double percentile(long[] counts, long count, double percentile) {
+		if (count == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return BOUNDS_MILLIS[i];
+			}
+		}
+		return maxNanos.get() / 1_000_000.0;
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.demo.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller exposing the runtime metrics of a service, such as cache hit
+ * rates and the latencies of calls to other services. Each service maps it
+ * under its own API path with the {@code metrics.path} property.
+ */
+@RestController
+@RequestMapping("${metrics.path}")
+public class MetricsController {
+
+	private final List<MetricsSource> metricsSources;
+
+	public MetricsController(List<MetricsSource> metricsSources) {
+		this.metricsSources = metricsSources;
+	}
+
+	/**
+	 * GET ${metrics.path} : Get the current metrics of every component.
+	 * 
+	 * @return the metrics grouped by component
+	 */
+	@GetMapping
+	public Map<String, Map<String, Object>> getMetrics() {
+		Map<String, Map<String, Object>> metrics = new TreeMap<>();
+		metricsSources.forEach(source -> metrics.put(source.getMetricsName(), source.getMetrics()));
+		return metrics;
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.demo.metrics;
+
+import java.util.Map;
+
+/**
+ * Component that publishes runtime metrics on the metrics endpoint.
+ */
+public interface MetricsSource {
+
+	/**
+	 * Returns the name the metrics are grouped under.
+	 * 
+	 * @return the metrics group name
+	 */
+	String getMetricsName();
+
+	/**
+	 * Returns a snapshot of the current metric values.
+	 * 
+	 * @return the metric values keyed by metric name
+	 */
+	Map<String, Object> getMetrics();
+}
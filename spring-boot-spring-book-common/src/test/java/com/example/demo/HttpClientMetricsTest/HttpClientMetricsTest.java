@@ -0,0 +1,106 @@
+package com.example.demo.HttpClientMetricsTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import com.example.demo.client.HttpClientMetrics;
+import com.example.demo.client.LatencyHistogram;
+
+public class HttpClientMetricsTest {
+
+    @Mock
+    private HttpRequest request;
+
+    @Mock
+    private ClientHttpRequestExecution execution;
+
+    @Mock
+    private ClientHttpResponse response;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private HttpClientMetrics httpClientMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        httpClientMetrics = new HttpClientMetrics(connectionManager);
+        when(request.getMethod()).thenReturn(HttpMethod.GET);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionManager.close();
+    }
+
+    @Test
+    public void testPercentilesFallInBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3), false);
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(150), false);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(20000), true);
+
+        Map<String, Object> stats = histogram.stats();
+
+        assertEquals(100L, stats.get("count"));
+        assertEquals(1L, stats.get("errors"));
+        assertEquals(5.0, stats.get("p50Ms"));
+        assertEquals(5.0, stats.get("p95Ms"));
+        assertEquals(200.0, stats.get("p99Ms"));
+        assertEquals(20000.0, stats.get("maxMs"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCallsAreGroupedByRouteWithoutIds() throws IOException {
+        when(execution.execute(any(), any())).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+
+        when(request.getURI()).thenReturn(URI.create("http://localhost:8085/api/books/1"));
+        httpClientMetrics.intercept(request, new byte[0], execution);
+        when(request.getURI()).thenReturn(URI.create("http://localhost:8085/api/books/42"));
+        httpClientMetrics.intercept(request, new byte[0], execution);
+
+        Map<String, Object> routes = (Map<String, Object>) httpClientMetrics.getMetrics().get("routes");
+        Map<String, Object> stats = (Map<String, Object>) routes.get("GET localhost:8085/api/books/{id}");
+        assertEquals(1, routes.size());
+        assertEquals(2L, stats.get("count"));
+        assertEquals(0L, stats.get("errors"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedCallsAreCountedAsErrors() throws IOException {
+        when(request.getURI()).thenReturn(URI.create("http://localhost:8085/api/books/batch?ids=1,2"));
+        when(execution.execute(any(), any())).thenThrow(new IOException("Read timed out"));
+
+        assertThrows(IOException.class, () -> httpClientMetrics.intercept(request, new byte[0], execution));
+
+        Map<String, Object> routes = (Map<String, Object>) httpClientMetrics.getMetrics().get("routes");
+        Map<String, Object> stats = (Map<String, Object>) routes.get("GET localhost:8085/api/books/batch");
+        assertEquals(1L, stats.get("errors"));
+        assertTrue(httpClientMetrics.getMetrics().containsKey("pool"));
+    }
+}
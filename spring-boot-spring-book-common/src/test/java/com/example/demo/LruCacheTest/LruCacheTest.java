@@ -0,0 +1,63 @@
+package com.example.demo.LruCacheTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.cache.LruCache;
+
+public class LruCacheTest {
+
+    @Test
+    public void testInvalidatingAnotherKeyDuringALoadKeepsTheLoadedValue() {
+        LruCache<Long, String> cache = new LruCache<>(100, 60);
+
+        assertEquals("one", cache.getOrLoad(1L, id -> {
+            cache.invalidate(2L);
+            cache.invalidate(17L);
+            return "one";
+        }));
+
+        assertEquals("one", cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void testInvalidatingTheKeyDuringALoadDropsTheLoadedValue() {
+        LruCache<Long, String> cache = new LruCache<>(100, 60);
+
+        assertEquals("one", cache.getOrLoad(1L, id -> {
+            cache.invalidate(1L);
+            return "one";
+        }));
+
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void testInvalidatingEverythingDuringALoadDropsTheLoadedValue() {
+        LruCache<Long, String> cache = new LruCache<>(100, 60);
+        long stamp = cache.invalidationStamp(1L);
+
+        cache.invalidateAll();
+        cache.putIfUnchanged(1L, "one", stamp);
+
+        assertNull(cache.getIfPresent(1L));
+        cache.putIfUnchanged(1L, "one", cache.invalidationStamp(1L));
+        assertEquals("one", cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void testLoadsOlderThanForgottenInvalidationsAreDropped() {
+        LruCache<Long, String> cache = new LruCache<>(100, 60);
+        long stamp = cache.invalidationStamp(1L);
+
+        // Keys spaced by the segment count all land in the segment of key 1
+        for (long key = 17; key < 17 + 16 * 2000; key += 16) {
+            cache.invalidate(key);
+        }
+        cache.putIfUnchanged(1L, "one", stamp);
+
+        assertNull(cache.getIfPresent(1L));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.cache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.Book;
+import com.example.demo.metrics.MetricsSource;
+
+/**
+ * Read-through cache of books by ID. Books are mutable entities, so the cache
+ * stores its own copy and hands out a fresh copy on every hit.
+ */
+@Component
+public class BookCache implements MetricsSource {
+
+	private final LruCache<Long, Book> cache;
+
+	public BookCache(@Value("${book.cache.max-size:10000}") int maxSize,
+			@Value("${book.cache.ttl-seconds:300}") long ttlSeconds) {
+		this.cache = new LruCache<>(maxSize, ttlSeconds);
+	}
+
+	/**
+	 * Returns the book with the given ID, loading it on a miss.
+	 * 
+	 * @param id     the ID of the book
+	 * @param loader loads the book on a miss
+	 * @return an Optional containing a copy of the book, or empty if not found
+	 */
+	public Optional<Book> getOrLoad(Long id, Function<Long, Optional<Book>> loader) {
+		Book book = cache.getOrLoad(id, key -> loader.apply(key).map(BookCache::copyOf).orElse(null));
+		return Optional.ofNullable(book).map(BookCache::copyOf);
+	}
+
+	/**
+	 * Evicts a book so the next read goes to the database.
+	 * 
+	 * @param id the ID of the book
+	 */
+	public void invalidate(Long id) {
+		cache.invalidate(id);
+	}
+
+	/**
+	 * Evicts every book.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "bookCache";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		return cache.stats();
+	}
+
+	static Book copyOf(Book book) {
+		Book copy = new Book();
+		copy.setId(book.getId());
+		copy.setTitle(book.getTitle());
+		copy.setAuthor(book.getAuthor());
+		copy.setGenre(book.getGenre());
+		copy.setPrice(book.getPrice());
+		copy.setVersion(book.getVersion());
+		return copy;
+	}
+}
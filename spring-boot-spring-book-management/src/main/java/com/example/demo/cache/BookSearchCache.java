@@ -0,0 +1,145 @@
+package com.example.demo.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.Book;
+import com.example.demo.metrics.MetricsSource;
+import com.example.demo.search.BookSort;
+
+/**
+ * Cache of book search results. Queries are normalized before lookup: text
+ * criteria are trimmed and lower-cased, and the price range is widened to whole
+ * buckets of {@code book.search-cache.price-step}, so "Fantasy" under 19.99 and
+ * "fantasy " under 20 share one entry. The widened result is cached and
+ * filtered to the exact price range on every read. Limited searches keep their
+ * exact price range, since the first books of a wider range are not the first
+ * books of the narrower one.
+ * <p>
+ * Every key carries the catalog generation it was computed in. Any catalog
+ * write bumps the generation, which makes all older entries unreachable at
+ * once without touching them; they age out through LRU eviction and the time to
+ * live. Results larger than {@code book.search-cache.max-results} books are not
+ * cached.
+ */
+@Component
+public class BookSearchCache implements MetricsSource {
+
+	/**
+	 * Runs a search that is not answered from the cache.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		List<Book> search(String title, String author, String genre, Double minPrice, Double maxPrice, BookSort sort,
+				Integer limit);
+	}
+
+	private record SearchKey(long generation, String title, String author, String genre, Double minPrice,
+			Double maxPrice, BookSort sort, Integer limit) {
+	}
+
+	private final LruCache<SearchKey, List<Book>> cache;
+	private final AtomicLong generation = new AtomicLong();
+	private final double priceStep;
+	private final int maxResults;
+
+	public BookSearchCache(@Value("${book.search-cache.max-size:1000}") int maxSize,
+			@Value("${book.search-cache.ttl-seconds:30}") long ttlSeconds,
+			@Value("${book.search-cache.price-step:5}") double priceStep,
+			@Value("${book.search-cache.max-results:5000}") int maxResults) {
+		this.cache = new LruCache<>(maxSize, ttlSeconds);
+		this.priceStep = priceStep;
+		this.maxResults = maxResults;
+	}
+
+	/**
+	 * Returns the books matching a search, running it through the loader on a
+	 * miss. The loader receives the normalized query and, for unlimited
+	 * searches, the widened price range.
+	 *
+	 * @param title    text to match against the title (optional)
+	 * @param author   text to match against the author (optional)
+	 * @param genre    text to match against the genre (optional)
+	 * @param minPrice the minimum price of the book (optional)
+	 * @param maxPrice the maximum price of the book (optional)
+	 * @param sort     the order of the books (optional)
+	 * @param limit    the maximum number of books (optional)
+	 * @param loader   runs the search on a miss
+	 * @return copies of the matching books, in the order of the loader
+	 */
+	public List<Book> getOrLoad(String title, String author, String genre, Double minPrice, Double maxPrice,
+			BookSort sort, Integer limit, Loader loader) {
+		boolean widen = limit == null;
+		SearchKey key = new SearchKey(generation.get(), normalize(title), normalize(author), normalize(genre),
+				minPrice == null || !widen ? minPrice : bucketFloor(minPrice),
+				maxPrice == null || !widen ? maxPrice : bucketCeiling(maxPrice), sort, limit);
+		List<Book> cached = cache.get(key);
+		if (cached == null) {
+			List<Book> loaded = loader.search(key.title(), key.author(), key.genre(), key.minPrice(),
+					key.maxPrice(), sort, limit);
+			if (loaded.size() > maxResults) {
+				return filter(loaded, minPrice, maxPrice, false);
+			}
+			cached = filter(loaded, null, null, true);
+			cache.put(key, cached);
+		}
+		return filter(cached, minPrice, maxPrice, true);
+	}
+
+	/**
+	 * Makes every cached result unreachable. Called after each catalog write,
+	 * once the write is visible to searches.
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "bookSearchCache";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = cache.stats();
+		metrics.put("generation", generation.get());
+		return metrics;
+	}
+
+	private static String normalize(String text) {
+		if (text == null) {
+			return null;
+		}
+		String trimmed = text.trim().toLowerCase(Locale.ROOT);
+		return trimmed.isEmpty() ? null : trimmed;
+	}
+
+	private Double bucketFloor(double price) {
+		return priceStep > 0 ? Math.floor(price / priceStep) * priceStep : price;
+	}
+
+	private Double bucketCeiling(double price) {
+		return priceStep > 0 ? Math.ceil(price / priceStep) * priceStep : price;
+	}
+
+	/**
+	 * Keeps the books within the exact price range, optionally copying them so
+	 * callers never share an instance with the cache.
+	 */
+	private static List<Book> filter(List<Book> books, Double minPrice, Double maxPrice, boolean copy) {
+		List<Book> result = new ArrayList<>(books.size());
+		for (Book book : books) {
+			if (minPrice != null && book.getPrice() < minPrice || maxPrice != null && book.getPrice() > maxPrice) {
+				continue;
+			}
+			result.add(copy ? BookCache.copyOf(book) : book);
+		}
+		return result;
+	}
+}
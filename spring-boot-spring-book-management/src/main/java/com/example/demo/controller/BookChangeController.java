@@ -0,0 +1,42 @@
+package com.example.demo.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.events.BookChangeStream;
+
+/**
+ * REST controller streaming book change events as Server-Sent Events, so other
+ * services can keep local copies of book data and invalidate them on push.
+ */
+@RestController
+@RequestMapping("/api/books/changes")
+public class BookChangeController {
+
+	private final BookChangeStream changeStream;
+
+	public BookChangeController(BookChangeStream changeStream) {
+		this.changeStream = changeStream;
+	}
+
+	/**
+	 * GET /api/books/changes : Stream book change events. Each event carries its
+	 * offset as the event ID, so a reconnecting EventSource resumes through the
+	 * Last-Event-ID header; other clients can pass the offset as {@code after}.
+	 * Without either, only events published from now on are sent.
+	 * 
+	 * @param lastEventId the offset of the last event handled (optional)
+	 * @param after       the offset of the last event handled (optional)
+	 * @return the event stream
+	 */
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+			@RequestParam(required = false) Long after) {
+		return changeStream.subscribe(lastEventId != null ? lastEventId : after);
+	}
+}
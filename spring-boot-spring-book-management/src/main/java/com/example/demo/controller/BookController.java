@@ -1,56 +1,135 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.apache.hc.core5.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.dto.BookPatchDTO;
 import com.example.demo.entity.Book;
+import com.example.demo.search.BookSort;
+import com.example.demo.search.BookSuggestIndex;
 import com.example.demo.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * REST controller for managing books. Provides endpoints for creating,
- * retrieving, updating, and deleting books.
+ * retrieving, updating, and deleting books. Read endpoints send a strong ETag
+ * built from book IDs and versions; a request whose If-None-Match matches it
+ * gets 304 (Not Modified) without the body being serialized.
  */
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int MAX_TOP_AUTHORS = 100;
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
 	private final BookService bookService;
+	private final ObjectMapper objectMapper;
 
-	public BookController(BookService bookService) {
+	public BookController(BookService bookService, ObjectMapper objectMapper) {
 		this.bookService = bookService;
+		this.objectMapper = objectMapper;
 	}
 
 	/**
-	 * GET /api/books : Get all books.
+	 * GET /api/books : Get all books. When afterId or limit is given, returns one
+	 * page of books in ID order instead; the next page is requested with afterId
+	 * set to the nextCursor of the previous page.
 	 * 
-	 * @return the list of books
+	 * @param afterId the ID of the last book of the previous page (optional)
+	 * @param limit   the maximum number of books on the page (optional)
+	 * @return the list of books, or the requested page
 	 */
 	@GetMapping
-	public ResponseEntity<Object> getAllBooks() {
+	public ResponseEntity<Object> getAllBooks(@RequestParam(required = false) Long afterId,
+	                                          @RequestParam(required = false) Integer limit) {
+	    if (afterId != null || limit != null) {
+	        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+	        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+	            Map<String, String> response = new HashMap<>();
+	            response.put("message", "Limit must be between 1 and " + MAX_PAGE_SIZE);
+	            return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	        }
+	        BookPageDTO page = bookService.getBooksPage(afterId, pageSize);
+	        return ResponseEntity.ok().eTag(BookETags.of(page.getItems())).body(page);
+	    }
 	    List<Book> books = bookService.getAllBooks();
 	    if (books.isEmpty()) {
 	        Map<String, String> response = new HashMap<>();
 	        response.put("message", "No books available");
 	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
 	    } else {
-	        return ResponseEntity.ok(books);
+	        return ResponseEntity.ok().eTag(BookETags.of(books)).body(books);
 	    }
 	}
 
+	/**
+	 * GET /api/books/stream : Stream all books as newline-delimited JSON, one book
+	 * per line. Books are written as they are read from the database, so memory
+	 * use does not grow with the size of the catalog.
+	 * 
+	 * @return the ResponseEntity with status 200 (OK) and the streamed books
+	 */
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+		StreamingResponseBody body = outputStream -> {
+			try {
+				bookService.streamAllBooks(book -> writeLine(outputStream, book));
+			} catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+		};
+		return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+	}
+
+	/**
+	 * GET /api/books/ids : Get the IDs of all books as a bitmap, for services
+	 * that check book IDs locally. The body is the little-endian bit set of
+	 * {@link java.util.BitSet#toByteArray()}: bit {@code n} is set when the book
+	 * with ID {@code n} exists.
+	 * 
+	 * @return the ResponseEntity with status 200 (OK) and the bitmap
+	 */
+	@GetMapping("/ids")
+	public ResponseEntity<byte[]> getBookIds() {
+	    return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM)
+	            .body(bookService.getBookIds().toByteArray());
+	}
+
+	private void writeLine(OutputStream outputStream, Book book) {
+		try {
+			outputStream.write(objectMapper.writeValueAsBytes(book));
+			outputStream.write('\n');
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
 	/**
 	 * GET /api/books/{id} : Get a book by its ID.
 	 * 
@@ -62,13 +141,50 @@ public class BookController {
 	public ResponseEntity<Object> getBookById(@PathVariable Long id) {
 	    Optional<Book> book = bookService.getBookById(id);
 	    if (book.isPresent()) {
-	        return ResponseEntity.ok(book.get());
+	        return ResponseEntity.ok().eTag(BookETags.of(book.get())).body(book.get());
 	    } else {
 	        Map<String, String> response = new HashMap<>();
 	        response.put("message", "Book not found with id " + id);
 	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
 	    }
 	}
+	/**
+	 * GET /api/books/batch?ids=1,2,3 : Get several books by their IDs in one
+	 * request.
+	 * 
+	 * @param ids the IDs of the books
+	 * @return the ResponseEntity with status 200 (OK) and with body the books
+	 *         keyed by ID, or with status 400 (Bad Request) if too many IDs are
+	 *         requested
+	 */
+	@GetMapping("/batch")
+	public ResponseEntity<Object> getBooksByIds(@RequestParam List<Long> ids) {
+		return batchLookup(ids);
+	}
+
+	/**
+	 * POST /api/books/batch : Get several books by the IDs in the request body.
+	 * Useful when the ID list is too long for a query string.
+	 * 
+	 * @param ids the IDs of the books
+	 * @return the ResponseEntity with status 200 (OK) and with body the books
+	 *         keyed by ID, or with status 400 (Bad Request) if too many IDs are
+	 *         requested
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<Object> getBooksByIdsInBody(@RequestBody List<Long> ids) {
+		return batchLookup(ids);
+	}
+
+	private ResponseEntity<Object> batchLookup(List<Long> ids) {
+		if (ids.size() > MAX_BATCH_SIZE) {
+			Map<String, String> response = new HashMap<>();
+			response.put("message", "At most " + MAX_BATCH_SIZE + " IDs can be requested at once");
+			return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+		}
+		return ResponseEntity.ok(bookService.getBooksByIds(ids));
+	}
+
 	/**
 	 * POST /api/books : Create a new book.
 	 * 
@@ -104,16 +220,72 @@ public class BookController {
 	}
 
 	/**
-	 * DELETE /api/books/{id} : Delete a book by its ID.
+	 * PATCH /api/books/{id} : Update some fields of a book with a single
+	 * versioned UPDATE. The version the client last read is taken from the
+	 * If-Match header (the book's ETag) or from the version field of the body;
+	 * "If-Match: *" updates whatever the current version is.
 	 * 
-	 * @param id the ID of the book to delete
-	 * @return the ResponseEntity with status 204 (No Content)
+	 * @param id      the ID of the book to update
+	 * @param ifMatch the ETag of the version the client last read (optional)
+	 * @param patch   the fields to change; null fields are kept
+	 * @return the updated book with its new ETag, 404 (Not Found) if the book
+	 *         does not exist, 409 (Conflict) if it has another version, or 428
+	 *         (Precondition Required) if no version was given
 	 */
-	@DeleteMapping("/{id}")
-	public ResponseEntity<Object> deleteBook(@PathVariable Long id) {
-	    Optional<Book> book = bookService.getBookById(id);
+	@PatchMapping("/{id}")
+	public ResponseEntity<Object> patchBook(@PathVariable Long id,
+	                                     @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+	                                     @RequestBody BookPatchDTO patch) {
+	    String error = validate(patch);
+	    if (error == null && ifMatch != null) {
+	        patch.setVersion("*".equals(ifMatch.trim()) ? null : BookETags.versionOf(ifMatch, id));
+	        if (patch.getVersion() == null && !"*".equals(ifMatch.trim())) {
+	            error = "If-Match must be the ETag of book " + id;
+	        }
+	    }
+	    if (error != null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", error);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    if (ifMatch == null && patch.getVersion() == null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Send the version last read, as If-Match or in the body");
+	        return ResponseEntity.status(HttpStatus.SC_PRECONDITION_REQUIRED).body(response);
+	    }
+	    Optional<Book> book = bookService.patchBook(id, patch);
 	    if (book.isPresent()) {
-	        bookService.deleteBook(id);
+	        return ResponseEntity.ok().eTag(BookETags.of(book.get())).body(book.get());
+	    } else {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Book not found with id " + id);
+	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
+	    }
+	}
+
+	/**
+	 * DELETE /api/books/{id} : Delete a book by its ID with a single DELETE. An
+	 * If-Match header with the book's ETag deletes it only if it was not changed
+	 * since.
+	 * 
+	 * @param id      the ID of the book to delete
+	 * @param ifMatch the ETag of the version the client last read (optional)
+	 * @return the ResponseEntity with status 200 (OK), 404 (Not Found) or 409
+	 *         (Conflict)
+	 */
+	@DeleteMapping("/{id}")
+	public ResponseEntity<Object> deleteBook(@PathVariable Long id,
+	                                     @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+	    Long version = null;
+	    if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+	        version = BookETags.versionOf(ifMatch, id);
+	        if (version == null) {
+	            Map<String, String> response = new HashMap<>();
+	            response.put("message", "If-Match must be the ETag of book " + id);
+	            return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	        }
+	    }
+	    if (bookService.deleteBook(id, version)) {
 	        Map<String, String> response = new HashMap<>();
 	        response.put("message", "Book deleted with id " + id);
 	        return ResponseEntity.ok(response);
@@ -123,14 +295,46 @@ public class BookController {
 	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
 	    }
 	}
+
 	/**
-	 * GET /api/books/search : Search for books by various criteria.
+	 * Checks the fields of a partial update.
+	 * 
+	 * @param patch the partial update
+	 * @return the error message, or null if the update is valid
+	 */
+	private static String validate(BookPatchDTO patch) {
+	    if (patch.getTitle() == null && patch.getAuthor() == null && patch.getGenre() == null
+	            && patch.getPrice() == null) {
+	        return "Nothing to update";
+	    }
+	    if (patch.getTitle() != null && patch.getTitle().isBlank()) {
+	        return "Title cannot be blank";
+	    }
+	    if (patch.getAuthor() != null && patch.getAuthor().isBlank()) {
+	        return "Author cannot be blank";
+	    }
+	    if (patch.getGenre() != null && patch.getGenre().isBlank()) {
+	        return "Genre cannot be blank";
+	    }
+	    if (patch.getPrice() != null && !(patch.getPrice() > 0)) {
+	        return "Price must be positive";
+	    }
+	    return null;
+	}
+
+	/**
+	 * GET /api/books/search : Search for books by various criteria. With sort
+	 * and limit only the first books in that order are returned, e.g. the ten
+	 * cheapest books of a genre.
 	 * 
 	 * @param title    the title of the book
 	 * @param author   the author of the book
 	 * @param genre    the genre of the book
 	 * @param minPrice the minimum price of the book
 	 * @param maxPrice the maximum price of the book
+	 * @param sort     cheapest, newest or title (optional, best match first by
+	 *                 default)
+	 * @param limit    the maximum number of books (optional)
 	 * @return the list of books matching the search criteria
 	 */
 	@GetMapping("/search")
@@ -138,14 +342,119 @@ public class BookController {
 	                                     @RequestParam(required = false) String author,
 	                                     @RequestParam(required = false) String genre,
 	                                     @RequestParam(required = false) Double minPrice,
-	                                     @RequestParam(required = false) Double maxPrice) {
-	    List<Book> books = bookService.searchBooks(title, author, genre, minPrice, maxPrice);
+	                                     @RequestParam(required = false) Double maxPrice,
+	                                     @RequestParam(required = false) String sort,
+	                                     @RequestParam(required = false) Integer limit) {
+	    BookSort order = sort == null ? null : BookSort.fromParameter(sort);
+	    if (sort != null && order == null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Sort must be one of cheapest, newest or title");
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Limit must be between 1 and " + MAX_PAGE_SIZE);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    List<Book> books = bookService.searchBooks(title, author, genre, minPrice, maxPrice, order, limit);
 	    if (books.isEmpty()) {
 	        Map<String, String> response = new HashMap<>();
 	        response.put("message", "No books found with the given query");
 	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
 	    } else {
-	        return ResponseEntity.ok(books);
+	        return ResponseEntity.ok().eTag(BookETags.of(books)).body(books);
+	    }
+	}
+
+	/**
+	 * GET /api/books/search/top : Get the first books of one genre or of one
+	 * author, e.g. the ten cheapest fantasy books. Unlike search, the genre or
+	 * author must match exactly, which lets the database read just these rows
+	 * off an index. Books of a genre come cheapest first, books of an author in
+	 * title order.
+	 * 
+	 * @param genre    the genre of the books (either this or author)
+	 * @param author   the author of the books (either this or genre)
+	 * @param minPrice the minimum price of the books (optional, genre only)
+	 * @param maxPrice the maximum price of the books (optional, genre only)
+	 * @param limit    the maximum number of books
+	 * @return the list of books, 404 (Not Found) if there are none, or 400 (Bad
+	 *         Request) if the parameters do not name one genre or one author
+	 */
+	@GetMapping("/search/top")
+	public ResponseEntity<Object> getTopBooks(@RequestParam(required = false) String genre,
+	                                     @RequestParam(required = false) String author,
+	                                     @RequestParam(required = false) Double minPrice,
+	                                     @RequestParam(required = false) Double maxPrice,
+	                                     @RequestParam(defaultValue = "10") int limit) {
+	    boolean byGenre = genre != null && !genre.isBlank();
+	    boolean byAuthor = author != null && !author.isBlank();
+	    String error = null;
+	    if (byGenre == byAuthor) {
+	        error = "Give either a genre or an author";
+	    } else if (byAuthor && (minPrice != null || maxPrice != null)) {
+	        error = "A price range can only be given with a genre";
+	    } else if (limit < 1 || limit > MAX_PAGE_SIZE) {
+	        error = "Limit must be between 1 and " + MAX_PAGE_SIZE;
+	    }
+	    if (error != null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", error);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    List<Book> books = byGenre ? bookService.getCheapestBooksOfGenre(genre, minPrice, maxPrice, limit)
+	            : bookService.getBooksOfAuthorByTitle(author, limit);
+	    if (books.isEmpty()) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "No books found with the given query");
+	        return ResponseEntity.status(HttpStatus.SC_NOT_FOUND).body(response);
+	    } else {
+	        return ResponseEntity.ok().eTag(BookETags.of(books)).body(books);
+	    }
+	}
+
+	/**
+	 * GET /api/books/search/facets : Count the books matching a search by genre,
+	 * author and price bucket, for filter sidebars.
+	 * 
+	 * @param title      the title of the book
+	 * @param author     the author of the book
+	 * @param genre      the genre of the book
+	 * @param minPrice   the minimum price of the book
+	 * @param maxPrice   the maximum price of the book
+	 * @param topAuthors the maximum number of authors to report
+	 * @return the facet counts of the matching books
+	 */
+	@GetMapping("/search/facets")
+	public ResponseEntity<Object> getSearchFacets(@RequestParam(required = false) String title,
+	                                     @RequestParam(required = false) String author,
+	                                     @RequestParam(required = false) String genre,
+	                                     @RequestParam(required = false) Double minPrice,
+	                                     @RequestParam(required = false) Double maxPrice,
+	                                     @RequestParam(defaultValue = "10") int topAuthors) {
+	    if (topAuthors < 1 || topAuthors > MAX_TOP_AUTHORS) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "topAuthors must be between 1 and " + MAX_TOP_AUTHORS);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    return ResponseEntity.ok(bookService.getSearchFacets(title, author, genre, minPrice, maxPrice, topAuthors));
+	}
+
+	/**
+	 * GET /api/books/suggest : Suggest titles and authors for search-as-you-type.
+	 * 
+	 * @param q     the text typed so far
+	 * @param limit the maximum number of suggestions
+	 * @return the suggestions, best first; empty if nothing matches
+	 */
+	@GetMapping("/suggest")
+	public ResponseEntity<Object> suggest(@RequestParam(defaultValue = "") String q,
+	                                     @RequestParam(defaultValue = "10") int limit) {
+	    if (limit < 1 || limit > BookSuggestIndex.TOP_K) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Limit must be between 1 and " + BookSuggestIndex.TOP_K);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
 	    }
+	    return ResponseEntity.ok(bookService.suggest(q, limit));
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.example.demo.controller;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.example.demo.entity.Book;
+
+/**
+ * Computes strong entity tags for book responses from book IDs and versions,
+ * so a response can be validated without serializing it.
+ */
+final class BookETags {
+
+	private BookETags() {
+	}
+
+	/**
+	 * Returns the entity tag of a single book.
+	 * 
+	 * @param book the book
+	 * @return the quoted entity tag
+	 */
+	static String of(Book book) {
+		return "\"" + book.getId() + "-" + book.getVersion() + "\"";
+	}
+
+	/**
+	 * Extracts the book version from an entity tag sent back by a client, as in
+	 * an If-Match header.
+	 * 
+	 * @param tag the entity tag, quoted and possibly weak
+	 * @param id  the ID of the book the tag must belong to
+	 * @return the version, or null if the tag is not a tag of that book
+	 */
+	static Long versionOf(String tag, Long id) {
+		String value = tag.trim();
+		if (value.startsWith("W/")) {
+			value = value.substring(2);
+		}
+		if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+			return null;
+		}
+		String prefix = id + "-";
+		value = value.substring(1, value.length() - 1);
+		if (!value.startsWith(prefix)) {
+			return null;
+		}
+		try {
+			return Long.parseLong(value.substring(prefix.length()));
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the entity tag of a list of books. It changes whenever a book is
+	 * added, removed, reordered or updated.
+	 * 
+	 * @param books the books, in response order
+	 * @return the quoted entity tag
+	 */
+	static String of(Iterable<Book> books) {
+		MessageDigest digest = sha256();
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+		for (Book book : books) {
+			buffer.clear();
+			buffer.putLong(book.getId()).putLong(book.getVersion());
+			digest.update(buffer.array());
+		}
+		return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not available", ex);
+		}
+	}
+}
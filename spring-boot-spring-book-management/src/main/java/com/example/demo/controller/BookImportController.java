@@ -0,0 +1,58 @@
+package com.example.demo.controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.importer.BookRecordReader;
+import com.example.demo.service.BookImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * REST controller for bulk importing books from CSV or NDJSON files.
+ */
+@RestController
+@RequestMapping("/api/books/import")
+public class BookImportController {
+
+	private final BookImportService bookImportService;
+
+	public BookImportController(BookImportService bookImportService) {
+		this.bookImportService = bookImportService;
+	}
+
+	/**
+	 * POST /api/books/import : Import books from the request body. The body is
+	 * read as a stream, so files of any size can be sent. Send CSV with
+	 * Content-Type text/csv and a header line naming the title, author, genre and
+	 * price columns, or NDJSON with Content-Type application/x-ndjson.
+	 * 
+	 * @param contentType the content type of the request body
+	 * @param request     the HTTP request
+	 * @return the ResponseEntity with status 200 (OK) and with body the import
+	 *         report, or with status 400 (Bad Request) if the CSV header is
+	 *         invalid
+	 * @throws IOException if the request body cannot be read
+	 */
+	@PostMapping(consumes = { "text/csv", "application/x-ndjson" })
+	public ResponseEntity<Object> importBooks(@RequestHeader("Content-Type") String contentType,
+			HttpServletRequest request) throws IOException {
+		BookRecordReader.Format format = contentType.startsWith("text/csv") ? BookRecordReader.Format.CSV
+				: BookRecordReader.Format.NDJSON;
+		try {
+			return ResponseEntity.ok(bookImportService.importBooks(request.getInputStream(), format));
+		} catch (IllegalArgumentException ex) {
+			Map<String, String> response = new HashMap<>();
+			response.put("message", ex.getMessage());
+			return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.demo.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.ReservationItemDTO;
+import com.example.demo.dto.ReservationRequestDTO;
+import com.example.demo.dto.StockDTO;
+import com.example.demo.service.InventoryService;
+
+/**
+ * REST controller for book stock and the stock reservations checkout makes:
+ * reserve the books of an order, then confirm the reservation once paid or
+ * release it. Reservations that are neither expire.
+ */
+@RestController
+@RequestMapping("/api/books")
+public class InventoryController {
+
+	private static final int MAX_RESERVATION_ITEMS = 500;
+	private static final long MAX_RESERVATION_TTL_SECONDS = 3600;
+
+	private final InventoryService inventoryService;
+
+	public InventoryController(InventoryService inventoryService) {
+		this.inventoryService = inventoryService;
+	}
+
+	/**
+	 * GET /api/books/{id}/stock : Get the stock of a book.
+	 *
+	 * @param id the ID of the book
+	 * @return the available and reserved units
+	 */
+	@GetMapping("/{id}/stock")
+	public ResponseEntity<Object> getStock(@PathVariable Long id) {
+	    return ResponseEntity.ok(inventoryService.getStock(id));
+	}
+
+	/**
+	 * PUT /api/books/{id}/stock : Set the number of available units of a book.
+	 *
+	 * @param id    the ID of the book
+	 * @param stock the stock, of which only the available units are used
+	 * @return the new stock, 404 (Not Found) if the book does not exist, or 400
+	 *         (Bad Request) if the number is negative
+	 */
+	@PutMapping("/{id}/stock")
+	public ResponseEntity<Object> setStock(@PathVariable Long id, @RequestBody StockDTO stock) {
+	    if (stock.getAvailable() < 0) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", "Available stock cannot be negative");
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    return ResponseEntity.ok(inventoryService.setStock(id, stock.getAvailable()));
+	}
+
+	/**
+	 * POST /api/books/stock/reservations : Reserve units of several books, all
+	 * or nothing.
+	 *
+	 * @param request the books and quantities, and optionally the time to live
+	 * @return the reservation with status 201 (Created), 409 (Conflict) if a
+	 *         book has too few units, 404 (Not Found) if a book does not exist,
+	 *         or 400 (Bad Request) if the request is invalid
+	 */
+	@PostMapping("/stock/reservations")
+	public ResponseEntity<Object> reserve(@RequestBody ReservationRequestDTO request) {
+	    String error = validate(request);
+	    if (error != null) {
+	        Map<String, String> response = new HashMap<>();
+	        response.put("message", error);
+	        return ResponseEntity.status(HttpStatus.SC_BAD_REQUEST).body(response);
+	    }
+	    return ResponseEntity.status(HttpStatus.SC_CREATED)
+	            .body(inventoryService.reserve(request.getItems(), request.getTtlSeconds()));
+	}
+
+	/**
+	 * POST /api/books/stock/reservations/{reservationId}/confirm : Confirm a
+	 * reservation; its units are sold.
+	 *
+	 * @param reservationId the ID of the reservation
+	 * @return status 200 (OK), or 404 (Not Found) if the reservation does not
+	 *         exist or has expired
+	 */
+	@PostMapping("/stock/reservations/{reservationId}/confirm")
+	public ResponseEntity<Object> confirm(@PathVariable String reservationId) {
+	    inventoryService.confirm(reservationId);
+	    Map<String, String> response = new HashMap<>();
+	    response.put("message", "Reservation confirmed with id " + reservationId);
+	    return ResponseEntity.ok(response);
+	}
+
+	/**
+	 * DELETE /api/books/stock/reservations/{reservationId} : Release a
+	 * reservation; its units become available again.
+	 *
+	 * @param reservationId the ID of the reservation
+	 * @return status 200 (OK), or 404 (Not Found) if the reservation does not
+	 *         exist or has expired
+	 */
+	@DeleteMapping("/stock/reservations/{reservationId}")
+	public ResponseEntity<Object> release(@PathVariable String reservationId) {
+	    inventoryService.release(reservationId);
+	    Map<String, String> response = new HashMap<>();
+	    response.put("message", "Reservation released with id " + reservationId);
+	    return ResponseEntity.ok(response);
+	}
+
+	/**
+	 * Checks a reservation request.
+	 *
+	 * @param request the reservation request
+	 * @return the error message, or null if the request is valid
+	 */
+	private static String validate(ReservationRequestDTO request) {
+	    if (request.getItems() == null || request.getItems().isEmpty()) {
+	        return "At least one item is required";
+	    }
+	    if (request.getItems().size() > MAX_RESERVATION_ITEMS) {
+	        return "At most " + MAX_RESERVATION_ITEMS + " items can be reserved at once";
+	    }
+	    for (ReservationItemDTO item : request.getItems()) {
+	        if (item.getBookId() == null || item.getQuantity() <= 0) {
+	            return "Every item needs a book ID and a positive quantity";
+	        }
+	    }
+	    if (request.getTtlSeconds() != null
+	            && (request.getTtlSeconds() < 1 || request.getTtlSeconds() > MAX_RESERVATION_TTL_SECONDS)) {
+	        return "ttlSeconds must be between 1 and " + MAX_RESERVATION_TTL_SECONDS;
+	    }
+	    return null;
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one entry of the book change stream. Offsets
+ * increase by one per event and never repeat, so a consumer resumes by asking
+ * for the events after the last offset it handled.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChangeEventDTO {
+
+	/**
+	 * The kinds of change.
+	 */
+	public enum Type {
+		/**
+		 * A book was created or updated; the event carries its new state.
+		 */
+		SAVED,
+		/**
+		 * A book was deleted.
+		 */
+		DELETED,
+		/**
+		 * Books changed in a way not described event by event, such as a bulk
+		 * import, or the consumer asked for events no longer kept. Consumers
+		 * should drop everything they cached.
+		 */
+		RESET
+	}
+
+	private long offset;
+
+	private Type type;
+
+	private Long bookId;
+
+	private String title;
+
+	private String author;
+
+	private String genre;
+
+	private Double price;
+
+	private Long version;
+
+	/**
+	 * When the change was published, in milliseconds since the epoch.
+	 */
+	private long timestamp;
+}
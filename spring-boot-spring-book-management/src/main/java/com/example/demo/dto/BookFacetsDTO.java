@@ -0,0 +1,46 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the facet counts of a book search: how many of the
+ * matching books fall into each genre, the most frequent authors and a price
+ * histogram. Genres and authors are ordered by descending count.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacetsDTO {
+
+	/**
+	 * The number of books matching the query.
+	 */
+	private long total;
+
+	private Map<String, Long> genres;
+
+	private Map<String, Long> authors;
+
+	private List<PriceBucket> prices;
+
+	/**
+	 * One bucket of the price histogram, covering prices from {@code from}
+	 * inclusive to {@code to} exclusive. The last bucket has no upper bound.
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class PriceBucket {
+
+		private double from;
+
+		private Double to;
+
+		private long count;
+	}
+}
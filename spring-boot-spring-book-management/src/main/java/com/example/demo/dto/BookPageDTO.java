@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import com.example.demo.entity.Book;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one page of a keyset-paginated book listing. The
+ * next page is requested with {@code afterId} set to {@code nextCursor}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageDTO {
+
+	private List<Book> items;
+
+	/**
+	 * The ID of the last book on this page, or null if this is the last page.
+	 */
+	private Long nextCursor;
+}
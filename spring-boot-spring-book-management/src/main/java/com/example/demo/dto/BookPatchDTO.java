@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for a partial book update. Fields left null keep their
+ * current value. The version, if given, is the version the client last read;
+ * it can also be sent as an If-Match header instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPatchDTO {
+
+	private String title;
+
+	private String author;
+
+	private String genre;
+
+	private Double price;
+
+	private Long version;
+}
@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one autocomplete suggestion: a book title or an
+ * author name, with the number of books it stands for.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO {
+
+	private String text;
+
+	/**
+	 * Either {@code TITLE} or {@code AUTHOR}.
+	 */
+	private String field;
+
+	private long books;
+}
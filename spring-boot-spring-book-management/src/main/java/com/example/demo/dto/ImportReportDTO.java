@@ -0,0 +1,39 @@
+package com.example.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object reporting the outcome of a bulk book import.
+ */
+@Data
+public class ImportReportDTO {
+
+	private long rowsRead;
+	private long rowsImported;
+	private long rowsRejected;
+	private long elapsedMillis;
+	private double rowsPerSecond;
+	private List<RowError> errors = new ArrayList<>();
+
+	/**
+	 * True when more rows were rejected than are listed in errors.
+	 */
+	private boolean errorsTruncated;
+
+	/**
+	 * Data Transfer Object describing why a single row was rejected.
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class RowError {
+		private long line;
+
+		private String message;
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for an open stock reservation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationDTO {
+
+	private String id;
+	private List<ReservationItemDTO> items;
+
+	/**
+	 * When the reservation is released unless confirmed, in milliseconds since
+	 * the epoch.
+	 */
+	private long expiresAt;
+}
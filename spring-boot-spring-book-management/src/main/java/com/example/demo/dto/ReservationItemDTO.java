@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one book of a stock reservation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationItemDTO {
+
+	private Long bookId;
+	private int quantity;
+}
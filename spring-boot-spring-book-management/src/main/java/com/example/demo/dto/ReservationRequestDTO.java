@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for a request to reserve stock for several books at
+ * once.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationRequestDTO {
+
+	private List<ReservationItemDTO> items;
+
+	/**
+	 * Time in seconds after which the reservation is released unless confirmed
+	 * (optional, the configured default when null).
+	 */
+	private Long ttlSeconds;
+}
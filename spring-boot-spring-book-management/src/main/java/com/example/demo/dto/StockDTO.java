@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the stock of a book.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDTO {
+
+	private Long bookId;
+
+	/**
+	 * Units that can be reserved now.
+	 */
+	private long available;
+
+	/**
+	 * Units held by open reservations.
+	 */
+	private long reserved;
+}
@@ -4,16 +4,31 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Entity class representing a book.
- * Maps to a database table using JPA annotations.
+ * Maps to a database table using JPA annotations. The all-arguments
+ * constructor is used by read-only projection queries, which build unmanaged
+ * instances instead of loading entities into the persistence context.
+ * The composite indexes back the top-N queries on an exact genre or author:
+ * cheapest books of a genre and an author's books by title. They are created
+ * by db/migration/V2__book_top_n_indexes.sql.
  */
 @Entity
+@Table(indexes = {
+		@Index(name = "idx_book_genre_price", columnList = "genre, price"),
+		@Index(name = "idx_book_author_title", columnList = "author, title") })
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class Book {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,4 +46,10 @@ public class Book {
 	@Positive(message = "Price must be positive")
 	private double price;
 
+	/**
+	 * Incremented by JPA on every update; used for ETags and optimistic locking.
+	 */
+	@Version
+	private long version;
+
 }
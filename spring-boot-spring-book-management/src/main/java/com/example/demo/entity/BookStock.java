@@ -0,0 +1,30 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class representing the stock of a book: the number of units not sold
+ * yet, including units held by open reservations. Kept apart from
+ * {@link Book} so stock changes neither bump the book's version nor contend
+ * with catalog edits. The table is created by db/migration/V3__book_stock.sql,
+ * whose foreign key to {@code book} deletes the stock with the book.
+ */
+@Entity
+@Table(name = "book_stock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStock {
+
+	@Id
+	@Column(name = "book_id")
+	private Long bookId;
+
+	private long quantity;
+}
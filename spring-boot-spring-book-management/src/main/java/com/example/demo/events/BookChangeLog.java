@@ -0,0 +1,164 @@
+package com.example.demo.events;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.BookChangeEventDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only log of book change events, one JSON object per line. The most
+ * recent {@code book.changes.retention} events are also kept in a ring buffer
+ * so consumers resuming from a recent offset are served from memory. On
+ * startup the log is read back, trimmed to the retained events and offsets
+ * continue where the previous run stopped.
+ */
+@Component
+public class BookChangeLog {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookChangeLog.class);
+
+	private final Path file;
+	private final ObjectMapper objectMapper;
+	private final BookChangeEventDTO[] events;
+	private long firstOffset;
+	private long lastOffset;
+	private BufferedWriter writer;
+
+	public BookChangeLog(@Value("${book.changes.file:data/book-changes.log}") String file,
+			@Value("${book.changes.retention:100000}") int retention, ObjectMapper objectMapper) {
+		this.file = Paths.get(file);
+		this.objectMapper = objectMapper;
+		this.events = new BookChangeEventDTO[retention];
+	}
+
+	/**
+	 * Reads back the events of the previous run and opens the log for appending.
+	 *
+	 * @throws IOException if the log cannot be read or written
+	 */
+	@PostConstruct
+	public synchronized void open() throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		if (Files.exists(file)) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!line.isBlank()) {
+						remember(objectMapper.readValue(line, BookChangeEventDTO.class));
+					}
+				}
+			} catch (IOException ex) {
+				logger.warn("Book change log {} is damaged after offset {}: {}", file, lastOffset, ex.getMessage());
+			}
+			rewrite();
+			logger.info("Book change log resumed at offset {}", lastOffset);
+		}
+		writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Appends an event, assigning it the next offset and the current time.
+	 *
+	 * @param event the event to append
+	 * @return the event with its offset set
+	 */
+	public synchronized BookChangeEventDTO append(BookChangeEventDTO event) {
+		event.setOffset(lastOffset + 1);
+		event.setTimestamp(System.currentTimeMillis());
+		try {
+			writer.write(objectMapper.writeValueAsString(event));
+			writer.newLine();
+			writer.flush();
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Could not append to the book change log", ex);
+		}
+		remember(event);
+		return event;
+	}
+
+	/**
+	 * Returns the offset of the last event.
+	 *
+	 * @return the last offset, 0 if nothing was ever published
+	 */
+	public synchronized long lastOffset() {
+		return lastOffset;
+	}
+
+	/**
+	 * Tells whether every event after an offset is still retained.
+	 *
+	 * @param offset the last offset a consumer handled
+	 * @return true if the events after it can be read
+	 */
+	public synchronized boolean isRetained(long offset) {
+		return offset >= firstOffset - 1 && offset <= lastOffset;
+	}
+
+	/**
+	 * Returns the events after an offset.
+	 *
+	 * @param offset the last offset a consumer handled
+	 * @param max    the maximum number of events to return
+	 * @return the events in offset order; empty if there are none or they are no
+	 *         longer retained
+	 */
+	public synchronized List<BookChangeEventDTO> readAfter(long offset, int max) {
+		List<BookChangeEventDTO> result = new ArrayList<>();
+		if (!isRetained(offset)) {
+			return result;
+		}
+		for (long next = offset + 1; next <= lastOffset && result.size() < max; next++) {
+			result.add(events[(int) (next % events.length)]);
+		}
+		return result;
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	private void remember(BookChangeEventDTO event) {
+		events[(int) (event.getOffset() % events.length)] = event;
+		lastOffset = event.getOffset();
+		firstOffset = firstOffset == 0 ? lastOffset : Math.max(firstOffset, lastOffset - events.length + 1);
+	}
+
+	/**
+	 * Rewrites the log with the retained events only, so it does not grow across
+	 * restarts.
+	 */
+	private void rewrite() throws IOException {
+		Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "book-changes", ".tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (BookChangeEventDTO event : readAfter(firstOffset - 1, events.length)) {
+				out.write(objectMapper.writeValueAsString(event));
+				out.newLine();
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,304 @@
+package com.example.demo.events;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.entity.Book;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes book change events to the change log and pushes them to
+ * Server-Sent Events subscribers. Each subscriber has its own offset. A single
+ * dispatcher thread walks the subscribers round-robin and hands each one at
+ * most {@value #DISPATCH_BATCH} events it has not seen yet, which a pool of
+ * sender threads writes to its stream. A subscriber has at most one batch in
+ * flight, so publishing never waits for a slow consumer and a slow consumer
+ * never delays the others; when its batch is written, it is dispatched again
+ * if more events are waiting.
+ * <p>
+ * A subscriber asking for events that are no longer retained, or falling more
+ * than {@code book.changes.max-lag} events behind, skips to the latest event
+ * and gets a {@code RESET} event first. A subscriber whose batch is still not
+ * written after {@code book.changes.stall-ms} is dropped: it gets no further
+ * events, and its stream is closed by the sender once the write in flight
+ * returns, so the consumer reconnects.
+ * <p>
+ * Writes block the sender thread, and nothing but the socket can end a
+ * blocked write. The servlet container fails a write that makes no progress
+ * for its connection timeout ({@code server.tomcat.connection-timeout}), which
+ * bounds how long a stuck consumer holds a sender. Up to
+ * {@code book.changes.senders} consumers that stop reading at once can still
+ * delay the others by that long.
+ */
+@Component
+public class BookChangeStream {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookChangeStream.class);
+
+	private static final int DISPATCH_BATCH = 500;
+
+	private final BookChangeLog changeLog;
+	private final long timeoutMillis;
+	private final long maxLag;
+	private final long stallNanos;
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+	private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "book-change-dispatcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ExecutorService senders;
+
+	public BookChangeStream(BookChangeLog changeLog, @Value("${book.changes.timeout-ms:1800000}") long timeoutMillis,
+			@Value("${book.changes.max-lag:10000}") long maxLag,
+			@Value("${book.changes.stall-ms:30000}") long stallMillis,
+			@Value("${book.changes.senders:4}") int senderThreads) {
+		this.changeLog = changeLog;
+		this.timeoutMillis = timeoutMillis;
+		this.maxLag = maxLag;
+		this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+		AtomicInteger senderCount = new AtomicInteger();
+		this.senders = Executors.newFixedThreadPool(senderThreads, task -> {
+			Thread thread = new Thread(task, "book-change-sender-" + senderCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Publishes the new state of a saved book.
+	 *
+	 * @param book the saved book
+	 */
+	public void publishSaved(Book book) {
+		publish(new BookChangeEventDTO(0, BookChangeEventDTO.Type.SAVED, book.getId(), book.getTitle(),
+				book.getAuthor(), book.getGenre(), book.getPrice(), book.getVersion(), 0));
+	}
+
+	/**
+	 * Publishes the deletion of a book.
+	 *
+	 * @param id the ID of the deleted book
+	 */
+	public void publishDeleted(Long id) {
+		publish(new BookChangeEventDTO(0, BookChangeEventDTO.Type.DELETED, id, null, null, null, null, null, 0));
+	}
+
+	/**
+	 * Tells consumers to drop everything they cached.
+	 */
+	public void publishReset() {
+		publish(new BookChangeEventDTO(0, BookChangeEventDTO.Type.RESET, null, null, null, null, null, null, 0));
+	}
+
+	/**
+	 * Opens a stream of the events after an offset.
+	 *
+	 * @param lastOffset the last offset the consumer handled, or null to receive
+	 *                   new events only
+	 * @return the emitter the events are sent to
+	 */
+	public SseEmitter subscribe(Long lastOffset) {
+		SseEmitter emitter = new SseEmitter(timeoutMillis);
+		Subscriber subscriber = new Subscriber(emitter);
+		if (lastOffset == null) {
+			subscriber.offset = changeLog.lastOffset();
+		} else if (changeLog.isRetained(lastOffset)) {
+			subscriber.offset = lastOffset;
+		} else {
+			subscriber.offset = changeLog.lastOffset();
+			subscriber.resetPending = true;
+		}
+		emitter.onCompletion(() -> subscribers.remove(subscriber));
+		emitter.onTimeout(() -> subscribers.remove(subscriber));
+		emitter.onError(ex -> subscribers.remove(subscriber));
+		subscribers.add(subscriber);
+		scheduleDispatch();
+		return emitter;
+	}
+
+	/**
+	 * Sends a comment to every idle subscriber so idle connections stay open
+	 * through proxies and dead ones are noticed. Subscribers with a batch in
+	 * flight are skipped.
+	 */
+	@Scheduled(fixedDelayString = "${book.changes.heartbeat-ms:15000}")
+	public void heartbeat() {
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.acquire()) {
+				senders.execute(() -> {
+					try {
+						send(subscriber, SseEmitter.event().comment("heartbeat"));
+					} finally {
+						release(subscriber);
+					}
+				});
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+		dispatcher.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	private void publish(BookChangeEventDTO event) {
+		try {
+			changeLog.append(event);
+		} catch (RuntimeException ex) {
+			logger.error("Could not publish book change event: {}", ex.getMessage());
+			return;
+		}
+		scheduleDispatch();
+	}
+
+	private void scheduleDispatch() {
+		if (dispatchScheduled.compareAndSet(false, true)) {
+			dispatcher.execute(this::dispatch);
+		}
+	}
+
+	/**
+	 * Hands every idle subscriber the next batch of events after its offset. A
+	 * subscriber with a batch in flight is skipped, and dropped if that batch
+	 * has been stuck for too long. Its stream is not closed here: closing waits
+	 * for the write in flight, which would stall the dispatcher.
+	 */
+	private void dispatch() {
+		dispatchScheduled.set(false);
+		long lastOffset = changeLog.lastOffset();
+		for (Subscriber subscriber : subscribers) {
+			if (!subscriber.acquire()) {
+				if (subscriber.busyNanos() > stallNanos && subscribers.remove(subscriber)) {
+					logger.warn("Dropping a book change stream stuck on its last batch");
+					subscriber.closed = true;
+				}
+				continue;
+			}
+			if (!changeLog.isRetained(subscriber.offset) || lastOffset - subscriber.offset > maxLag) {
+				subscriber.offset = lastOffset;
+				subscriber.resetPending = true;
+			}
+			List<BookChangeEventDTO> events = changeLog.readAfter(subscriber.offset, DISPATCH_BATCH);
+			if (events.isEmpty() && !subscriber.resetPending) {
+				release(subscriber);
+				continue;
+			}
+			senders.execute(() -> {
+				try {
+					sendBatch(subscriber, events);
+				} finally {
+					release(subscriber);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes a batch to a subscriber, preceded by a {@code RESET} event if one is
+	 * pending, and advances its offset past every event written. Stops early if
+	 * the subscriber was dropped.
+	 */
+	private void sendBatch(Subscriber subscriber, List<BookChangeEventDTO> events) {
+		if (subscriber.resetPending) {
+			BookChangeEventDTO reset = new BookChangeEventDTO(subscriber.offset, BookChangeEventDTO.Type.RESET,
+					null, null, null, null, null, null, System.currentTimeMillis());
+			if (!send(subscriber, event(reset))) {
+				return;
+			}
+			subscriber.resetPending = false;
+		}
+		for (BookChangeEventDTO event : events) {
+			if (subscriber.closed || !send(subscriber, event(event))) {
+				return;
+			}
+			subscriber.offset = event.getOffset();
+		}
+	}
+
+	/**
+	 * Ends the send in flight of a subscriber and dispatches again if events
+	 * arrived for it in the meantime, since the dispatcher skipped it while it
+	 * was busy. A subscriber dropped while it was busy has its stream closed.
+	 */
+	private void release(Subscriber subscriber) {
+		if (subscriber.closed) {
+			subscriber.emitter.complete();
+			return;
+		}
+		subscriber.sendStartedAt.set(Subscriber.IDLE);
+		if (subscribers.contains(subscriber) && changeLog.lastOffset() > subscriber.offset) {
+			scheduleDispatch();
+		}
+	}
+
+	private static SseEmitter.SseEventBuilder event(BookChangeEventDTO event) {
+		return SseEmitter.event().id(String.valueOf(event.getOffset())).data(event, MediaType.APPLICATION_JSON);
+	}
+
+	private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+		try {
+			subscriber.emitter.send(event);
+			return true;
+		} catch (IOException | IllegalStateException ex) {
+			subscribers.remove(subscriber);
+			subscriber.emitter.completeWithError(ex);
+			return false;
+		}
+	}
+
+	/**
+	 * One open event stream and the offset of the last event sent to it. After
+	 * subscription the offset is only read and updated by the thread that
+	 * started the send in flight.
+	 */
+	private static class Subscriber {
+
+		private static final long IDLE = Long.MIN_VALUE;
+
+		private final SseEmitter emitter;
+		private final AtomicLong sendStartedAt = new AtomicLong(IDLE);
+		private volatile long offset;
+		private volatile boolean resetPending;
+		private volatile boolean closed;
+
+		Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		/**
+		 * Starts a send, unless one is already in flight.
+		 */
+		boolean acquire() {
+			return sendStartedAt.compareAndSet(IDLE, System.nanoTime());
+		}
+
+		/**
+		 * Returns how long the send in flight has been running, 0 if there is none.
+		 */
+		long busyNanos() {
+			long startedAt = sendStartedAt.get();
+			return startedAt == IDLE ? 0 : System.nanoTime() - startedAt;
+		}
+	}
+}
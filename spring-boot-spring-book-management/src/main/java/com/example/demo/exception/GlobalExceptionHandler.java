@@ -3,6 +3,7 @@ package com.example.demo.exception;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -19,6 +20,16 @@ public class GlobalExceptionHandler {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
 	}
 
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<String> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+		return new ResponseEntity<>("The book was modified concurrently, reload it and try again", HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<String> handleInsufficientStockException(InsufficientStockException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+	}
+
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<String> handleGeneralException(Exception ex) {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
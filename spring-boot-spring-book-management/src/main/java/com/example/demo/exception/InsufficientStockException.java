@@ -0,0 +1,28 @@
+package com.example.demo.exception;
+
+/**
+ * Thrown when a reservation asks for more units of a book than are available.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+	private final Long bookId;
+
+	/**
+	 * Constructs a new InsufficientStockException for the given book.
+	 * 
+	 * @param bookId the ID of the book that is short of stock
+	 */
+	public InsufficientStockException(Long bookId) {
+		super("Insufficient stock for book ID: " + bookId);
+		this.bookId = bookId;
+	}
+
+	/**
+	 * Returns the ID of the book that is short of stock.
+	 * 
+	 * @return the book ID
+	 */
+	public Long getBookId() {
+		return bookId;
+	}
+}
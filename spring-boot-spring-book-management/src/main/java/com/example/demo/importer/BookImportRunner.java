@@ -0,0 +1,66 @@
+package com.example.demo.importer;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.ImportReportDTO;
+import com.example.demo.service.BookImportService;
+
+/**
+ * Command line entry point for bulk imports. Starting the application with
+ * {@code --import.file=books.csv} imports the file, logs the report and exits
+ * with status 0 if every row was imported and 1 otherwise. Files ending in
+ * .ndjson or .jsonl are read as NDJSON, anything else as CSV. Add
+ * {@code --spring.main.web-application-type=none} to skip starting the web
+ * server.
+ */
+@Component
+public class BookImportRunner implements ApplicationRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookImportRunner.class);
+
+	private static final String FILE_OPTION = "import.file";
+
+	private final BookImportService bookImportService;
+	private final ConfigurableApplicationContext context;
+
+	public BookImportRunner(BookImportService bookImportService, ConfigurableApplicationContext context) {
+		this.bookImportService = bookImportService;
+		this.context = context;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if (!args.containsOption(FILE_OPTION)) {
+			return;
+		}
+		Path file = Path.of(args.getOptionValues(FILE_OPTION).get(0));
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		BookRecordReader.Format format = name.endsWith(".ndjson") || name.endsWith(".jsonl")
+				? BookRecordReader.Format.NDJSON
+				: BookRecordReader.Format.CSV;
+
+		logger.info("Importing books from {} as {}", file, format);
+		int exitCode;
+		try (InputStream input = Files.newInputStream(file)) {
+			ImportReportDTO report = bookImportService.importBooks(input, format);
+			report.getErrors().forEach(error -> logger.warn("Line {} rejected: {}", error.getLine(), error.getMessage()));
+			exitCode = report.getRowsRejected() == 0 ? 0 : 1;
+		} catch (Exception ex) {
+			logger.error("Book import from {} failed: {}", file, ex.getMessage());
+			exitCode = 1;
+		}
+		int status = exitCode;
+		System.exit(SpringApplication.exit(context, () -> status));
+	}
+}
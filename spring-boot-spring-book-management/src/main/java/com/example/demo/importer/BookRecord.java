@@ -0,0 +1,22 @@
+package com.example.demo.importer;
+
+import com.example.demo.entity.Book;
+
+/**
+ * One record read from an import file: either a parsed book or the reason the
+ * record could not be parsed.
+ *
+ * @param line  the line number the record starts on
+ * @param book  the parsed book, or null if parsing failed
+ * @param error the parse error, or null if parsing succeeded
+ */
+public record BookRecord(long line, Book book, String error) {
+
+	static BookRecord parsed(long line, Book book) {
+		return new BookRecord(line, book, null);
+	}
+
+	static BookRecord failed(long line, String error) {
+		return new BookRecord(line, null, error);
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.demo.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads books one record at a time from an import file, so files of any size
+ * are parsed in constant memory.
+ */
+public interface BookRecordReader {
+
+	/**
+	 * The supported import file formats.
+	 */
+	enum Format {
+		CSV, NDJSON
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the next record, or null at the end of the input
+	 * @throws IOException if the input cannot be read
+	 */
+	BookRecord next() throws IOException;
+
+	/**
+	 * Creates a reader for the given format.
+	 *
+	 * @param format       the file format
+	 * @param input        the file content, read as UTF-8
+	 * @param objectMapper the mapper used for NDJSON records
+	 * @return the reader
+	 * @throws IOException              if the input cannot be read
+	 * @throws IllegalArgumentException if a CSV header lacks a required column
+	 */
+	static BookRecordReader of(Format format, InputStream input, ObjectMapper objectMapper) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		return format == Format.CSV ? new CsvBookRecordReader(reader) : new NdjsonBookRecordReader(reader, objectMapper);
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.demo.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.demo.entity.Book;
+
+/**
+ * Reads books from CSV. The first line is a header naming the title, author,
+ * genre and price columns in any order; other columns are ignored. Fields may
+ * be quoted, with doubled quotes for a literal quote, and quoted fields may
+ * span lines.
+ */
+class CsvBookRecordReader implements BookRecordReader {
+
+	private static final String[] COLUMNS = { "title", "author", "genre", "price" };
+
+	private final BufferedReader reader;
+	private final Map<String, Integer> columnIndexes = new HashMap<>();
+	private long lineNumber;
+
+	/**
+	 * Creates a reader and reads the header line.
+	 *
+	 * @throws IllegalArgumentException if the header lacks a required column
+	 */
+	CsvBookRecordReader(BufferedReader reader) throws IOException {
+		this.reader = reader;
+		List<String> header = readRow();
+		if (header == null) {
+			return;
+		}
+		for (int i = 0; i < header.size(); i++) {
+			columnIndexes.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+		}
+		for (String column : COLUMNS) {
+			if (!columnIndexes.containsKey(column)) {
+				throw new IllegalArgumentException("CSV header is missing the " + column + " column");
+			}
+		}
+	}
+
+	@Override
+	public BookRecord next() throws IOException {
+		if (columnIndexes.isEmpty()) {
+			return null;
+		}
+		List<String> row;
+		long startLine;
+		do {
+			startLine = lineNumber + 1;
+			row = readRow();
+			if (row == null) {
+				return null;
+			}
+		} while (row.size() == 1 && row.get(0).isBlank());
+
+		Book book = new Book();
+		book.setTitle(field(row, "title"));
+		book.setAuthor(field(row, "author"));
+		book.setGenre(field(row, "genre"));
+		String price = field(row, "price");
+		try {
+			book.setPrice(price == null ? 0 : Double.parseDouble(price.trim()));
+		} catch (NumberFormatException ex) {
+			return BookRecord.failed(startLine, "Invalid price: " + price);
+		}
+		return BookRecord.parsed(startLine, book);
+	}
+
+	private String field(List<String> row, String column) {
+		int index = columnIndexes.get(column);
+		return index < row.size() ? row.get(index) : null;
+	}
+
+	/**
+	 * Reads one CSV row, continuing over line breaks inside quoted fields.
+	 *
+	 * @return the fields of the row, or null at the end of the input
+	 */
+	private List<String> readRow() throws IOException {
+		String line = reader.readLine();
+		if (line == null) {
+			return null;
+		}
+		lineNumber++;
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		int i = 0;
+		while (true) {
+			if (i == line.length()) {
+				if (!quoted) {
+					break;
+				}
+				String nextLine = reader.readLine();
+				if (nextLine == null) {
+					break;
+				}
+				lineNumber++;
+				field.append('\n');
+				line = nextLine;
+				i = 0;
+				continue;
+			}
+			char c = line.charAt(i++);
+			if (quoted) {
+				if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,43 @@
+package com.example.demo.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.example.demo.entity.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads books from newline-delimited JSON, one book object per line. Blank
+ * lines are skipped and any ID in the input is ignored.
+ */
+class NdjsonBookRecordReader implements BookRecordReader {
+
+	private final BufferedReader reader;
+	private final ObjectMapper objectMapper;
+	private long lineNumber;
+
+	NdjsonBookRecordReader(BufferedReader reader, ObjectMapper objectMapper) {
+		this.reader = reader;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public BookRecord next() throws IOException {
+		String line;
+		do {
+			line = reader.readLine();
+			if (line == null) {
+				return null;
+			}
+			lineNumber++;
+		} while (line.isBlank());
+		try {
+			Book book = objectMapper.readValue(line, Book.class);
+			book.setId(null);
+			return BookRecord.parsed(lineNumber, book);
+		} catch (JsonProcessingException ex) {
+			return BookRecord.failed(lineNumber, "Invalid JSON: " + ex.getOriginalMessage());
+		}
+	}
+}
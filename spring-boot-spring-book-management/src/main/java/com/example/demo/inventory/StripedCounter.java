@@ -0,0 +1,116 @@
+package com.example.demo.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter of available units split over independent stripes, so concurrent
+ * buyers of the same book take units from different cache lines with a single
+ * compare-and-set each instead of queueing on one lock or row. A take that no
+ * single stripe can serve drains every stripe under the counter's lock, takes
+ * the units from the total and spreads the rest back. Removals go the same
+ * way, so no stripe is left holding units the total no longer has.
+ * <p>
+ * A take only fails if the total is too small when the stripes are drained;
+ * units added concurrently with a drain may be missed by it.
+ */
+public final class StripedCounter {
+
+	/**
+	 * Stripes are spaced one 64-byte cache line apart.
+	 */
+	private static final int SPACING = 8;
+
+	private final AtomicLongArray cells;
+	private final int stripes;
+
+	/**
+	 * Creates a counter.
+	 *
+	 * @param stripes the number of stripes
+	 * @param initial the initial number of units
+	 */
+	public StripedCounter(int stripes, long initial) {
+		this.stripes = Math.max(1, stripes);
+		this.cells = new AtomicLongArray(this.stripes * SPACING);
+		spread(initial);
+	}
+
+	/**
+	 * Takes units if enough are available.
+	 *
+	 * @param amount the number of units, positive
+	 * @return true if the units were taken
+	 */
+	public boolean tryTake(long amount) {
+		int start = ThreadLocalRandom.current().nextInt(stripes);
+		for (int i = 0; i < stripes; i++) {
+			int index = ((start + i) % stripes) * SPACING;
+			long value;
+			while ((value = cells.get(index)) >= amount) {
+				if (cells.compareAndSet(index, value, value - amount)) {
+					return true;
+				}
+			}
+		}
+		return takeFromAll(amount);
+	}
+
+	/**
+	 * Adds units, or removes them if the amount is negative. The total may drop
+	 * below zero, in which case no take succeeds until units are added again.
+	 *
+	 * @param amount the number of units
+	 */
+	public void add(long amount) {
+		if (amount < 0) {
+			removeFromAll(-amount);
+		} else {
+			cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * SPACING, amount);
+		}
+	}
+
+	/**
+	 * Returns the number of available units. Not atomic with respect to
+	 * concurrent takes and adds.
+	 *
+	 * @return the sum of all stripes
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < stripes; i++) {
+			sum += cells.get(i * SPACING);
+		}
+		return sum;
+	}
+
+	private synchronized boolean takeFromAll(long amount) {
+		long drained = drain();
+		boolean taken = drained >= amount;
+		spread(taken ? drained - amount : drained);
+		return taken;
+	}
+
+	private synchronized void removeFromAll(long amount) {
+		spread(drain() - amount);
+	}
+
+	private long drain() {
+		long drained = 0;
+		for (int i = 0; i < stripes; i++) {
+			drained += cells.getAndSet(i * SPACING, 0);
+		}
+		return drained;
+	}
+
+	private void spread(long amount) {
+		long share = amount / stripes;
+		long remainder = amount % stripes;
+		for (int i = 0; i < stripes; i++) {
+			long part = share + (i < Math.abs(remainder) ? Long.signum(remainder) : 0);
+			if (part != 0) {
+				cells.addAndGet(i * SPACING, part);
+			}
+		}
+	}
+}
@@ -1,21 +1,59 @@
 package com.example.demo.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import com.example.demo.entity.Book;
 
 /**
  * Repository interface for Book entities. 
  * Extends JpaRepository to provide CRUD operations.
+ * <p>
+ * The list and search queries select through a constructor expression, so
+ * their results are plain unmanaged {@code Book} instances: Hibernate keeps no
+ * entity snapshot for dirty checking and the persistence context stays empty.
+ * They run in read-only transactions, in which Hibernate never flushes.
  */
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+	/**
+	 * Select clause building unmanaged books from the columns of {@code b}.
+	 */
+	String SELECT_BOOK = "SELECT new com.example.demo.entity.Book(b.id, b.title, b.author, b.genre, b.price, b.version) "
+			+ "FROM Book b";
+
+	/**
+	 * Search query shared by the unsorted and the sorted, limited search.
+	 */
+	String SEARCH_BOOKS = SELECT_BOOK + " WHERE " + "(:title IS NULL OR b.title LIKE %:title%) AND "
+			+ "(:author IS NULL OR b.author LIKE %:author%) AND " + "(:genre IS NULL OR b.genre LIKE %:genre%) AND "
+			+ "(:minPrice IS NULL OR b.price >= :minPrice) AND " + "(:maxPrice IS NULL OR b.price <= :maxPrice)";
+
+	/**
+	 * Finds every book in ID order as unmanaged instances.
+	 * 
+	 * @return all books
+	 */
+	@Transactional(readOnly = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(SELECT_BOOK + " ORDER BY b.id")
+	List<Book> findAllReadOnly();
+
 	/**
 	 * Custom query to search for books based on various criteria.
 	 * 
@@ -24,12 +62,142 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 	 * @param genre    the genre of the book (optional)
 	 * @param minPrice the minimum price of the book (optional)
 	 * @param maxPrice the maximum price of the book (optional)
-	 * @return a list of books matching the search criteria
+	 * @return a list of books matching the search criteria, as unmanaged instances
 	 */
-	@Query("SELECT b FROM Book b WHERE " + "(:title IS NULL OR b.title LIKE %:title%) AND "
-			+ "(:author IS NULL OR b.author LIKE %:author%) AND " + "(:genre IS NULL OR b.genre LIKE %:genre%) AND "
-			+ "(:minPrice IS NULL OR b.price >= :minPrice) AND " + "(:maxPrice IS NULL OR b.price <= :maxPrice)")
+	@Transactional(readOnly = true)
+	@Query(SEARCH_BOOKS)
 	List<Book> searchBooks(@Param("title") String title, @Param("author") String author, @Param("genre") String genre,
 			@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
 
+	/**
+	 * Searches for books with the ordering and the limit pushed into the query,
+	 * so only the requested rows are read and transferred.
+	 * 
+	 * @param title    the title of the book (optional)
+	 * @param author   the author of the book (optional)
+	 * @param genre    the genre of the book (optional)
+	 * @param minPrice the minimum price of the book (optional)
+	 * @param maxPrice the maximum price of the book (optional)
+	 * @param sort     the ORDER BY clause
+	 * @param limit    the maximum number of rows
+	 * @return the first books matching the search criteria, as unmanaged
+	 *         instances
+	 */
+	@Transactional(readOnly = true)
+	@Query(SEARCH_BOOKS)
+	List<Book> searchBooks(@Param("title") String title, @Param("author") String author, @Param("genre") String genre,
+			@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice, Sort sort, Limit limit);
+
+	/**
+	 * Finds the cheapest books of a genre. The genre is matched exactly, so the
+	 * rows are read in order off the (genre, price) index and the scan stops at
+	 * the limit; ties on price are broken by ID, which the index holds as well.
+	 * 
+	 * @param genre    the genre of the books
+	 * @param minPrice the minimum price of the books (optional)
+	 * @param maxPrice the maximum price of the books (optional)
+	 * @param limit    the maximum number of books
+	 * @return the cheapest books of the genre, as unmanaged instances
+	 */
+	@Transactional(readOnly = true)
+	@Query(SELECT_BOOK + " WHERE b.genre = :genre AND (:minPrice IS NULL OR b.price >= :minPrice) AND "
+			+ "(:maxPrice IS NULL OR b.price <= :maxPrice) ORDER BY b.price, b.id")
+	List<Book> findCheapestByGenre(@Param("genre") String genre, @Param("minPrice") Double minPrice,
+			@Param("maxPrice") Double maxPrice, Limit limit);
+
+	/**
+	 * Finds the books of an author in title order. The author is matched
+	 * exactly, so the rows are read in order off the (author, title) index and
+	 * the scan stops at the limit.
+	 * 
+	 * @param author the author of the books
+	 * @param limit  the maximum number of books
+	 * @return the first books of the author by title, as unmanaged instances
+	 */
+	@Transactional(readOnly = true)
+	@Query(SELECT_BOOK + " WHERE b.author = :author ORDER BY b.title, b.id")
+	List<Book> findByAuthorOrderByTitle(@Param("author") String author, Limit limit);
+
+	/**
+	 * Finds all books whose ID is in the given collection, using a single IN
+	 * query.
+	 * 
+	 * @param ids the IDs of the books
+	 * @return the books found as unmanaged instances; IDs without a matching
+	 *         book are skipped
+	 */
+	@Transactional(readOnly = true)
+	@Query(SELECT_BOOK + " WHERE b.id IN :ids")
+	List<Book> findByIdIn(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Finds the next page of books in ID order, starting after the given ID. Uses
+	 * the primary key index, so every page costs the same however deep it is.
+	 * 
+	 * @param afterId the ID of the last book of the previous page
+	 * @param limit   the maximum number of books to return
+	 * @return the books with an ID greater than afterId, in ID order, as
+	 *         unmanaged instances
+	 */
+	@Transactional(readOnly = true)
+	@Query(SELECT_BOOK + " WHERE b.id > :afterId ORDER BY b.id")
+	List<Book> findByIdGreaterThanOrderByIdAsc(@Param("afterId") Long afterId, Limit limit);
+
+	/**
+	 * Updates the given fields of a book in a single statement and increments its
+	 * version. Null fields keep their current value. When a version is given the
+	 * row is only updated if it still has that version.
+	 * 
+	 * @param id      the ID of the book
+	 * @param title   the new title (optional)
+	 * @param author  the new author (optional)
+	 * @param genre   the new genre (optional)
+	 * @param price   the new price (optional)
+	 * @param version the version the book must have (optional)
+	 * @return the number of rows updated, 0 if the book does not exist or has
+	 *         another version
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Book b SET b.title = COALESCE(:title, b.title), b.author = COALESCE(:author, b.author), "
+			+ "b.genre = COALESCE(:genre, b.genre), b.price = COALESCE(:price, b.price), b.version = b.version + 1 "
+			+ "WHERE b.id = :id AND (:version IS NULL OR b.version = :version)")
+	int patchBook(@Param("id") Long id, @Param("title") String title, @Param("author") String author,
+			@Param("genre") String genre, @Param("price") Double price, @Param("version") Long version);
+
+	/**
+	 * Deletes a book in a single statement, without loading it first. When a
+	 * version is given the row is only deleted if it still has that version.
+	 * 
+	 * @param id      the ID of the book
+	 * @param version the version the book must have (optional)
+	 * @return the number of rows deleted, 0 if the book does not exist or has
+	 *         another version
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("DELETE FROM Book b WHERE b.id = :id AND (:version IS NULL OR b.version = :version)")
+	int deleteBook(@Param("id") Long id, @Param("version") Long version);
+
+	/**
+	 * Streams every book in ID order. Rows are read from a JDBC cursor in chunks
+	 * of the fetch size rather than loaded all at once. Must be called inside a
+	 * transaction and the stream must be closed.
+	 * 
+	 * @return a stream over all books
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT b FROM Book b ORDER BY b.id")
+	Stream<Book> streamAll();
+
+	/**
+	 * Streams the ID of every book from the primary key index. Must be called
+	 * inside a transaction and the stream must be closed.
+	 * 
+	 * @return a stream over all book IDs
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+	@Query("SELECT b.id FROM Book b")
+	Stream<Long> streamAllIds();
+
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.entity.BookStock;
+
+/**
+ * Repository interface for BookStock entities. Stock changes are written in
+ * batches by the inventory service rather than through this repository.
+ */
+@Repository
+public interface BookStockRepository extends JpaRepository<BookStock, Long> {
+}
@@ -0,0 +1,112 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.dto.BookFacetsDTO;
+import com.example.demo.entity.Book;
+
+/**
+ * Mutable genre, author and price bucket counts over a set of books. Counts
+ * can be added and removed one book at a time, so an aggregate over the whole
+ * catalog can be kept current as books are saved and deleted. Not thread-safe.
+ */
+public class BookFacetCounts {
+
+	/**
+	 * Lower bounds of the price buckets after the first, which starts at zero.
+	 */
+	static final double[] PRICE_BOUNDS = { 10, 25, 50, 100 };
+
+	private final Map<String, Long> genres = new HashMap<>();
+	private final Map<String, Long> authors = new HashMap<>();
+	private final long[] prices = new long[PRICE_BOUNDS.length + 1];
+	private long total;
+
+	/**
+	 * Counts the given books.
+	 *
+	 * @param books the books to count
+	 * @return the counts
+	 */
+	public static BookFacetCounts of(Iterable<Book> books) {
+		BookFacetCounts counts = new BookFacetCounts();
+		for (Book book : books) {
+			counts.add(book.getGenre(), book.getAuthor(), book.getPrice());
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts one book.
+	 *
+	 * @param genre  the genre of the book
+	 * @param author the author of the book
+	 * @param price  the price of the book
+	 */
+	public void add(String genre, String author, double price) {
+		increment(genres, genre, 1);
+		increment(authors, author, 1);
+		prices[bucketOf(price)]++;
+		total++;
+	}
+
+	/**
+	 * Removes one previously counted book.
+	 *
+	 * @param genre  the genre of the book
+	 * @param author the author of the book
+	 * @param price  the price of the book
+	 */
+	public void remove(String genre, String author, double price) {
+		increment(genres, genre, -1);
+		increment(authors, author, -1);
+		prices[bucketOf(price)]--;
+		total--;
+	}
+
+	/**
+	 * Returns a snapshot of the counts.
+	 *
+	 * @param topAuthors the maximum number of authors to include
+	 * @return the facet counts
+	 */
+	public BookFacetsDTO toDTO(int topAuthors) {
+		List<BookFacetsDTO.PriceBucket> buckets = new ArrayList<>(prices.length);
+		for (int i = 0; i < prices.length; i++) {
+			double from = i == 0 ? 0 : PRICE_BOUNDS[i - 1];
+			Double to = i < PRICE_BOUNDS.length ? PRICE_BOUNDS[i] : null;
+			buckets.add(new BookFacetsDTO.PriceBucket(from, to, prices[i]));
+		}
+		return new BookFacetsDTO(total, top(genres, Integer.MAX_VALUE), top(authors, topAuthors), buckets);
+	}
+
+	private static int bucketOf(double price) {
+		int bucket = 0;
+		while (bucket < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket]) {
+			bucket++;
+		}
+		return bucket;
+	}
+
+	private static void increment(Map<String, Long> counts, String value, long delta) {
+		if (value == null || value.isBlank()) {
+			return;
+		}
+		counts.merge(value.trim(), delta, (count, change) -> count + change == 0 ? null : count + change);
+	}
+
+	private static Map<String, Long> top(Map<String, Long> counts, int limit) {
+		Map<String, Long> top = new LinkedHashMap<>();
+		counts.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+						.thenComparing(Map.Entry.comparingByKey()))
+				.limit(limit)
+				.forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+		return top;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.snapshot.CatalogSnapshot;
+
+/**
+ * Builds the search and suggestion indexes from the database once the
+ * application has started. Until the search index is ready, searches fall back
+ * to the database query. The same catalog read checks the catalog snapshot
+ * left by the previous run before it is served.
+ */
+@Component
+public class BookIndexLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookIndexLoader.class);
+
+	private final BookRepository bookRepository;
+	private final BookSearchIndex searchIndex;
+	private final BookSuggestIndex suggestIndex;
+	private final CatalogSnapshot catalogSnapshot;
+
+	public BookIndexLoader(BookRepository bookRepository, BookSearchIndex searchIndex, BookSuggestIndex suggestIndex,
+			CatalogSnapshot catalogSnapshot) {
+		this.bookRepository = bookRepository;
+		this.searchIndex = searchIndex;
+		this.suggestIndex = suggestIndex;
+		this.catalogSnapshot = catalogSnapshot;
+	}
+
+	/**
+	 * Loads every book into the search and suggestion indexes and checks the
+	 * catalog snapshot against them. The catalog is read once; the rebuilds are
+	 * nested so both indexes track writes made while it is being read.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadIndex() {
+		long start = System.currentTimeMillis();
+		try {
+			List<Book> books = new ArrayList<>();
+			suggestIndex.rebuild(() -> {
+				searchIndex.rebuild(() -> {
+					books.addAll(bookRepository.findAllReadOnly());
+					return books;
+				});
+				return books;
+			});
+			logger.info("Search indexes built from {} books in {} ms", books.size(), System.currentTimeMillis() - start);
+			catalogSnapshot.checkAgainst(books);
+		} catch (RuntimeException ex) {
+			logger.error("Could not build the search index, searches will use the database: {}", ex.getMessage());
+		}
+	}
+}
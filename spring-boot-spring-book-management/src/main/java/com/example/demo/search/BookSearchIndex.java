@@ -0,0 +1,456 @@
+package com.example.demo.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.BookFacetsDTO;
+import com.example.demo.entity.Book;
+
+/**
+ * In-memory inverted index over the title, author and genre of every book.
+ * Text is tokenized, lower-cased and stripped of accents; each query token
+ * must match a token of the field it targets, either exactly or as a prefix.
+ * Results are ranked by how rare the matched tokens are, exact matches scoring
+ * above prefix matches. The index keeps a copy of every book so searches are
+ * answered without touching the database. Genre, author and price counts over
+ * the whole catalog are kept up to date as books are indexed and removed.
+ * <p>
+ * Updates can arrive out of order when two saves of a book race: an update
+ * older than the indexed version of the book is ignored, and so is any update
+ * of a book removed within the last {@value BookTombstones#TTL_SECONDS}
+ * seconds, so a save that read the book before it was deleted cannot bring it
+ * back.
+ */
+@Component
+public class BookSearchIndex {
+
+	private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	/**
+	 * The searchable fields of a book.
+	 */
+	public enum Field {
+		TITLE, AUTHOR, GENRE
+	}
+
+	private final Map<Long, IndexedBook> documents = new HashMap<>();
+	private final Map<Field, NavigableMap<String, Set<Long>>> postings = new EnumMap<>(Field.class);
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final BookTombstones tombstones = new BookTombstones();
+	private BookFacetCounts catalogFacets = new BookFacetCounts();
+	private Set<Long> changedDuringRebuild;
+	private volatile boolean ready;
+
+	public BookSearchIndex() {
+		for (Field field : Field.values()) {
+			postings.put(field, new TreeMap<>());
+		}
+	}
+
+	/**
+	 * Replaces the whole content of the index with the books returned by the
+	 * loader and marks it ready for searches. The loader runs without holding the
+	 * index lock; books indexed or removed while it runs keep their newer state.
+	 *
+	 * @param loader supplies every book in the catalog
+	 */
+	public void rebuild(Supplier<? extends Collection<Book>> loader) {
+		lock.writeLock().lock();
+		try {
+			changedDuringRebuild = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		Collection<Book> books;
+		try {
+			books = loader.get();
+		} catch (RuntimeException ex) {
+			lock.writeLock().lock();
+			try {
+				changedDuringRebuild = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw ex;
+		}
+		lock.writeLock().lock();
+		try {
+			List<IndexedBook> newer = new ArrayList<>();
+			for (Long id : changedDuringRebuild) {
+				IndexedBook document = documents.get(id);
+				if (document != null) {
+					newer.add(document);
+				}
+			}
+			documents.clear();
+			postings.values().forEach(Map::clear);
+			catalogFacets = new BookFacetCounts();
+			for (Book book : books) {
+				if (!changedDuringRebuild.contains(book.getId()) && !tombstones.contains(book.getId())) {
+					add(IndexedBook.of(book));
+				}
+			}
+			newer.forEach(this::add);
+			changedDuringRebuild = null;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a book to the index, replacing any previous version of it. A book
+	 * older than the indexed version or removed a moment ago is ignored.
+	 *
+	 * @param book the book to index
+	 */
+	public void index(Book book) {
+		lock.writeLock().lock();
+		try {
+			IndexedBook current = documents.get(book.getId());
+			if (current != null && book.getVersion() < current.version() || tombstones.contains(book.getId())) {
+				return;
+			}
+			delete(book.getId());
+			add(IndexedBook.of(book));
+			recordChange(book.getId());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a book from the index and ignores updates of it for a while.
+	 *
+	 * @param id the ID of the book to remove
+	 */
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			delete(id);
+			tombstones.add(id);
+			recordChange(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Tells whether the index has been loaded and can answer searches.
+	 *
+	 * @return true once the index has been built
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Searches the index. Blank text criteria are ignored, as are missing price
+	 * bounds; a search without any criteria returns every book.
+	 *
+	 * @param title    text to match against the title (optional)
+	 * @param author   text to match against the author (optional)
+	 * @param genre    text to match against the genre (optional)
+	 * @param minPrice the minimum price of the book (optional)
+	 * @param maxPrice the maximum price of the book (optional)
+	 * @return the matching books, best match first
+	 */
+	public List<Book> search(String title, String author, String genre, Double minPrice, Double maxPrice) {
+		return search(title, author, genre, minPrice, maxPrice, null, null);
+	}
+
+	/**
+	 * Searches the index and returns the first matching books in the requested
+	 * order. With a limit only that many books are kept while the matches are
+	 * ranked, so a top-N query never sorts or copies the whole result.
+	 *
+	 * @param title    text to match against the title (optional)
+	 * @param author   text to match against the author (optional)
+	 * @param genre    text to match against the genre (optional)
+	 * @param minPrice the minimum price of the book (optional)
+	 * @param maxPrice the maximum price of the book (optional)
+	 * @param sort     the order of the books, or null for best match first
+	 * @param limit    the maximum number of books returned (optional)
+	 * @return the matching books
+	 */
+	public List<Book> search(String title, String author, String genre, Double minPrice, Double maxPrice,
+			BookSort sort, Integer limit) {
+		Map<Field, List<String>> query = parse(title, author, genre);
+		lock.readLock().lock();
+		try {
+			Map<Long, Double> scores = match(query, minPrice, maxPrice);
+			Comparator<Long> order = sort == null
+					? Comparator.<Long, Double>comparing(scores::get, Comparator.reverseOrder())
+							.thenComparing(Comparator.naturalOrder())
+					: Comparator.comparing(documents::get, ordering(sort));
+			List<Long> ranked = top(scores.keySet(), order, limit);
+			List<Book> books = new ArrayList<>(ranked.size());
+			ranked.forEach(id -> books.add(documents.get(id).toBook()));
+			return books;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the books matching a search by genre, author and price bucket. A
+	 * search without any criteria is answered from the catalog-wide counts;
+	 * otherwise only the matching books are counted.
+	 *
+	 * @param title      text to match against the title (optional)
+	 * @param author     text to match against the author (optional)
+	 * @param genre      text to match against the genre (optional)
+	 * @param minPrice   the minimum price of the book (optional)
+	 * @param maxPrice   the maximum price of the book (optional)
+	 * @param topAuthors the maximum number of authors to report
+	 * @return the facet counts of the matching books
+	 */
+	public BookFacetsDTO facets(String title, String author, String genre, Double minPrice, Double maxPrice,
+			int topAuthors) {
+		Map<Field, List<String>> query = parse(title, author, genre);
+		lock.readLock().lock();
+		try {
+			if (query.isEmpty() && minPrice == null && maxPrice == null) {
+				return catalogFacets.toDTO(topAuthors);
+			}
+			BookFacetCounts counts = new BookFacetCounts();
+			for (Long id : match(query, minPrice, maxPrice).keySet()) {
+				IndexedBook document = documents.get(id);
+				counts.add(document.genre(), document.author(), document.price());
+			}
+			return counts.toDTO(topAuthors);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Splits text into normalized tokens: accents removed, lower-cased and split
+	 * on anything that is not a letter or a digit.
+	 *
+	 * @param text the text to tokenize
+	 * @return the distinct tokens in order of appearance
+	 */
+	public static Set<String> tokenize(String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		if (text == null) {
+			return tokens;
+		}
+		for (String token : NON_WORD.split(foldCase(text))) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Normalizes text the same way as {@link #tokenize(String)} but keeps every
+	 * token, in order, separated by single spaces.
+	 *
+	 * @param text the text to normalize
+	 * @return the normalized text, empty if the text has no tokens
+	 */
+	public static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		return NON_WORD.matcher(foldCase(text)).replaceAll(" ").trim();
+	}
+
+	private static String foldCase(String text) {
+		return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the first IDs in the given order, keeping at most {@code limit} of
+	 * them in a heap while scanning.
+	 */
+	private static List<Long> top(Collection<Long> ids, Comparator<Long> order, Integer limit) {
+		if (limit == null || limit >= ids.size()) {
+			List<Long> sorted = new ArrayList<>(ids);
+			sorted.sort(order);
+			return sorted;
+		}
+		PriorityQueue<Long> heap = new PriorityQueue<>(limit + 1, order.reversed());
+		for (Long id : ids) {
+			heap.offer(id);
+			if (heap.size() > limit) {
+				heap.poll();
+			}
+		}
+		List<Long> sorted = new ArrayList<>(heap);
+		sorted.sort(order);
+		return sorted;
+	}
+
+	private static Comparator<IndexedBook> ordering(BookSort sort) {
+		return switch (sort) {
+		case CHEAPEST -> Comparator.comparingDouble(IndexedBook::price).thenComparing(IndexedBook::id);
+		case NEWEST -> Comparator.comparing(IndexedBook::id, Comparator.reverseOrder());
+		case TITLE -> Comparator.comparing(IndexedBook::title, String.CASE_INSENSITIVE_ORDER)
+				.thenComparing(IndexedBook::id);
+		};
+	}
+
+	private static Map<Field, List<String>> parse(String title, String author, String genre) {
+		Map<Field, List<String>> query = new EnumMap<>(Field.class);
+		putTokens(query, Field.TITLE, title);
+		putTokens(query, Field.AUTHOR, author);
+		putTokens(query, Field.GENRE, genre);
+		return query;
+	}
+
+	private static void putTokens(Map<Field, List<String>> query, Field field, String text) {
+		Set<String> tokens = tokenize(text);
+		if (!tokens.isEmpty()) {
+			query.put(field, new ArrayList<>(tokens));
+		}
+	}
+
+	/**
+	 * Scores the documents matching the query tokens and the price bounds. Must
+	 * be called while holding the read lock.
+	 */
+	private Map<Long, Double> match(Map<Field, List<String>> query, Double minPrice, Double maxPrice) {
+		Map<Long, Double> scores = query.isEmpty() ? scoreAll() : score(query);
+		if (minPrice != null || maxPrice != null) {
+			scores.keySet().removeIf(id -> {
+				double price = documents.get(id).price();
+				return minPrice != null && price < minPrice || maxPrice != null && price > maxPrice;
+			});
+		}
+		return scores;
+	}
+
+	private Map<Long, Double> scoreAll() {
+		Map<Long, Double> scores = new HashMap<>();
+		documents.keySet().forEach(id -> scores.put(id, 0.0));
+		return scores;
+	}
+
+	/**
+	 * Scores the documents matching every query token. Candidates are narrowed
+	 * token by token, so a query stops as soon as one token matches nothing.
+	 */
+	private Map<Long, Double> score(Map<Field, List<String>> query) {
+		Map<Long, Double> scores = null;
+		for (Map.Entry<Field, List<String>> criterion : query.entrySet()) {
+			NavigableMap<String, Set<Long>> fieldPostings = postings.get(criterion.getKey());
+			for (String token : criterion.getValue()) {
+				Map<Long, Double> tokenScores = scoreToken(fieldPostings, token);
+				if (scores == null) {
+					scores = tokenScores;
+				} else {
+					scores.keySet().retainAll(tokenScores.keySet());
+					scores.replaceAll((id, score) -> score + tokenScores.get(id));
+				}
+				if (scores.isEmpty()) {
+					return scores;
+				}
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Scores the documents containing a token of the field that starts with the
+	 * query token. Each matching term contributes its inverse document frequency,
+	 * halved when it only matches as a prefix.
+	 */
+	private Map<Long, Double> scoreToken(NavigableMap<String, Set<Long>> fieldPostings, String token) {
+		Map<Long, Double> scores = new HashMap<>();
+		double documentCount = Math.max(documents.size(), 1);
+		for (Map.Entry<String, Set<Long>> term : fieldPostings.subMap(token, true, token + Character.MAX_VALUE, true)
+				.entrySet()) {
+			double idf = Math.log(1 + documentCount / term.getValue().size());
+			double weight = term.getKey().equals(token) ? idf : idf / 2;
+			for (Long id : term.getValue()) {
+				scores.merge(id, weight, Math::max);
+			}
+		}
+		return scores;
+	}
+
+	private void recordChange(Long id) {
+		if (changedDuringRebuild != null) {
+			changedDuringRebuild.add(id);
+		}
+	}
+
+	private void add(IndexedBook document) {
+		documents.put(document.id(), document);
+		catalogFacets.add(document.genre(), document.author(), document.price());
+		addPostings(Field.TITLE, document.title(), document.id());
+		addPostings(Field.AUTHOR, document.author(), document.id());
+		addPostings(Field.GENRE, document.genre(), document.id());
+	}
+
+	private void delete(Long id) {
+		IndexedBook document = documents.remove(id);
+		if (document != null) {
+			catalogFacets.remove(document.genre(), document.author(), document.price());
+			removePostings(Field.TITLE, document.title(), id);
+			removePostings(Field.AUTHOR, document.author(), id);
+			removePostings(Field.GENRE, document.genre(), id);
+		}
+	}
+
+	private void addPostings(Field field, String text, Long id) {
+		for (String token : tokenize(text)) {
+			postings.get(field).computeIfAbsent(token, key -> new HashSet<>()).add(id);
+		}
+	}
+
+	private void removePostings(Field field, String text, Long id) {
+		NavigableMap<String, Set<Long>> fieldPostings = postings.get(field);
+		for (String token : tokenize(text)) {
+			Set<Long> ids = fieldPostings.get(token);
+			if (ids != null && ids.remove(id) && ids.isEmpty()) {
+				fieldPostings.remove(token);
+			}
+		}
+	}
+
+	/**
+	 * Immutable copy of the stored fields of an indexed book.
+	 */
+	private record IndexedBook(Long id, String title, String author, String genre, double price, long version) {
+
+		static IndexedBook of(Book book) {
+			return new IndexedBook(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice(),
+					book.getVersion());
+		}
+
+		Book toBook() {
+			Book book = new Book();
+			book.setId(id);
+			book.setTitle(title);
+			book.setAuthor(author);
+			book.setGenre(genre);
+			book.setPrice(price);
+			book.setVersion(version);
+			return book;
+		}
+	}
+}
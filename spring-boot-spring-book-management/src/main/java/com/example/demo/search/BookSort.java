@@ -0,0 +1,56 @@
+package com.example.demo.search;
+
+import java.util.Locale;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * The orderings a search can ask for instead of relevance. Ties are broken by
+ * ID so a limited result is stable.
+ */
+public enum BookSort {
+
+	/**
+	 * Lowest price first.
+	 */
+	CHEAPEST(Sort.by("price", "id")),
+
+	/**
+	 * Most recently added first, by descending ID.
+	 */
+	NEWEST(Sort.by(Sort.Direction.DESC, "id")),
+
+	/**
+	 * Alphabetical by title.
+	 */
+	TITLE(Sort.by("title", "id"));
+
+	private final Sort sort;
+
+	BookSort(Sort sort) {
+		this.sort = sort;
+	}
+
+	/**
+	 * Returns the ordering as a Spring Data sort, to push it into the query.
+	 *
+	 * @return the sort
+	 */
+	public Sort toSort() {
+		return sort;
+	}
+
+	/**
+	 * Parses a request parameter, ignoring case.
+	 *
+	 * @param value the parameter value
+	 * @return the ordering, or null if the value names none
+	 */
+	public static BookSort fromParameter(String value) {
+		try {
+			return valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,436 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.BookSuggestionDTO;
+import com.example.demo.entity.Book;
+
+/**
+ * In-memory prefix index over book titles and author names for
+ * search-as-you-type. Every title and author is reachable in a character trie
+ * from the start of each of its words, so "hob" suggests "The Hobbit". Each
+ * trie node holds its best {@value #TOP_K} suggestions, precomputed from its
+ * children, so a lookup is a walk down the trie and a copy of one short list.
+ * Suggestions are ranked by the number of books they stand for, then shorter
+ * text first.
+ * <p>
+ * Like {@link BookSearchIndex}, the index ignores updates older than the
+ * indexed version of a book and updates of a book removed within the last
+ * {@value BookTombstones#TTL_SECONDS} seconds.
+ */
+@Component
+public class BookSuggestIndex {
+
+	/**
+	 * The number of suggestions kept per trie node.
+	 */
+	public static final int TOP_K = 10;
+
+	/**
+	 * The depth of the trie. Longer keys end at a node of this depth and longer
+	 * queries are matched against the keys stored there.
+	 */
+	private static final int MAX_DEPTH = 12;
+
+	/**
+	 * The fields suggestions are taken from.
+	 */
+	public enum Field {
+		TITLE, AUTHOR
+	}
+
+	private static final Comparator<Suggestion> RANKING = Comparator
+			.<Suggestion>comparingInt(suggestion -> -suggestion.books)
+			.thenComparingInt(suggestion -> suggestion.text.length())
+			.thenComparing(suggestion -> suggestion.text)
+			.thenComparing(suggestion -> suggestion.field);
+
+	private record IndexedBook(String title, String author, long version) {
+
+		static IndexedBook of(Book book) {
+			return new IndexedBook(book.getTitle(), book.getAuthor(), book.getVersion());
+		}
+
+		boolean sameText(IndexedBook other) {
+			return other != null && Objects.equals(title, other.title) && Objects.equals(author, other.author);
+		}
+	}
+
+	private record SuggestionKey(Field field, String text) {
+	}
+
+	private final Map<Long, IndexedBook> books = new HashMap<>();
+	private final Map<SuggestionKey, Suggestion> suggestions = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final BookTombstones tombstones = new BookTombstones();
+	private Node root = new Node();
+	private Set<Long> changedDuringRebuild;
+
+	/**
+	 * Replaces the whole content of the index with the books returned by the
+	 * loader. The loader runs without holding the index lock; books indexed or
+	 * removed while it runs keep their newer state.
+	 *
+	 * @param loader supplies every book in the catalog
+	 */
+	public void rebuild(Supplier<? extends Collection<Book>> loader) {
+		lock.writeLock().lock();
+		try {
+			changedDuringRebuild = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		Collection<Book> loaded;
+		try {
+			loaded = loader.get();
+		} catch (RuntimeException ex) {
+			lock.writeLock().lock();
+			try {
+				changedDuringRebuild = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw ex;
+		}
+		lock.writeLock().lock();
+		try {
+			Map<Long, IndexedBook> newer = new HashMap<>();
+			for (Long id : changedDuringRebuild) {
+				IndexedBook book = books.get(id);
+				if (book != null) {
+					newer.put(id, book);
+				}
+			}
+			books.clear();
+			suggestions.clear();
+			for (Book book : loaded) {
+				if (!changedDuringRebuild.contains(book.getId()) && !tombstones.contains(book.getId())) {
+					books.put(book.getId(), IndexedBook.of(book));
+				}
+			}
+			books.putAll(newer);
+			root = new Node();
+			for (IndexedBook book : books.values()) {
+				for (Suggestion suggestion : List.of(suggestionFor(Field.TITLE, book.title()),
+						suggestionFor(Field.AUTHOR, book.author()))) {
+					if (suggestion.books++ == 0) {
+						for (String key : suggestion.keys) {
+							nodeFor(key, true).addTerminal(suggestion);
+						}
+					}
+				}
+			}
+			root.rank();
+			changedDuringRebuild = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a book to the index, replacing any previous version of it. Saving a
+	 * book without changing its title or author leaves the trie untouched. A
+	 * book older than the indexed version or removed a moment ago is ignored.
+	 *
+	 * @param book the book to index
+	 */
+	public void index(Book book) {
+		lock.writeLock().lock();
+		try {
+			IndexedBook current = books.get(book.getId());
+			if (current != null && book.getVersion() < current.version() || tombstones.contains(book.getId())) {
+				return;
+			}
+			IndexedBook indexed = IndexedBook.of(book);
+			if (!indexed.sameText(current)) {
+				delete(book.getId());
+				changeWeight(suggestionFor(Field.TITLE, book.getTitle()), 1);
+				changeWeight(suggestionFor(Field.AUTHOR, book.getAuthor()), 1);
+			}
+			books.put(book.getId(), indexed);
+			recordChange(book.getId());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a book from the index and ignores updates of it for a while.
+	 *
+	 * @param id the ID of the book to remove
+	 */
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			delete(id);
+			tombstones.add(id);
+			recordChange(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the best titles and authors having a word that starts with the
+	 * query. Matching ignores case and accents; the words of a multi-word query
+	 * must follow each other in the suggestion.
+	 *
+	 * @param query the text typed so far
+	 * @param limit the maximum number of suggestions, at most {@value #TOP_K}
+	 * @return the suggestions, best first
+	 */
+	public List<BookSuggestionDTO> suggest(String query, int limit) {
+		String prefix = BookSearchIndex.normalize(query);
+		List<BookSuggestionDTO> result = new ArrayList<>();
+		if (prefix.isEmpty()) {
+			return result;
+		}
+		lock.readLock().lock();
+		try {
+			Node node = nodeFor(prefix, false);
+			if (node == null) {
+				return result;
+			}
+			List<Suggestion> candidates = node.top;
+			if (prefix.length() > MAX_DEPTH) {
+				candidates = new ArrayList<>();
+				for (Suggestion suggestion : node.terminals()) {
+					if (suggestion.keys.stream().anyMatch(key -> key.startsWith(prefix))) {
+						candidates.add(suggestion);
+					}
+				}
+				candidates.sort(RANKING);
+			}
+			for (Suggestion suggestion : candidates) {
+				if (result.size() == limit) {
+					break;
+				}
+				result.add(new BookSuggestionDTO(suggestion.text, suggestion.field.name(), suggestion.books));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void delete(Long id) {
+		IndexedBook book = books.remove(id);
+		if (book != null) {
+			changeWeight(suggestionFor(Field.TITLE, book.title()), -1);
+			changeWeight(suggestionFor(Field.AUTHOR, book.author()), -1);
+		}
+	}
+
+	/**
+	 * Changes the number of books a suggestion stands for and re-ranks every trie
+	 * node on the paths of its keys, bottom up.
+	 */
+	private void changeWeight(Suggestion suggestion, int delta) {
+		suggestion.books += delta;
+		if (suggestion.books <= 0) {
+			suggestions.remove(new SuggestionKey(suggestion.field, suggestion.text));
+		}
+		for (String key : suggestion.keys) {
+			List<Node> path = pathFor(key);
+			Node last = path.get(path.size() - 1);
+			if (suggestion.books > 0) {
+				last.addTerminal(suggestion);
+			} else {
+				last.removeTerminal(suggestion);
+			}
+			for (int depth = path.size() - 1; depth >= 0; depth--) {
+				Node node = path.get(depth);
+				if (depth > 0 && node.isEmpty()) {
+					path.get(depth - 1).children.remove(key.charAt(depth - 1));
+				} else {
+					node.rankSelf();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the suggestion for a title or author, creating it with no books if
+	 * it is not known yet.
+	 */
+	private Suggestion suggestionFor(Field field, String text) {
+		return suggestions.computeIfAbsent(new SuggestionKey(field, text), key -> new Suggestion(field, text));
+	}
+
+	/**
+	 * Returns the nodes from the root to the node of a key, creating missing
+	 * nodes.
+	 */
+	private List<Node> pathFor(String key) {
+		List<Node> path = new ArrayList<>();
+		Node node = root;
+		path.add(node);
+		for (int i = 0; i < Math.min(key.length(), MAX_DEPTH); i++) {
+			node = node.child(key.charAt(i), true);
+			path.add(node);
+		}
+		return path;
+	}
+
+	private Node nodeFor(String key, boolean create) {
+		Node node = root;
+		for (int i = 0; i < Math.min(key.length(), MAX_DEPTH) && node != null; i++) {
+			node = node.child(key.charAt(i), create);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the trie keys of a text: its normalized form starting at each word.
+	 */
+	private static List<String> keys(String text) {
+		Set<String> keys = new LinkedHashSet<>();
+		String normalized = BookSearchIndex.normalize(text);
+		if (normalized.isEmpty()) {
+			return List.of();
+		}
+		int start = 0;
+		while (start >= 0) {
+			keys.add(normalized.substring(start));
+			int space = normalized.indexOf(' ', start);
+			start = space < 0 ? -1 : space + 1;
+		}
+		return List.copyOf(keys);
+	}
+
+	private void recordChange(Long id) {
+		if (changedDuringRebuild != null) {
+			changedDuringRebuild.add(id);
+		}
+	}
+
+	/**
+	 * A title or author and the number of books it stands for. There is one
+	 * instance per title or author, shared by every trie node that refers to it.
+	 */
+	private static final class Suggestion {
+
+		private final Field field;
+		private final String text;
+		private final List<String> keys;
+		private int books;
+
+		Suggestion(Field field, String text) {
+			this.field = field;
+			this.text = text;
+			this.keys = keys(text);
+		}
+	}
+
+	/**
+	 * One trie node: the suggestions whose key ends here and the best
+	 * suggestions of the whole subtree. Collections are allocated on first use
+	 * since most nodes have a single child and no keys.
+	 */
+	private static final class Node {
+
+		private Map<Character, Node> children;
+		private List<Suggestion> terminals;
+		private List<Suggestion> top = List.of();
+
+		Node child(char c, boolean create) {
+			if (children == null) {
+				if (!create) {
+					return null;
+				}
+				children = new HashMap<>(2);
+			}
+			return create ? children.computeIfAbsent(c, key -> new Node()) : children.get(c);
+		}
+
+		List<Suggestion> terminals() {
+			return terminals == null ? List.of() : terminals;
+		}
+
+		void addTerminal(Suggestion suggestion) {
+			if (terminals == null) {
+				terminals = new ArrayList<>(1);
+			}
+			if (!terminals.contains(suggestion)) {
+				terminals.add(suggestion);
+			}
+		}
+
+		void removeTerminal(Suggestion suggestion) {
+			if (terminals != null && terminals.remove(suggestion) && terminals.isEmpty()) {
+				terminals = null;
+			}
+		}
+
+		boolean isEmpty() {
+			return (children == null || children.isEmpty()) && terminals == null;
+		}
+
+		/**
+		 * Ranks the whole subtree, children first.
+		 */
+		void rank() {
+			if (children != null) {
+				children.values().forEach(Node::rank);
+			}
+			rankSelf();
+		}
+
+		/**
+		 * Recomputes the best suggestions of this node from its own keys and the
+		 * already ranked best suggestions of its children.
+		 */
+		void rankSelf() {
+			List<Suggestion> best = new ArrayList<>(TOP_K);
+			terminals().forEach(suggestion -> offer(best, suggestion));
+			if (children != null) {
+				for (Node child : children.values()) {
+					for (Suggestion suggestion : child.top) {
+						if (!offer(best, suggestion)) {
+							break;
+						}
+					}
+				}
+			}
+			top = best;
+		}
+
+		/**
+		 * Inserts a suggestion into a ranked list of at most {@value #TOP_K}
+		 * entries.
+		 *
+		 * @return false if the suggestion ranks below a full list
+		 */
+		private static boolean offer(List<Suggestion> best, Suggestion suggestion) {
+			if (best.size() == TOP_K && RANKING.compare(suggestion, best.get(TOP_K - 1)) >= 0) {
+				return false;
+			}
+			if (best.contains(suggestion)) {
+				return true;
+			}
+			int position = best.size();
+			while (position > 0 && RANKING.compare(suggestion, best.get(position - 1)) < 0) {
+				position--;
+			}
+			best.add(position, suggestion);
+			if (best.size() > TOP_K) {
+				best.remove(TOP_K);
+			}
+			return true;
+		}
+	}
+}
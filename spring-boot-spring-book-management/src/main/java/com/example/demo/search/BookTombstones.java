@@ -0,0 +1,59 @@
+package com.example.demo.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IDs of recently removed books, kept for {@value #TTL_SECONDS} seconds so
+ * an index can ignore updates that were read before the removal but arrive
+ * after it. Book IDs are never reused, so every update of a removed ID is
+ * stale. Not thread-safe: the owning index calls it under its write lock.
+ */
+final class BookTombstones {
+
+	static final long TTL_SECONDS = 60;
+
+	private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(TTL_SECONDS);
+
+	/**
+	 * Expiry time of each tombstone, oldest first.
+	 */
+	private final Map<Long, Long> expiries = new LinkedHashMap<>();
+
+	/**
+	 * Records that a book was removed.
+	 *
+	 * @param id the ID of the book
+	 */
+	void add(Long id) {
+		long now = System.nanoTime();
+		purge(now);
+		expiries.remove(id);
+		expiries.put(id, now + TTL_NANOS);
+	}
+
+	/**
+	 * Tells whether a book was removed within the last {@value #TTL_SECONDS}
+	 * seconds.
+	 *
+	 * @param id the ID of the book
+	 * @return true if updates of the book must be ignored
+	 */
+	boolean contains(Long id) {
+		purge(System.nanoTime());
+		return expiries.containsKey(id);
+	}
+
+	/**
+	 * Drops expired tombstones. They expire in insertion order, so only the head
+	 * of the map is looked at.
+	 */
+	private void purge(long now) {
+		Iterator<Long> iterator = expiries.values().iterator();
+		while (iterator.hasNext() && iterator.next() - now <= 0) {
+			iterator.remove();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.example.demo.dto.ImportReportDTO;
+import com.example.demo.importer.BookRecordReader;
+
+/**
+ * Service interface for bulk importing books.
+ */
+public interface BookImportService {
+
+	/**
+	 * Imports every valid book from the input. Invalid rows are skipped and
+	 * reported; they do not stop the import.
+	 * 
+	 * @param input  the file content
+	 * @param format the file format
+	 * @return the import report
+	 * @throws IOException              if the input cannot be read
+	 * @throws IllegalArgumentException if a CSV header lacks a required column
+	 */
+	ImportReportDTO importBooks(InputStream input, BookRecordReader.Format format) throws IOException;
+}
@@ -0,0 +1,176 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.BookSearchCache;
+import com.example.demo.dto.ImportReportDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.events.BookChangeStream;
+import com.example.demo.importer.BookRecord;
+import com.example.demo.importer.BookRecordReader;
+import com.example.demo.search.BookIndexLoader;
+import com.example.demo.snapshot.CatalogSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Implementation of the BookImportService interface. Parses the input as a
+ * stream, validates each row against the Book constraints and writes valid
+ * rows with batched JDBC inserts, one transaction per batch.
+ * <p>
+ * Hibernate cannot batch inserts of entities with IDENTITY IDs, so the import
+ * bypasses JPA and lets MySQL assign the IDs of a whole batch in one multi-row
+ * insert.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookImportServiceImpl.class);
+
+	private static final String INSERT_SQL = "INSERT INTO book (title, author, genre, price, version) VALUES (?, ?, ?, ?, 0)";
+	private static final int MAX_REPORTED_ERRORS = 1000;
+	private static final long PROGRESS_INTERVAL = 100_000;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Validator validator;
+	private final ObjectMapper objectMapper;
+	private final BookIndexLoader indexLoader;
+	private final CatalogSnapshot catalogSnapshot;
+	private final BookSearchCache searchCache;
+	private final BookChangeStream changeStream;
+	private final int batchSize;
+
+	public BookImportServiceImpl(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+			Validator validator, ObjectMapper objectMapper, BookIndexLoader indexLoader,
+			CatalogSnapshot catalogSnapshot, BookSearchCache searchCache, BookChangeStream changeStream,
+			@Value("${book.import.batch-size:1000}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.validator = validator;
+		this.objectMapper = objectMapper;
+		this.indexLoader = indexLoader;
+		this.catalogSnapshot = catalogSnapshot;
+		this.searchCache = searchCache;
+		this.changeStream = changeStream;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Imports every valid book from the input. If anything was imported, the
+	 * search indexes are rebuilt and the startup catalog snapshot, which does not
+	 * contain the new books, stops serving reads. Change stream consumers are
+	 * told to drop their caches. Batches are committed as they are written, so
+	 * this also happens when reading the input fails partway through.
+	 * 
+	 * @param input  the file content
+	 * @param format the file format
+	 * @return the import report
+	 * @throws IOException if the input cannot be read
+	 */
+	@Override
+	public ImportReportDTO importBooks(InputStream input, BookRecordReader.Format format) throws IOException {
+		long start = System.nanoTime();
+		ImportReportDTO report = new ImportReportDTO();
+		BookRecordReader reader = BookRecordReader.of(format, input, objectMapper);
+		List<BookRecord> batch = new ArrayList<>(batchSize);
+
+		try {
+			BookRecord bookRecord;
+			while ((bookRecord = reader.next()) != null) {
+				report.setRowsRead(report.getRowsRead() + 1);
+				String error = bookRecord.error() != null ? bookRecord.error() : validate(bookRecord.book());
+				if (error != null) {
+					reject(report, bookRecord.line(), error);
+				} else {
+					batch.add(bookRecord);
+					if (batch.size() == batchSize) {
+						insert(batch, report);
+						batch.clear();
+					}
+				}
+				if (report.getRowsRead() % PROGRESS_INTERVAL == 0) {
+					logger.info("Book import progress: {} rows read, {} imported, {} rejected",
+							report.getRowsRead(), report.getRowsImported(), report.getRowsRejected());
+				}
+			}
+			insert(batch, report);
+		} finally {
+			if (report.getRowsImported() > 0) {
+				catalogSnapshot.discard();
+				indexLoader.loadIndex();
+				searchCache.invalidateAll();
+				changeStream.publishReset();
+			}
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		report.setElapsedMillis(elapsedMillis);
+		report.setRowsPerSecond(elapsedMillis == 0 ? report.getRowsImported()
+				: report.getRowsImported() * 1000.0 / elapsedMillis);
+		logger.info("Book import finished: {} rows read, {} imported, {} rejected in {} ms ({} rows/s)",
+				report.getRowsRead(), report.getRowsImported(), report.getRowsRejected(), elapsedMillis,
+				Math.round(report.getRowsPerSecond()));
+		return report;
+	}
+
+	private String validate(Book book) {
+		Set<ConstraintViolation<Book>> violations = validator.validate(book);
+		if (violations.isEmpty()) {
+			return null;
+		}
+		return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+	}
+
+	/**
+	 * Inserts a batch in one transaction. If the batch fails, its rows are
+	 * retried one by one so only the offending rows are rejected.
+	 */
+	private void insert(List<BookRecord> batch, ImportReportDTO report) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL,
+					batch.stream().map(bookRecord -> parameters(bookRecord.book())).toList()));
+			report.setRowsImported(report.getRowsImported() + batch.size());
+		} catch (DataAccessException batchFailure) {
+			for (BookRecord bookRecord : batch) {
+				try {
+					jdbcTemplate.update(INSERT_SQL, parameters(bookRecord.book()));
+					report.setRowsImported(report.getRowsImported() + 1);
+				} catch (DataAccessException rowFailure) {
+					reject(report, bookRecord.line(), rowFailure.getMostSpecificCause().getMessage());
+				}
+			}
+		}
+	}
+
+	private static Object[] parameters(Book book) {
+		return new Object[] { book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice() };
+	}
+
+	private static void reject(ImportReportDTO report, long line, String message) {
+		report.setRowsRejected(report.getRowsRejected() + 1);
+		if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+			report.getErrors().add(new ImportReportDTO.RowError(line, message));
+		} else {
+			report.setErrorsTruncated(true);
+		}
+	}
+}
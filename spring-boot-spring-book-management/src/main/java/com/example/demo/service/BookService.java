@@ -1,9 +1,18 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.BookFacetsDTO;
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.dto.BookPatchDTO;
+import com.example.demo.dto.BookSuggestionDTO;
 import com.example.demo.entity.Book;
+import com.example.demo.search.BookSort;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing books.
@@ -17,6 +26,32 @@ public interface BookService {
 	 */
 	List<Book> getAllBooks();
 
+	/**
+	 * Retrieves one page of books in ID order using keyset pagination.
+	 * 
+	 * @param afterId the ID of the last book of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of books on the page
+	 * @return the page of books and the cursor of the next page
+	 */
+	BookPageDTO getBooksPage(Long afterId, int limit);
+
+	/**
+	 * Passes every book to the consumer in ID order, one at a time, without
+	 * holding the whole catalog in memory.
+	 * 
+	 * @param consumer receives each book
+	 */
+	void streamAllBooks(Consumer<Book> consumer);
+
+	/**
+	 * Returns the IDs of all books as a bitmap, bit {@code n} being set when the
+	 * book with ID {@code n} exists.
+	 * 
+	 * @return the set of book IDs
+	 */
+	BitSet getBookIds();
+
 	/**
 	 * Retrieves a book by its ID.
 	 * 
@@ -25,6 +60,14 @@ public interface BookService {
 	 */
     Optional<Book> getBookById(Long id);
 
+    /**
+     * Retrieves several books by their IDs in one lookup.
+     * @param ids the IDs of the books
+     * @return the books found keyed by ID, in the order the IDs were given;
+     *         IDs without a matching book are left out
+     */
+    Map<Long, Book> getBooksByIds(Collection<Long> ids);
+
     /**
      * Saves a book.
      * @param book the book to save
@@ -32,11 +75,26 @@ public interface BookService {
      */
     Book saveBook(Book book);
 
+    /**
+     * Updates the given fields of a book.
+     * @param id the ID of the book
+     * @param patch the fields to change, null fields are kept, and the version
+     * the book must have (optional)
+     * @return the updated book, or empty if the book does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the
+     * book has another version
+     */
+    Optional<Book> patchBook(Long id, BookPatchDTO patch);
+
     /**
      * Deletes a book by its ID.
      * @param id the ID of the book to delete
+     * @param expectedVersion the version the book must have (optional)
+     * @return true if the book was deleted, false if it does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the
+     * book has another version
      */
-    void deleteBook(Long id);
+    boolean deleteBook(Long id, Long expectedVersion);
 
     /**
      * Searches for books based on various criteria.
@@ -48,4 +106,57 @@ public interface BookService {
      * @return a list of books matching the search criteria
      */
     List<Book> searchBooks(String title, String author, String genre, Double minPrice, Double maxPrice);
-}
\ No newline at end of file
+
+    /**
+     * Searches for books and returns the first ones in the requested order.
+     * @param title the title of the book (optional)
+     * @param author the author of the book (optional)
+     * @param genre the genre of the book (optional)
+     * @param minPrice the minimum price of the book (optional)
+     * @param maxPrice the maximum price of the book (optional)
+     * @param sort the order of the books, or null for best match first
+     * @param limit the maximum number of books (optional)
+     * @return the first books matching the search criteria
+     */
+    List<Book> searchBooks(String title, String author, String genre, Double minPrice, Double maxPrice,
+            BookSort sort, Integer limit);
+
+    /**
+     * Finds the cheapest books of exactly the given genre.
+     * @param genre the genre of the books
+     * @param minPrice the minimum price of the books (optional)
+     * @param maxPrice the maximum price of the books (optional)
+     * @param limit the maximum number of books
+     * @return the cheapest books of the genre, cheapest first
+     */
+    List<Book> getCheapestBooksOfGenre(String genre, Double minPrice, Double maxPrice, int limit);
+
+    /**
+     * Finds the books of exactly the given author in title order.
+     * @param author the author of the books
+     * @param limit the maximum number of books
+     * @return the first books of the author by title
+     */
+    List<Book> getBooksOfAuthorByTitle(String author, int limit);
+
+    /**
+     * Counts the books matching a search by genre, author and price bucket.
+     * @param title the title of the book (optional)
+     * @param author the author of the book (optional)
+     * @param genre the genre of the book (optional)
+     * @param minPrice the minimum price of the book (optional)
+     * @param maxPrice the maximum price of the book (optional)
+     * @param topAuthors the maximum number of authors to report
+     * @return the facet counts of the matching books
+     */
+    BookFacetsDTO getSearchFacets(String title, String author, String genre, Double minPrice, Double maxPrice,
+            int topAuthors);
+
+    /**
+     * Suggests titles and authors for text typed so far.
+     * @param query the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, best first
+     */
+    List<BookSuggestionDTO> suggest(String query, int limit);
+}
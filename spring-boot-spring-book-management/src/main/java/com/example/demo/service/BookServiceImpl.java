@@ -1,12 +1,38 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.cache.BookCache;
+import com.example.demo.cache.BookSearchCache;
+import com.example.demo.dto.BookFacetsDTO;
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.dto.BookPatchDTO;
+import com.example.demo.dto.BookSuggestionDTO;
 import com.example.demo.entity.Book;
+import com.example.demo.events.BookChangeStream;
 import com.example.demo.repository.BookRepository;
+import com.example.demo.search.BookFacetCounts;
+import com.example.demo.search.BookSearchIndex;
+import com.example.demo.search.BookSort;
+import com.example.demo.search.BookSuggestIndex;
+import com.example.demo.snapshot.CatalogSnapshot;
+
+import jakarta.persistence.EntityManager;
 
 /**
  * Implementation of the BookService interface. Provides methods for managing
@@ -16,55 +42,252 @@ import com.example.demo.repository.BookRepository;
 public class BookServiceImpl implements BookService {
 
 	private final BookRepository bookRepository;
+	private final BookSearchIndex searchIndex;
+	private final BookSuggestIndex suggestIndex;
+	private final BookCache bookCache;
+	private final BookSearchCache searchCache;
+	private final CatalogSnapshot catalogSnapshot;
+	private final BookChangeStream changeStream;
+	private final InventoryService inventoryService;
+	private final EntityManager entityManager;
 
-	public BookServiceImpl(BookRepository bookRepository) {
+	public BookServiceImpl(BookRepository bookRepository, BookSearchIndex searchIndex, BookSuggestIndex suggestIndex,
+			BookCache bookCache, BookSearchCache searchCache, CatalogSnapshot catalogSnapshot,
+			BookChangeStream changeStream, InventoryService inventoryService, EntityManager entityManager) {
 		this.bookRepository = bookRepository;
+		this.searchIndex = searchIndex;
+		this.suggestIndex = suggestIndex;
+		this.bookCache = bookCache;
+		this.searchCache = searchCache;
+		this.catalogSnapshot = catalogSnapshot;
+		this.changeStream = changeStream;
+		this.inventoryService = inventoryService;
+		this.entityManager = entityManager;
 	}
 
 	/**
-	 * Retrieves all books.
+	 * Retrieves all books, from the catalog snapshot during warm-up.
 	 * 
 	 * @return list of books
 	 */
 	@Override
 	public List<Book> getAllBooks() {
-		return bookRepository.findAll();
+		List<Book> books = catalogSnapshot.listBooks();
+		return books != null ? books : bookRepository.findAllReadOnly();
+	}
+
+	/**
+	 * Retrieves one page of books in ID order using keyset pagination, from the
+	 * catalog snapshot during warm-up.
+	 * 
+	 * @param afterId the ID of the last book of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of books on the page
+	 * @return the page of books and the cursor of the next page
+	 */
+	@Override
+	public BookPageDTO getBooksPage(Long afterId, int limit) {
+		BookPageDTO page = catalogSnapshot.getBooksPage(afterId == null ? 0L : afterId, limit);
+		if (page != null) {
+			return page;
+		}
+		List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId,
+				Limit.of(limit));
+		Long nextCursor = books.size() < limit ? null : books.get(books.size() - 1).getId();
+		return new BookPageDTO(books, nextCursor);
+	}
+
+	/**
+	 * Passes every book to the consumer in ID order. Rows come from a database
+	 * cursor and each book is detached once consumed, so the persistence context
+	 * stays empty however large the catalog is.
+	 * 
+	 * @param consumer receives each book
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void streamAllBooks(Consumer<Book> consumer) {
+		try (Stream<Book> books = bookRepository.streamAll()) {
+			books.forEach(book -> {
+				consumer.accept(book);
+				entityManager.detach(book);
+			});
+		}
+	}
+
+	/**
+	 * Reads every book ID from the database into a bitmap. IDs are
+	 * auto-increment and dense, so the bitmap takes about one bit per book. IDs
+	 * beyond the range of a bitmap are left out.
+	 * 
+	 * @return the set of book IDs
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public BitSet getBookIds() {
+		BitSet ids = new BitSet();
+		try (Stream<Long> stream = bookRepository.streamAllIds()) {
+			stream.filter(id -> id > 0 && id < Integer.MAX_VALUE).forEach(id -> ids.set(id.intValue()));
+		}
+		return ids;
 	}
 
 	/**
-	 * Retrieves a book by its ID.
+	 * Retrieves a book by its ID. During warm-up books in the catalog snapshot
+	 * are served from it; other reads go through the book cache, which is only
+	 * ever filled from the database so no snapshot copy outlives the warm-up.
 	 * 
 	 * @param id the ID of the book
 	 * @return an Optional containing the book if found, or empty if not found
 	 */
 	@Override
 	public Optional<Book> getBookById(Long id) {
-		return bookRepository.findById(id);
+		Book book = catalogSnapshot.findBook(id);
+		if (book != null) {
+			return Optional.of(book);
+		}
+		return bookCache.getOrLoad(id, bookRepository::findById);
 	}
 
 	/**
-	 * Saves a book.
+	 * Retrieves several books by their IDs with a single IN query. During warm-up
+	 * the books found in the catalog snapshot are not queried.
+	 * 
+	 * @param ids the IDs of the books
+	 * @return the books found keyed by ID, in the order the IDs were given
+	 */
+	@Override
+	public Map<Long, Book> getBooksByIds(Collection<Long> ids) {
+		Map<Long, Book> books = new LinkedHashMap<>();
+		Collection<Long> distinctIds = new LinkedHashSet<>(ids);
+		distinctIds.remove(null);
+		if (distinctIds.isEmpty()) {
+			return books;
+		}
+		Map<Long, Book> found = new LinkedHashMap<>();
+		List<Long> missingIds = new ArrayList<>();
+		for (Long id : distinctIds) {
+			Book book = catalogSnapshot.findBook(id);
+			if (book != null) {
+				found.put(id, book);
+			} else {
+				missingIds.add(id);
+			}
+		}
+		if (!missingIds.isEmpty()) {
+			bookRepository.findByIdIn(missingIds).forEach(book -> found.put(book.getId(), book));
+		}
+		for (Long id : distinctIds) {
+			Book book = found.get(id);
+			if (book != null) {
+				books.put(id, book);
+			}
+		}
+		return books;
+	}
+
+	/**
+	 * Saves a book, evicts it from the book cache, updates the search indexes,
+	 * invalidates cached search results and publishes the change to the change
+	 * stream.
+	 * If the save fails because the book was changed concurrently, the cached
+	 * copy is evicted as well so a retry starts from the current version.
 	 * 
 	 * @param book the book to save
 	 * @return the saved book
 	 */
 	@Override
 	public Book saveBook(Book book) {
-		return bookRepository.save(book);
+		catalogSnapshot.markChanged(book.getId());
+		Book savedBook;
+		try {
+			savedBook = bookRepository.save(book);
+		} catch (OptimisticLockingFailureException ex) {
+			bookCache.invalidate(book.getId());
+			throw ex;
+		}
+		catalogSnapshot.markChanged(savedBook.getId());
+		bookCache.invalidate(savedBook.getId());
+		searchIndex.index(savedBook);
+		suggestIndex.index(savedBook);
+		searchCache.invalidateAll();
+		changeStream.publishSaved(savedBook);
+		return savedBook;
+	}
+
+	/**
+	 * Updates the given fields of a book with a single versioned UPDATE, then
+	 * reads the new state back to refresh the search indexes and cached search
+	 * results and publish the change. The database is only asked whether the
+	 * book exists when nothing was updated.
+	 * 
+	 * @param id    the ID of the book
+	 * @param patch the fields to change and the expected version
+	 * @return the updated book, or empty if the book does not exist
+	 * @throws OptimisticLockingFailureException if the book has another version
+	 */
+	@Override
+	public Optional<Book> patchBook(Long id, BookPatchDTO patch) {
+		catalogSnapshot.markChanged(id);
+		int updated = bookRepository.patchBook(id, patch.getTitle(), patch.getAuthor(), patch.getGenre(),
+				patch.getPrice(), patch.getVersion());
+		bookCache.invalidate(id);
+		if (updated == 0) {
+			checkVersionConflict(id, patch.getVersion());
+			return Optional.empty();
+		}
+		Optional<Book> book = bookRepository.findById(id);
+		book.ifPresent(updatedBook -> {
+			searchIndex.index(updatedBook);
+			suggestIndex.index(updatedBook);
+			searchCache.invalidateAll();
+			changeStream.publishSaved(updatedBook);
+		});
+		return book;
 	}
 
 	/**
-	 * Deletes a book by its ID.
+	 * Deletes a book by its ID with a single DELETE, removes it from the book
+	 * cache, the search indexes, cached search results and the in-memory stock,
+	 * and publishes the deletion to the change stream. The stored stock goes with
+	 * the book through the foreign key's ON DELETE CASCADE.
 	 * 
-	 * @param id the ID of the book to delete
+	 * @param id              the ID of the book to delete
+	 * @param expectedVersion the version the book must have (optional)
+	 * @return true if the book was deleted, false if it does not exist
+	 * @throws OptimisticLockingFailureException if the book has another version
 	 */
 	@Override
-	public void deleteBook(Long id) {
-		bookRepository.deleteById(id);
+	public boolean deleteBook(Long id, Long expectedVersion) {
+		catalogSnapshot.markChanged(id);
+		int deleted = bookRepository.deleteBook(id, expectedVersion);
+		bookCache.invalidate(id);
+		if (deleted == 0) {
+			checkVersionConflict(id, expectedVersion);
+			return false;
+		}
+		searchIndex.remove(id);
+		suggestIndex.remove(id);
+		searchCache.invalidateAll();
+		inventoryService.forgetStock(id);
+		changeStream.publishDeleted(id);
+		return true;
 	}
 
 	/**
-	 * Searches for books based on various criteria.
+	 * Tells a version conflict from a missing book after a versioned statement
+	 * changed no row.
+	 */
+	private void checkVersionConflict(Long id, Long expectedVersion) {
+		if (expectedVersion != null && bookRepository.existsById(id)) {
+			throw new OptimisticLockingFailureException("Book " + id + " does not have version " + expectedVersion);
+		}
+	}
+
+	/**
+	 * Searches for books based on various criteria through the search result
+	 * cache. Misses use the full-text search index once it is built, and the
+	 * database query until then.
 	 * 
 	 * @param title    the title of the book (optional)
 	 * @param author   the author of the book (optional)
@@ -75,6 +298,103 @@ public class BookServiceImpl implements BookService {
 	 */
 	@Override
 	public List<Book> searchBooks(String title, String author, String genre, Double minPrice, Double maxPrice) {
-		return bookRepository.searchBooks(title, author, genre, minPrice, maxPrice);
+		return searchBooks(title, author, genre, minPrice, maxPrice, null, null);
+	}
+
+	/**
+	 * Searches for books and returns the first ones in the requested order. The
+	 * search index keeps only the first books while ranking; the database query
+	 * gets the ordering and the limit as ORDER BY and LIMIT.
+	 * 
+	 * @param title    the title of the book (optional)
+	 * @param author   the author of the book (optional)
+	 * @param genre    the genre of the book (optional)
+	 * @param minPrice the minimum price of the book (optional)
+	 * @param maxPrice the maximum price of the book (optional)
+	 * @param sort     the order of the books, or null for best match first
+	 * @param limit    the maximum number of books (optional)
+	 * @return the first books matching the search criteria
+	 */
+	@Override
+	public List<Book> searchBooks(String title, String author, String genre, Double minPrice, Double maxPrice,
+			BookSort sort, Integer limit) {
+		return searchCache.getOrLoad(title, author, genre, minPrice, maxPrice, sort, limit, this::searchUncached);
+	}
+
+	private List<Book> searchUncached(String title, String author, String genre, Double minPrice,
+			Double maxPrice, BookSort sort, Integer limit) {
+		if (searchIndex.isReady()) {
+			return searchIndex.search(title, author, genre, minPrice, maxPrice, sort, limit);
+		}
+		if (sort == null && limit == null) {
+			return bookRepository.searchBooks(title, author, genre, minPrice, maxPrice);
+		}
+		return bookRepository.searchBooks(title, author, genre, minPrice, maxPrice,
+				sort == null ? Sort.unsorted() : sort.toSort(), limit == null ? Limit.unlimited() : Limit.of(limit));
+	}
+
+	/**
+	 * Finds the cheapest books of a genre with a query that reads only the
+	 * requested rows off the (genre, price) index.
+	 * 
+	 * @param genre    the genre of the books
+	 * @param minPrice the minimum price of the books (optional)
+	 * @param maxPrice the maximum price of the books (optional)
+	 * @param limit    the maximum number of books
+	 * @return the cheapest books of the genre, cheapest first
+	 */
+	@Override
+	public List<Book> getCheapestBooksOfGenre(String genre, Double minPrice, Double maxPrice, int limit) {
+		return bookRepository.findCheapestByGenre(genre.trim(), minPrice, maxPrice, Limit.of(limit));
+	}
+
+	/**
+	 * Finds the books of an author in title order with a query that reads only
+	 * the requested rows off the (author, title) index.
+	 * 
+	 * @param author the author of the books
+	 * @param limit  the maximum number of books
+	 * @return the first books of the author by title
+	 */
+	@Override
+	public List<Book> getBooksOfAuthorByTitle(String author, int limit) {
+		return bookRepository.findByAuthorOrderByTitle(author.trim(), Limit.of(limit));
+	}
+
+	/**
+	 * Counts the books matching a search by genre, author and price bucket. The
+	 * counts come from the search index, which keeps the catalog-wide counts up to
+	 * date on every save and delete; until the index is built the matching books
+	 * are loaded from the database and counted.
+	 * 
+	 * @param title      the title of the book (optional)
+	 * @param author     the author of the book (optional)
+	 * @param genre      the genre of the book (optional)
+	 * @param minPrice   the minimum price of the book (optional)
+	 * @param maxPrice   the maximum price of the book (optional)
+	 * @param topAuthors the maximum number of authors to report
+	 * @return the facet counts of the matching books
+	 */
+	@Override
+	public BookFacetsDTO getSearchFacets(String title, String author, String genre, Double minPrice,
+			Double maxPrice, int topAuthors) {
+		if (searchIndex.isReady()) {
+			return searchIndex.facets(title, author, genre, minPrice, maxPrice, topAuthors);
+		}
+		return BookFacetCounts.of(bookRepository.searchBooks(title, author, genre, minPrice, maxPrice))
+				.toDTO(topAuthors);
+	}
+
+	/**
+	 * Suggests titles and authors for text typed so far, from the suggestion
+	 * index.
+	 * 
+	 * @param query the text typed so far
+	 * @param limit the maximum number of suggestions
+	 * @return the suggestions, best first
+	 */
+	@Override
+	public List<BookSuggestionDTO> suggest(String query, int limit) {
+		return suggestIndex.suggest(query, limit);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import java.util.List;
+
+import com.example.demo.dto.ReservationDTO;
+import com.example.demo.dto.ReservationItemDTO;
+import com.example.demo.dto.StockDTO;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.exception.ResourceNotFoundException;
+
+/**
+ * Service interface for book stock and stock reservations. Checkout reserves
+ * the books of an order, then confirms the reservation once paid or releases
+ * it; reservations that are neither confirmed nor released expire.
+ */
+public interface InventoryService {
+
+	/**
+	 * Returns the stock of a book. Books without stock have none available.
+	 * 
+	 * @param bookId the ID of the book
+	 * @return the stock
+	 */
+	StockDTO getStock(Long bookId);
+
+	/**
+	 * Sets the number of units of a book available for reservation. Units held
+	 * by open reservations are not included.
+	 * 
+	 * @param bookId    the ID of the book
+	 * @param available the number of available units
+	 * @return the new stock
+	 */
+	StockDTO setStock(Long bookId, long available);
+
+	/**
+	 * Drops the stock of a deleted book. The stored stock is removed with the
+	 * book by the database.
+	 * 
+	 * @param bookId the ID of the deleted book
+	 */
+	void forgetStock(Long bookId);
+
+	/**
+	 * Reserves units of several books, all or nothing.
+	 * 
+	 * @param items      the books and quantities to reserve
+	 * @param ttlSeconds time after which the reservation expires (optional)
+	 * @return the reservation
+	 * @throws InsufficientStockException if a book has too few units
+	 */
+	ReservationDTO reserve(List<ReservationItemDTO> items, Long ttlSeconds);
+
+	/**
+	 * Confirms a reservation: its units are sold and leave the stock.
+	 * 
+	 * @param reservationId the ID of the reservation
+	 * @throws ResourceNotFoundException if the reservation does not exist or has
+	 *                                   expired
+	 */
+	void confirm(String reservationId);
+
+	/**
+	 * Releases a reservation: its units become available again.
+	 * 
+	 * @param reservationId the ID of the reservation
+	 * @throws ResourceNotFoundException if the reservation does not exist or has
+	 *                                   expired
+	 */
+	void release(String reservationId);
+}
@@ -0,0 +1,351 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.ReservationDTO;
+import com.example.demo.dto.ReservationItemDTO;
+import com.example.demo.dto.StockDTO;
+import com.example.demo.entity.BookStock;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.inventory.StripedCounter;
+import com.example.demo.metrics.MetricsSource;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookStockRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Implementation of the InventoryService interface. Stock is counted in memory
+ * so buyers of the same book never wait on a row lock: each book's available
+ * units sit in a {@link StripedCounter} and reservations are taken from it
+ * with compare-and-set. A book's stock is loaded from the database the first
+ * time it is changed; reads of a book not loaded yet go to the database and
+ * load nothing, so looking up unknown IDs cannot fill the map. Sold units and stock changes are accumulated per book and written to
+ * the {@code book_stock} table every {@code book.stock.flush-ms} as one batch
+ * of additive upserts, and once more on shutdown. The upserts only insert rows
+ * for books that still exist, so a change racing with a book's deletion cannot
+ * fail the batch on the foreign key to {@code book}.
+ * <p>
+ * Reservations live in memory only; after a restart they are gone and their
+ * units are available again. Sales confirmed in the last flush interval before
+ * a crash are not written, so the stored stock can be that much too high. The
+ * counters assume a single instance serves the inventory.
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService, MetricsSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+	private static final String UPSERT_SQL = "INSERT INTO book_stock (book_id, quantity) SELECT id, ? FROM book "
+			+ "WHERE id = ? ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+
+	private final BookStockRepository stockRepository;
+	private final BookRepository bookRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final int stripes;
+	private final long defaultTtlMillis;
+	private final Map<Long, Stock> stocks = new ConcurrentHashMap<>();
+	private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+	private final LongAdder reservedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder confirmedCount = new LongAdder();
+	private final LongAdder expiredCount = new LongAdder();
+	private final LongAdder flushFailures = new LongAdder();
+
+	public InventoryServiceImpl(BookStockRepository stockRepository, BookRepository bookRepository,
+			JdbcTemplate jdbcTemplate, @Value("${book.stock.stripes:8}") int stripes,
+			@Value("${book.stock.reservation-ttl-seconds:900}") long reservationTtlSeconds) {
+		this.stockRepository = stockRepository;
+		this.bookRepository = bookRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.stripes = stripes;
+		this.defaultTtlMillis = TimeUnit.SECONDS.toMillis(reservationTtlSeconds);
+	}
+
+	/**
+	 * Returns the stock of a book. A book whose stock is not loaded is answered
+	 * from the database without loading it.
+	 *
+	 * @param bookId the ID of the book
+	 * @return the available and reserved units
+	 */
+	@Override
+	public StockDTO getStock(Long bookId) {
+		Stock stock = stocks.get(bookId);
+		if (stock == null) {
+			return new StockDTO(bookId, storedQuantity(bookId), 0);
+		}
+		return new StockDTO(bookId, stock.available.sum(), stock.reserved.sum());
+	}
+
+	/**
+	 * Sets the number of available units by adding the difference to the
+	 * current count, so reservations taken meanwhile are not lost, and writes
+	 * the change right away.
+	 *
+	 * @param bookId    the ID of the book
+	 * @param available the number of available units
+	 * @return the new stock
+	 * @throws ResourceNotFoundException if the book does not exist
+	 */
+	@Override
+	public StockDTO setStock(Long bookId, long available) {
+		Stock stock = stock(bookId);
+		long delta = available - stock.available.sum();
+		stock.available.add(delta);
+		stock.unflushed.add(delta);
+		flush();
+		return getStock(bookId);
+	}
+
+	/**
+	 * Drops the in-memory stock of a deleted book, with its unflushed changes.
+	 * Open reservations of the book keep their other books and have nothing to
+	 * put back for this one.
+	 *
+	 * @param bookId the ID of the deleted book
+	 */
+	@Override
+	public void forgetStock(Long bookId) {
+		stocks.remove(bookId);
+	}
+
+	/**
+	 * Reserves units of several books, all or nothing. Quantities of the same
+	 * book are added up; if any book is short, the units already taken for the
+	 * others are put back.
+	 *
+	 * @param items      the books and quantities to reserve
+	 * @param ttlSeconds time after which the reservation expires (optional)
+	 * @return the reservation
+	 * @throws InsufficientStockException if a book has too few units
+	 * @throws ResourceNotFoundException  if a book does not exist
+	 */
+	@Override
+	public ReservationDTO reserve(List<ReservationItemDTO> items, Long ttlSeconds) {
+		Map<Long, Long> quantities = new TreeMap<>();
+		for (ReservationItemDTO item : items) {
+			if (item.getBookId() == null || item.getQuantity() <= 0) {
+				throw new IllegalArgumentException("Every item needs a book ID and a positive quantity");
+			}
+			quantities.merge(item.getBookId(), (long) item.getQuantity(), Long::sum);
+		}
+		// Every book is checked before any unit is taken
+		Map<Long, Stock> books = new LinkedHashMap<>();
+		quantities.keySet().forEach(bookId -> books.put(bookId, stock(bookId)));
+		Map<Long, Long> taken = new LinkedHashMap<>();
+		for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+			Stock stock = books.get(entry.getKey());
+			if (!stock.available.tryTake(entry.getValue())) {
+				taken.forEach(this::putBack);
+				rejectedCount.increment();
+				throw new InsufficientStockException(entry.getKey());
+			}
+			stock.reserved.add(entry.getValue());
+			taken.put(entry.getKey(), entry.getValue());
+		}
+		long ttlMillis = ttlSeconds == null ? defaultTtlMillis : TimeUnit.SECONDS.toMillis(ttlSeconds);
+		Reservation reservation = new Reservation(UUID.randomUUID().toString(), Collections.unmodifiableMap(taken),
+				System.currentTimeMillis() + ttlMillis);
+		reservations.put(reservation.id(), reservation);
+		reservedCount.increment();
+		return toDTO(reservation);
+	}
+
+	/**
+	 * Confirms a reservation; its units are deducted from the stored stock on
+	 * the next flush. Books deleted since the reservation are skipped.
+	 *
+	 * @param reservationId the ID of the reservation
+	 * @throws ResourceNotFoundException if the reservation does not exist or has
+	 *                                   expired
+	 */
+	@Override
+	public void confirm(String reservationId) {
+		Reservation reservation = claim(reservationId);
+		reservation.items().forEach((bookId, quantity) -> {
+			Stock stock = stocks.get(bookId);
+			if (stock != null) {
+				stock.reserved.add(-quantity);
+				stock.unflushed.add(-quantity);
+			}
+		});
+		confirmedCount.increment();
+	}
+
+	/**
+	 * Releases a reservation.
+	 *
+	 * @param reservationId the ID of the reservation
+	 * @throws ResourceNotFoundException if the reservation does not exist or has
+	 *                                   expired
+	 */
+	@Override
+	public void release(String reservationId) {
+		claim(reservationId).items().forEach(this::putBack);
+	}
+
+	/**
+	 * Releases the reservations whose time is up.
+	 */
+	@Scheduled(fixedDelayString = "${book.stock.sweep-ms:5000}")
+	public void expireReservations() {
+		long now = System.currentTimeMillis();
+		for (Reservation reservation : reservations.values()) {
+			if (reservation.expiresAt() <= now && reservations.remove(reservation.id(), reservation)) {
+				reservation.items().forEach(this::putBack);
+				expiredCount.increment();
+			}
+		}
+	}
+
+	/**
+	 * Writes the stock changes accumulated since the last flush in one batch.
+	 * Changes that fail to be written are kept for the next flush.
+	 */
+	@Scheduled(fixedDelayString = "${book.stock.flush-ms:1000}")
+	public synchronized void flush() {
+		Map<Stock, Long> pending = new LinkedHashMap<>();
+		List<Object[]> batch = new ArrayList<>();
+		stocks.forEach((bookId, stock) -> {
+			long delta = stock.unflushed.sumThenReset();
+			if (delta != 0) {
+				pending.put(stock, delta);
+				batch.add(new Object[] { delta, bookId });
+			}
+		});
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+		} catch (DataAccessException ex) {
+			pending.forEach((stock, delta) -> stock.unflushed.add(delta));
+			flushFailures.increment();
+			logger.warn("Could not write {} stock changes, retrying on the next flush: {}", batch.size(),
+					ex.getMessage());
+		}
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		flush();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "inventory";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("books", stocks.size());
+		metrics.put("openReservations", reservations.size());
+		metrics.put("reservations", reservedCount.sum());
+		metrics.put("rejected", rejectedCount.sum());
+		metrics.put("confirmed", confirmedCount.sum());
+		metrics.put("expired", expiredCount.sum());
+		metrics.put("flushFailures", flushFailures.sum());
+		return metrics;
+	}
+
+	/**
+	 * Returns the in-memory stock of a book, loading it on first use. The load
+	 * runs outside the map, so other books in the same bin are never blocked
+	 * behind a database read; two threads loading the same book read the same
+	 * row, and the first to store its copy wins.
+	 *
+	 * @throws ResourceNotFoundException if the stock is not loaded and the book
+	 *                                   does not exist
+	 */
+	private Stock stock(Long bookId) {
+		Stock stock = stocks.get(bookId);
+		if (stock != null) {
+			return stock;
+		}
+		if (!bookRepository.existsById(bookId)) {
+			throw new ResourceNotFoundException("Book not found for ID: " + bookId);
+		}
+		Stock loaded = new Stock(new StripedCounter(stripes, storedQuantity(bookId)));
+		stock = stocks.putIfAbsent(bookId, loaded);
+		return stock != null ? stock : loaded;
+	}
+
+	private long storedQuantity(Long bookId) {
+		return stockRepository.findById(bookId).map(BookStock::getQuantity).orElse(0L);
+	}
+
+	/**
+	 * Removes an open reservation so that it is confirmed or released only once.
+	 * An expired reservation is released instead.
+	 */
+	private Reservation claim(String reservationId) {
+		Reservation reservation = reservations.remove(reservationId);
+		if (reservation != null && reservation.expiresAt() <= System.currentTimeMillis()) {
+			reservation.items().forEach(this::putBack);
+			expiredCount.increment();
+			reservation = null;
+		}
+		if (reservation == null) {
+			throw new ResourceNotFoundException("Reservation not found or expired: " + reservationId);
+		}
+		return reservation;
+	}
+
+	/**
+	 * Returns reserved units to the available ones. The stock of a reserved book
+	 * stays loaded until the book is deleted, after which there is nothing to
+	 * return them to.
+	 */
+	private void putBack(Long bookId, Long quantity) {
+		Stock stock = stocks.get(bookId);
+		if (stock != null) {
+			stock.reserved.add(-quantity);
+			stock.available.add(quantity);
+		}
+	}
+
+	private static ReservationDTO toDTO(Reservation reservation) {
+		List<ReservationItemDTO> items = new ArrayList<>();
+		reservation.items()
+				.forEach((bookId, quantity) -> items.add(new ReservationItemDTO(bookId, quantity.intValue())));
+		return new ReservationDTO(reservation.id(), items, reservation.expiresAt());
+	}
+
+	private record Reservation(String id, Map<Long, Long> items, long expiresAt) {
+	}
+
+	/**
+	 * The in-memory stock of one book. The stored quantity is the available
+	 * units plus the reserved units minus the unflushed changes.
+	 */
+	private static final class Stock {
+
+		private final StripedCounter available;
+		private final LongAdder reserved = new LongAdder();
+		private final LongAdder unflushed = new LongAdder();
+
+		Stock(StripedCounter available) {
+			this.available = available;
+		}
+	}
+}
@@ -0,0 +1,324 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.events.BookChangeLog;
+import com.example.demo.metrics.MetricsSource;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Serves book reads from the last catalog snapshot while the service warms up.
+ * On startup the snapshot file written by the previous run is memory-mapped;
+ * for the next {@code book.snapshot.warmup-seconds} reads by ID and listings
+ * are answered from it instead of the database, so a restarted instance does
+ * not hit MySQL for every request until its caches fill. A snapshot older than
+ * {@code book.snapshot.max-age-seconds} is not used.
+ * <p>
+ * Books saved or deleted through this instance after startup are never served
+ * from the snapshot, and listings fall back to the database as soon as any book
+ * has changed. The same holds for books changed after the snapshot was taken,
+ * wherever they were changed. The books of change events this instance logged
+ * after the snapshot's offset are marked on startup, and a snapshot whose
+ * offset the change log no longer covers, or that a {@code RESET} event
+ * followed, is not used. The snapshot is then compared with the ID and version
+ * of every book when the search indexes are built, reusing the catalog read
+ * for them, and every book added, deleted or updated since is marked changed.
+ * This catches changes made by other instances or by hand while this one was
+ * down. Nothing is served from the snapshot before that check, so a snapshot
+ * is never used if the catalog cannot be read, and the warm-up window starts
+ * once it passes.
+ * <p>
+ * Books changed on another instance during the warm-up window are not seen
+ * until it ends, the same staleness the book cache allows for its TTL.
+ */
+@Component
+public class CatalogSnapshot implements MetricsSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+	private static final int REPLAY_BATCH = 1000;
+
+	private final BookChangeLog changeLog;
+	private final boolean enabled;
+	private final Path file;
+	private final long warmupNanos;
+	private final long maxAgeMillis;
+	private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+	private final LongAdder hits = new LongAdder();
+	private volatile CatalogSnapshotFile snapshot;
+	private volatile boolean checked;
+	private volatile long activeUntil;
+
+	public CatalogSnapshot(BookChangeLog changeLog,
+			@Value("${book.snapshot.enabled:true}") boolean enabled,
+			@Value("${book.snapshot.file:book-catalog.snapshot}") String file,
+			@Value("${book.snapshot.warmup-seconds:120}") long warmupSeconds,
+			@Value("${book.snapshot.max-age-seconds:3600}") long maxAgeSeconds) {
+		this.changeLog = changeLog;
+		this.enabled = enabled;
+		this.file = Paths.get(file);
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+		this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+	}
+
+	/**
+	 * Maps the snapshot left by the previous run, if there is a recent one, and
+	 * marks the books changed since it was taken as logged by this instance. The
+	 * snapshot is not served until {@link #checkAgainst} has compared it with
+	 * the database.
+	 */
+	@PostConstruct
+	public void load() {
+		if (!enabled || !Files.exists(file)) {
+			return;
+		}
+		try {
+			CatalogSnapshotFile loaded = CatalogSnapshotFile.open(file);
+			long age = System.currentTimeMillis() - loaded.writtenAt();
+			if (age > maxAgeMillis) {
+				logger.info("Ignoring catalog snapshot written {} s ago", age / 1000);
+				return;
+			}
+			if (!changeLog.isRetained(loaded.changeOffset()) || !markChangedSince(loaded.changeOffset())) {
+				logger.info("Ignoring catalog snapshot taken at change offset {}, the change log is at {}",
+						loaded.changeOffset(), changeLog.lastOffset());
+				changedIds.clear();
+				return;
+			}
+			snapshot = loaded;
+			logger.info("Loaded catalog snapshot of {} books written {} s ago, {} changed since",
+					loaded.size(), age / 1000, changedIds.size());
+		} catch (IOException ex) {
+			logger.warn("Could not load the catalog snapshot {}: {}", file, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Compares the loaded snapshot with the catalog as read from the database,
+	 * marks every book added, deleted or updated since it was taken as changed,
+	 * and starts serving reads from it for the warm-up window. Does nothing if
+	 * no snapshot is loaded or it was already checked.
+	 *
+	 * @param books every book in the database, in ascending ID order
+	 */
+	public void checkAgainst(List<Book> books) {
+		CatalogSnapshotFile loaded = snapshot;
+		if (loaded == null || checked) {
+			return;
+		}
+		markChangedInDatabase(loaded, books);
+		activeUntil = System.nanoTime() + warmupNanos;
+		checked = true;
+		logger.info("Serving reads from catalog snapshot of {} books, {} changed since it was taken",
+				loaded.size(), changedIds.size());
+	}
+
+	/**
+	 * Writes a new snapshot file. The snapshot being served, if any, is not
+	 * replaced; the new file is picked up on the next startup. The change log
+	 * offset is taken before the source runs, so any change the source misses
+	 * comes after it.
+	 *
+	 * @param source passes every book to the given consumer in ascending ID
+	 *               order, reading the catalog after being called
+	 * @return the number of books written
+	 * @throws IOException if the file cannot be written
+	 */
+	public int write(Consumer<Consumer<Book>> source) throws IOException {
+		return CatalogSnapshotFile.write(file, changeLog.lastOffset(), source);
+	}
+
+	/**
+	 * Tells whether snapshots are enabled.
+	 *
+	 * @return true if snapshots are written and loaded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns a book from the snapshot.
+	 *
+	 * @param id the ID of the book
+	 * @return the book, or null if the snapshot cannot answer and the database
+	 *         must be asked
+	 */
+	public Book findBook(Long id) {
+		CatalogSnapshotFile current = active();
+		if (current == null || id == null || changedIds.contains(id)) {
+			return null;
+		}
+		Book book = current.find(id);
+		if (book != null) {
+			hits.increment();
+		}
+		return book;
+	}
+
+	/**
+	 * Returns every book in the snapshot.
+	 *
+	 * @return the books in ID order, or null if the snapshot cannot answer
+	 */
+	public List<Book> listBooks() {
+		CatalogSnapshotFile current = activeAndUnchanged();
+		if (current == null) {
+			return null;
+		}
+		List<Book> books = new ArrayList<>(current.size());
+		for (int i = 0; i < current.size(); i++) {
+			books.add(current.get(i));
+		}
+		hits.increment();
+		return books;
+	}
+
+	/**
+	 * Returns one page of books from the snapshot.
+	 *
+	 * @param afterId the ID of the last book of the previous page
+	 * @param limit   the maximum number of books on the page
+	 * @return the page, or null if the snapshot cannot answer
+	 */
+	public BookPageDTO getBooksPage(long afterId, int limit) {
+		CatalogSnapshotFile current = activeAndUnchanged();
+		if (current == null) {
+			return null;
+		}
+		int from = current.indexAfter(afterId);
+		int to = (int) Math.min((long) from + limit, current.size());
+		List<Book> books = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			books.add(current.get(i));
+		}
+		hits.increment();
+		Long nextCursor = books.size() < limit ? null : books.get(books.size() - 1).getId();
+		return new BookPageDTO(books, nextCursor);
+	}
+
+	/**
+	 * Records that a book was saved or deleted, so it is no longer served from
+	 * the snapshot.
+	 *
+	 * @param id the ID of the book
+	 */
+	public void markChanged(Long id) {
+		if (snapshot != null && id != null) {
+			changedIds.add(id);
+		}
+	}
+
+	/**
+	 * Stops serving reads from the snapshot, for changes that cannot be tracked
+	 * book by book such as a bulk import.
+	 */
+	public void discard() {
+		snapshot = null;
+		changedIds.clear();
+	}
+
+	@Override
+	public String getMetricsName() {
+		return "catalogSnapshot";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		CatalogSnapshotFile current = active();
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("active", current != null);
+		metrics.put("books", current == null ? 0 : current.size());
+		metrics.put("changedBooks", changedIds.size());
+		metrics.put("hits", hits.sum());
+		return metrics;
+	}
+
+	/**
+	 * Marks the books of every change event after an offset as changed.
+	 *
+	 * @return false if a {@code RESET} event follows the offset, so no book of the
+	 *         snapshot can be trusted
+	 */
+	private boolean markChangedSince(long offset) {
+		List<BookChangeEventDTO> events;
+		while (!(events = changeLog.readAfter(offset, REPLAY_BATCH)).isEmpty()) {
+			for (BookChangeEventDTO event : events) {
+				if (event.getType() == BookChangeEventDTO.Type.RESET) {
+					return false;
+				}
+				changedIds.add(event.getBookId());
+				offset = event.getOffset();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Walks the snapshot and the books side by side in ID order and marks
+	 * changed every book whose version differs or that only one of them holds.
+	 */
+	private void markChangedInDatabase(CatalogSnapshotFile loaded, List<Book> books) {
+		int index = 0;
+		for (Book book : books) {
+			long id = book.getId();
+			while (index < loaded.size() && loaded.idAt(index) < id) {
+				changedIds.add(loaded.idAt(index++));
+			}
+			if (index < loaded.size() && loaded.idAt(index) == id) {
+				if (book.getVersion() == null || loaded.versionAt(index) != book.getVersion()) {
+					changedIds.add(id);
+				}
+				index++;
+			} else {
+				changedIds.add(id);
+			}
+		}
+		while (index < loaded.size()) {
+			changedIds.add(loaded.idAt(index++));
+		}
+	}
+
+	private CatalogSnapshotFile activeAndUnchanged() {
+		CatalogSnapshotFile current = active();
+		return current != null && changedIds.isEmpty() ? current : null;
+	}
+
+	/**
+	 * Returns the snapshot once it was checked and while the warm-up window
+	 * lasts, and releases it afterwards.
+	 */
+	private CatalogSnapshotFile active() {
+		CatalogSnapshotFile current = snapshot;
+		if (current == null || !checked) {
+			return null;
+		}
+		if (System.nanoTime() - activeUntil > 0) {
+			logger.info("Catalog snapshot warm-up window over, serving reads from the database");
+			discard();
+			return null;
+		}
+		return current;
+	}
+}
@@ -0,0 +1,304 @@
+package com.example.demo.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.example.demo.entity.Book;
+
+/**
+ * Binary catalog snapshot, read through a read-only memory mapping. The file
+ * holds a header, one fixed-width record per book in ascending ID order and a
+ * pool of length-prefixed UTF-8 strings the records point into. The header
+ * records when the snapshot was written and the offset of the last book
+ * change event published before the catalog was read. Books are decoded from
+ * the mapping on access, so opening a snapshot costs the same whatever its
+ * size.
+ */
+final class CatalogSnapshotFile {
+
+	private static final int MAGIC = 0x424B5331; // "BKS1"
+	private static final int HEADER_SIZE = 32;
+	private static final int RECORD_SIZE = 40;
+	private static final int NO_STRING = -1;
+
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int poolOffset;
+	private final long writtenAt;
+	private final long changeOffset;
+
+	private CatalogSnapshotFile(ByteBuffer buffer, int count, int poolOffset, long writtenAt, long changeOffset) {
+		this.buffer = buffer;
+		this.count = count;
+		this.poolOffset = poolOffset;
+		this.writtenAt = writtenAt;
+		this.changeOffset = changeOffset;
+	}
+
+	/**
+	 * Maps a snapshot file.
+	 *
+	 * @param file the snapshot file
+	 * @return the mapped snapshot
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	static CatalogSnapshotFile open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new IOException("Unsupported snapshot size " + size);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int count = buffer.getInt(4);
+			long poolOffset = buffer.getLong(8);
+			if (buffer.getInt(0) != MAGIC || count < 0
+					|| poolOffset != HEADER_SIZE + (long) count * RECORD_SIZE || poolOffset > size) {
+				throw new IOException("Not a catalog snapshot: " + file);
+			}
+			return new CatalogSnapshotFile(buffer, count, (int) poolOffset, buffer.getLong(16), buffer.getLong(24));
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the books passed by the source, which must pass them
+	 * in ascending ID order. The file is written next to the target and moved
+	 * over it once complete, so readers never see a partial snapshot.
+	 *
+	 * @param file         the snapshot file
+	 * @param changeOffset the offset of the last change event published before
+	 *                     the source reads the catalog
+	 * @param source       passes every book to the given consumer
+	 * @return the number of books written
+	 * @throws IOException if the file cannot be written
+	 */
+	static int write(Path file, long changeOffset, Consumer<Consumer<Book>> source) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path records = Files.createTempFile(directory, "records", ".tmp");
+		Path pool = Files.createTempFile(directory, "strings", ".tmp");
+		Path target = Files.createTempFile(directory, "snapshot", ".tmp");
+		try {
+			PoolWriter poolWriter = new PoolWriter();
+			int count;
+			try (DataOutputStream recordOut = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(records)));
+					DataOutputStream poolOut = new DataOutputStream(
+							new BufferedOutputStream(Files.newOutputStream(pool)))) {
+				poolWriter.out = poolOut;
+				int[] written = { 0 };
+				long[] lastId = { Long.MIN_VALUE };
+				try {
+					source.accept(book -> {
+						if (book.getId() <= lastId[0]) {
+							throw new IllegalStateException("Books must be passed in ascending ID order");
+						}
+						lastId[0] = book.getId();
+						try {
+							recordOut.writeLong(book.getId());
+							recordOut.writeLong(book.getVersion());
+							recordOut.writeDouble(book.getPrice());
+							recordOut.writeInt(poolWriter.write(book.getTitle(), false));
+							recordOut.writeInt(poolWriter.write(book.getAuthor(), true));
+							recordOut.writeInt(poolWriter.write(book.getGenre(), true));
+							recordOut.writeInt(0);
+						} catch (IOException ex) {
+							throw new UncheckedIOException(ex);
+						}
+						written[0]++;
+					});
+				} catch (UncheckedIOException ex) {
+					throw ex.getCause();
+				}
+				count = written[0];
+			}
+
+			long poolOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+			if (poolOffset + poolWriter.size > Integer.MAX_VALUE) {
+				throw new IOException("Catalog too large for a snapshot");
+			}
+			try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(count).putLong(poolOffset).putLong(System.currentTimeMillis())
+						.putLong(changeOffset);
+				header.flip();
+				while (header.hasRemaining()) {
+					out.write(header);
+				}
+				append(records, out);
+				append(pool, out);
+				out.force(true);
+			}
+			Files.move(target, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return count;
+		} finally {
+			Files.deleteIfExists(records);
+			Files.deleteIfExists(pool);
+			Files.deleteIfExists(target);
+		}
+	}
+
+	/**
+	 * Returns the number of books in the snapshot.
+	 *
+	 * @return the number of books
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Returns when the snapshot was written.
+	 *
+	 * @return the write time in milliseconds since the epoch
+	 */
+	long writtenAt() {
+		return writtenAt;
+	}
+
+	/**
+	 * Returns the offset of the last change event published before the catalog
+	 * was read. Books changed by later events may differ from the snapshot.
+	 *
+	 * @return the change log offset
+	 */
+	long changeOffset() {
+		return changeOffset;
+	}
+
+	/**
+	 * Looks up a book by binary search over the records.
+	 *
+	 * @param id the ID of the book
+	 * @return the book, or null if the snapshot does not contain it
+	 */
+	Book find(long id) {
+		int index = indexAfter(id - 1);
+		return index < count && idAt(index) == id ? get(index) : null;
+	}
+
+	/**
+	 * Returns the position of the first book with an ID greater than the given
+	 * one.
+	 *
+	 * @param afterId the ID to start after
+	 * @return the position, equal to {@link #size()} if there is none
+	 */
+	int indexAfter(long afterId) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (idAt(mid) <= afterId) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Decodes the book at a position.
+	 *
+	 * @param index the position of the book
+	 * @return a new book instance
+	 */
+	Book get(int index) {
+		int record = HEADER_SIZE + index * RECORD_SIZE;
+		Book book = new Book();
+		book.setId(buffer.getLong(record));
+		book.setVersion(buffer.getLong(record + 8));
+		book.setPrice(buffer.getDouble(record + 16));
+		book.setTitle(string(buffer.getInt(record + 24)));
+		book.setAuthor(string(buffer.getInt(record + 28)));
+		book.setGenre(string(buffer.getInt(record + 32)));
+		return book;
+	}
+
+	/**
+	 * Returns the ID of the book at a position without decoding the book.
+	 *
+	 * @param index the position of the book
+	 * @return the ID of the book
+	 */
+	long idAt(int index) {
+		return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+	}
+
+	/**
+	 * Returns the version of the book at a position without decoding the book.
+	 *
+	 * @param index the position of the book
+	 * @return the version of the book
+	 */
+	long versionAt(int index) {
+		return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE + 8);
+	}
+
+	private String string(int offset) {
+		if (offset == NO_STRING) {
+			return null;
+		}
+		int position = poolOffset + offset;
+		byte[] bytes = new byte[buffer.getInt(position)];
+		buffer.get(position + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void append(Path source, FileChannel out) throws IOException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+			long position = 0;
+			long size = in.size();
+			while (position < size) {
+				position += in.transferTo(position, size - position, out);
+			}
+		}
+	}
+
+	/**
+	 * Appends strings to the pool. Authors and genres repeat across books and are
+	 * stored once; titles are nearly always distinct and are not deduplicated.
+	 */
+	private static class PoolWriter {
+
+		private final Map<String, Integer> shared = new HashMap<>();
+		private DataOutputStream out;
+		private long size;
+
+		int write(String value, boolean dedupe) throws IOException {
+			if (value == null) {
+				return NO_STRING;
+			}
+			Integer existing = dedupe ? shared.get(value) : null;
+			if (existing != null) {
+				return existing;
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Catalog too large for a snapshot");
+			}
+			int offset = (int) size;
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			size += 4 + bytes.length;
+			if (dedupe) {
+				shared.put(value, offset);
+			}
+			return offset;
+		}
+	}
+}
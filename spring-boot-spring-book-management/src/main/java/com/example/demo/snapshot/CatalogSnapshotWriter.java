@@ -0,0 +1,63 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.BookService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Writes the catalog snapshot periodically and when the service shuts down,
+ * streaming the catalog from the database.
+ */
+@Component
+public class CatalogSnapshotWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotWriter.class);
+
+	private final CatalogSnapshot catalogSnapshot;
+	private final BookService bookService;
+
+	public CatalogSnapshotWriter(CatalogSnapshot catalogSnapshot, BookService bookService) {
+		this.catalogSnapshot = catalogSnapshot;
+		this.bookService = bookService;
+	}
+
+	/**
+	 * Writes a snapshot every {@code book.snapshot.interval-ms}.
+	 */
+	@Scheduled(initialDelayString = "${book.snapshot.interval-ms:600000}", fixedDelayString = "${book.snapshot.interval-ms:600000}")
+	public void writePeriodically() {
+		writeSnapshot();
+	}
+
+	/**
+	 * Writes a snapshot before the database connections are closed.
+	 */
+	@PreDestroy
+	public void writeOnShutdown() {
+		writeSnapshot();
+	}
+
+	/**
+	 * Writes a snapshot of the whole catalog. Failures are logged; the previous
+	 * snapshot file is left in place.
+	 */
+	public synchronized void writeSnapshot() {
+		if (!catalogSnapshot.isEnabled()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			int count = catalogSnapshot.write(bookService::streamAllBooks);
+			logger.info("Catalog snapshot of {} books written in {} ms", count, System.currentTimeMillis() - start);
+		} catch (IOException | RuntimeException ex) {
+			logger.error("Could not write the catalog snapshot: {}", ex.getMessage());
+		}
+	}
+}
@@ -0,0 +1,5 @@
+-- Version of each book, raised on every update, for ETags and optimistic locking.
+-- The schema is managed outside the application, so run this by hand before
+-- deploying the versioned book reads and writes. Existing books start at 0.
+
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
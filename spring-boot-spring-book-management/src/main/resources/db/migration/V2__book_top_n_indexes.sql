@@ -0,0 +1,7 @@
+-- Indexes read by the top-N queries on an exact genre or author
+-- (GET /api/books/search/top): cheapest books of a genre and an author's books
+-- by title. The schema is managed outside the application, so run this by hand.
+
+CREATE INDEX idx_book_genre_price ON book (genre, price);
+
+CREATE INDEX idx_book_author_title ON book (author, title);
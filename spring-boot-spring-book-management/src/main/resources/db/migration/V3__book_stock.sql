@@ -0,0 +1,9 @@
+-- Stock of each book, written in batches by the inventory service. A book's
+-- stock is removed with the book. The schema is managed outside the
+-- application, so run this by hand before deploying the inventory service.
+
+CREATE TABLE book_stock (
+		book_id BIGINT NOT NULL PRIMARY KEY,
+		quantity BIGINT NOT NULL,
+		CONSTRAINT fk_book_stock_book FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE
+);
@@ -0,0 +1,90 @@
+package com.example.demo.BookChangeLogTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.events.BookChangeLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class for BookChangeLog.
+ */
+public class BookChangeLogTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that offsets are assigned in order and events are read after an
+     * offset.
+     */
+    @Test
+    void testAppendAndReadAfter() throws IOException {
+        BookChangeLog changeLog = open(10);
+        for (long id = 1; id <= 3; id++) {
+            changeLog.append(saved(id));
+        }
+
+        List<BookChangeEventDTO> events = changeLog.readAfter(1, 10);
+        assertEquals(2, events.size());
+        assertEquals(2L, events.get(0).getOffset());
+        assertEquals(3L, events.get(1).getBookId());
+        assertTrue(changeLog.readAfter(3, 10).isEmpty());
+        changeLog.close();
+    }
+
+    /**
+     * Tests that only the most recent events are retained.
+     */
+    @Test
+    void testRetention() throws IOException {
+        BookChangeLog changeLog = open(3);
+        for (long id = 1; id <= 5; id++) {
+            changeLog.append(saved(id));
+        }
+
+        assertFalse(changeLog.isRetained(1));
+        assertTrue(changeLog.isRetained(2));
+        assertEquals(3, changeLog.readAfter(2, 10).size());
+        assertTrue(changeLog.readAfter(1, 10).isEmpty());
+        changeLog.close();
+    }
+
+    /**
+     * Tests that offsets continue after a restart.
+     */
+    @Test
+    void testResumeAfterRestart() throws IOException {
+        BookChangeLog changeLog = open(10);
+        changeLog.append(saved(1L));
+        changeLog.append(saved(2L));
+        changeLog.close();
+
+        changeLog = open(10);
+        assertEquals(2L, changeLog.lastOffset());
+        assertEquals(3L, changeLog.append(saved(3L)).getOffset());
+        assertEquals(3, changeLog.readAfter(0, 10).size());
+        changeLog.close();
+    }
+
+    private BookChangeLog open(int retention) throws IOException {
+        BookChangeLog changeLog = new BookChangeLog(directory.resolve("changes.log").toString(), retention,
+                new ObjectMapper());
+        changeLog.open();
+        return changeLog;
+    }
+
+    private static BookChangeEventDTO saved(Long id) {
+        return new BookChangeEventDTO(0, BookChangeEventDTO.Type.SAVED, id, "Title " + id, "Author", "Genre", 10.0,
+                0L, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.BookSearchIndexTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.BookFacetsDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.search.BookSearchIndex;
+import com.example.demo.search.BookSort;
+
+/**
+ * Test class for BookSearchIndex.
+ */
+public class BookSearchIndexTest {
+
+    private BookSearchIndex searchIndex;
+
+    /**
+     * Builds an index over a small catalog before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        searchIndex = new BookSearchIndex();
+        searchIndex.rebuild(() -> Arrays.asList(
+                book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 12.5),
+                book(2L, "The Lord of the Rings", "J.R.R. Tolkien", "Fantasy", 30.0),
+                book(3L, "Hobbies for Beginners", "Anna Smith", "Self-Help", 8.0),
+                book(4L, "Cien años de soledad", "Gabriel García Márquez", "Literary Fiction", 15.0)));
+    }
+
+    /**
+     * Tests that matching is case-insensitive and ranks exact matches first.
+     */
+    @Test
+    void testSearchRanksExactMatchesFirst() {
+        List<Book> books = searchIndex.search("HOBBIT", null, null, null, null);
+        assertEquals(1, books.size());
+        assertEquals(1L, books.get(0).getId());
+
+        books = searchIndex.search("hobb", null, null, null, null);
+        assertEquals(2, books.size());
+    }
+
+    /**
+     * Tests that criteria on several fields and price bounds are combined.
+     */
+    @Test
+    void testSearchCombinesFieldsAndPriceRange() {
+        List<Book> books = searchIndex.search(null, "tolkien", "fantasy", null, 20.0);
+        assertEquals(1, books.size());
+        assertEquals("The Hobbit", books.get(0).getTitle());
+    }
+
+    /**
+     * Tests that sorted searches return only the first books in that order.
+     */
+    @Test
+    void testSearchSortedWithLimit() {
+        List<Book> cheapest = searchIndex.search(null, null, null, null, null, BookSort.CHEAPEST, 2);
+        assertEquals(Arrays.asList(3L, 1L), cheapest.stream().map(Book::getId).toList());
+
+        List<Book> newest = searchIndex.search(null, "tolkien", null, null, null, BookSort.NEWEST, 1);
+        assertEquals(2L, newest.get(0).getId());
+
+        List<Book> byTitle = searchIndex.search(null, null, null, null, null, BookSort.TITLE, null);
+        assertEquals(Arrays.asList(4L, 3L, 1L, 2L), byTitle.stream().map(Book::getId).toList());
+    }
+
+    /**
+     * Tests that accents are ignored.
+     */
+    @Test
+    void testSearchIgnoresAccents() {
+        List<Book> books = searchIndex.search(null, "garcia marquez", null, null, null);
+        assertEquals(1, books.size());
+        assertEquals(4L, books.get(0).getId());
+    }
+
+    /**
+     * Tests that index and remove keep the index in sync.
+     */
+    @Test
+    void testIndexAndRemove() {
+        searchIndex.index(book(1L, "The Silmarillion", "J.R.R. Tolkien", "Fantasy", 20.0));
+        assertTrue(searchIndex.search("hobbit", null, null, null, null).isEmpty());
+        assertEquals(1, searchIndex.search("silmarillion", null, null, null, null).size());
+
+        searchIndex.remove(1L);
+        assertTrue(searchIndex.search("silmarillion", null, null, null, null).isEmpty());
+        assertEquals(3, searchIndex.search(null, null, null, null, null).size());
+    }
+
+    /**
+     * Tests that facets count the matching books and that the catalog-wide
+     * counts follow index and remove.
+     */
+    @Test
+    void testFacets() {
+        BookFacetsDTO facets = searchIndex.facets(null, "tolkien", null, null, null, 10);
+        assertEquals(2, facets.getTotal());
+        assertEquals(Map.of("Fantasy", 2L), facets.getGenres());
+        assertEquals(1, facets.getPrices().get(1).getCount());
+        assertEquals(1, facets.getPrices().get(2).getCount());
+
+        searchIndex.index(book(5L, "The Children of Hurin", "J.R.R. Tolkien", "Fantasy", 18.0));
+        searchIndex.remove(3L);
+        facets = searchIndex.facets(null, null, null, null, null, 1);
+        assertEquals(4, facets.getTotal());
+        assertEquals(Map.of("J.R.R. Tolkien", 3L), facets.getAuthors());
+        assertEquals(3L, facets.getGenres().get("Fantasy"));
+        assertFalse(facets.getGenres().containsKey("Self-Help"));
+    }
+
+    /**
+     * Tests that an update older than the indexed version is ignored, and so is
+     * an update of a book removed a moment ago.
+     */
+    @Test
+    void testIndexIgnoresStaleUpdates() {
+        Book newer = book(1L, "The Silmarillion", "J.R.R. Tolkien", "Fantasy", 20.0);
+        newer.setVersion(2L);
+        searchIndex.index(newer);
+        Book older = book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 10.0);
+        older.setVersion(1L);
+        searchIndex.index(older);
+        assertTrue(searchIndex.search("hobbit", null, null, null, null).isEmpty());
+        assertEquals(1, searchIndex.search("silmarillion", null, null, null, null).size());
+
+        searchIndex.remove(1L);
+        newer.setVersion(3L);
+        searchIndex.index(newer);
+        assertTrue(searchIndex.search("silmarillion", null, null, null, null).isEmpty());
+        assertEquals(3, searchIndex.facets(null, null, null, null, null, 10).getTotal());
+    }
+
+    private static Book book(Long id, String title, String author, String genre, double price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setPrice(price);
+        return book;
+    }
+}
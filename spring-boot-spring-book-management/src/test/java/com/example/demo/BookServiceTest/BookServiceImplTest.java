@@ -1,31 +1,52 @@
 package com.example.demo.BookServiceTest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import com.example.demo.cache.BookCache;
+import com.example.demo.cache.BookSearchCache;
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.dto.BookPatchDTO;
 import com.example.demo.entity.Book;
+import com.example.demo.events.BookChangeStream;
 import com.example.demo.repository.BookRepository;
+import com.example.demo.search.BookSearchIndex;
+import com.example.demo.search.BookSort;
+import com.example.demo.search.BookSuggestIndex;
 import com.example.demo.service.BookServiceImpl;
+import com.example.demo.service.InventoryService;
+import com.example.demo.snapshot.CatalogSnapshot;
+
+import jakarta.persistence.EntityManager;
 
 /**
  * Test class for BookServiceImpl.
@@ -38,6 +59,30 @@ public class BookServiceImplTest{
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookSearchIndex searchIndex;
+
+    @Mock
+    private BookSuggestIndex suggestIndex;
+
+    @Spy
+    private BookCache bookCache = new BookCache(100, 60);
+
+    @Spy
+    private BookSearchCache searchCache = new BookSearchCache(100, 30, 5, 1000);
+
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+
+    @Mock
+    private BookChangeStream changeStream;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -48,7 +93,6 @@ public class BookServiceImplTest{
      */
     @BeforeEach
     void setUp() {
-        MockitoAnnotations.openMocks(this);
         book = new Book();
         book.setId(1L);
         book.setTitle("Test Book");
@@ -62,7 +106,8 @@ public class BookServiceImplTest{
      */
     @Test
     void testGetAllBooks() {
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(book));
+        when(catalogSnapshot.listBooks()).thenReturn(null);
+        when(bookRepository.findAllReadOnly()).thenReturn(Arrays.asList(book));
 
         List<Book> books = bookService.getAllBooks();
         assertNotNull(books);
@@ -70,6 +115,36 @@ public class BookServiceImplTest{
         assertEquals("Test Book", books.get(0).getTitle());
     }
 
+    /**
+     * Tests the getBooksPage method.
+     */
+    @Test
+    void testGetBooksPage() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1))).thenReturn(Arrays.asList(book));
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(1))).thenReturn(List.of());
+
+        BookPageDTO page = bookService.getBooksPage(null, 1);
+        assertEquals(1, page.getItems().size());
+        assertEquals(1L, page.getNextCursor());
+
+        page = bookService.getBooksPage(page.getNextCursor(), 1);
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Tests that streamAllBooks detaches every book once consumed.
+     */
+    @Test
+    void testStreamAllBooks() {
+        when(bookRepository.streamAll()).thenReturn(Stream.of(book));
+        List<Book> consumed = new ArrayList<>();
+
+        bookService.streamAllBooks(consumed::add);
+        assertEquals(1, consumed.size());
+        verify(entityManager, times(1)).detach(book);
+    }
+
     /**
      * Tests the getBookById method.
      */
@@ -82,6 +157,36 @@ public class BookServiceImplTest{
         assertEquals("Test Book", foundBook.get().getTitle());
     }
 
+    /**
+     * Tests that getBookById is served from the cache until the book is saved.
+     */
+    @Test
+    void testGetBookByIdReadsThroughCache() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.save(any(Book.class))).thenReturn(book);
+
+        bookService.getBookById(1L).get().setTitle("Changed By Caller");
+        assertEquals("Test Book", bookService.getBookById(1L).get().getTitle());
+        verify(bookRepository, times(1)).findById(1L);
+
+        bookService.saveBook(book);
+        bookService.getBookById(1L);
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
+    /**
+     * Tests the getBooksByIds method.
+     */
+    @Test
+    void testGetBooksByIds() {
+        when(bookRepository.findByIdIn(any())).thenReturn(Arrays.asList(book));
+
+        Map<Long, Book> books = bookService.getBooksByIds(Arrays.asList(1L, 2L, 1L));
+        assertEquals(1, books.size());
+        assertEquals("Test Book", books.get(1L).getTitle());
+        verify(bookRepository, times(1)).findByIdIn(any());
+    }
+
     /**
      * Tests the saveBook method.
      */
@@ -92,6 +197,58 @@ public class BookServiceImplTest{
         Book savedBook = bookService.saveBook(book);
         assertNotNull(savedBook);
         assertEquals("Test Book", savedBook.getTitle());
+        verify(searchIndex, times(1)).index(book);
+        verify(suggestIndex, times(1)).index(book);
+        verify(changeStream, times(1)).publishSaved(book);
+    }
+
+    /**
+     * Tests that cache misses are served from the catalog snapshot during warm-up
+     * and that saved books are marked changed.
+     */
+    @Test
+    void testGetBookByIdFromSnapshot() {
+        when(catalogSnapshot.findBook(1L)).thenReturn(book);
+        when(bookRepository.save(any(Book.class))).thenReturn(book);
+
+        Optional<Book> foundBook = bookService.getBookById(1L);
+        assertTrue(foundBook.isPresent());
+        verify(bookRepository, never()).findById(1L);
+
+        bookService.saveBook(book);
+        verify(catalogSnapshot, times(2)).markChanged(1L);
+    }
+
+    /**
+     * Tests that books served from the catalog snapshot are not cached, so the
+     * database answers once the warm-up is over.
+     */
+    @Test
+    void testSnapshotBooksAreNotCached() {
+        Book snapshotBook = new Book();
+        snapshotBook.setId(1L);
+        snapshotBook.setTitle("Snapshot Title");
+        when(catalogSnapshot.findBook(1L)).thenReturn(snapshotBook, (Book) null);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        assertEquals("Snapshot Title", bookService.getBookById(1L).get().getTitle());
+        assertEquals("Test Book", bookService.getBookById(1L).get().getTitle());
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    /**
+     * Tests that a concurrent modification evicts the cached book.
+     */
+    @Test
+    void testSaveBookConflictEvictsCachedBook() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.save(any(Book.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L));
+
+        bookService.getBookById(1L);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> bookService.saveBook(book));
+        bookService.getBookById(1L);
+        verify(bookRepository, times(2)).findById(1L);
     }
 
     /**
@@ -99,10 +256,60 @@ public class BookServiceImplTest{
      */
     @Test
     void testDeleteBook() {
-        doNothing().when(bookRepository).deleteById(1L);
+        when(bookRepository.deleteBook(1L, null)).thenReturn(1);
+
+        assertTrue(bookService.deleteBook(1L, null));
+        verify(bookRepository, times(1)).deleteBook(1L, null);
+        verify(bookRepository, never()).findById(1L);
+        verify(searchIndex, times(1)).remove(1L);
+        verify(suggestIndex, times(1)).remove(1L);
+        verify(inventoryService, times(1)).forgetStock(1L);
+        verify(changeStream, times(1)).publishDeleted(1L);
+    }
 
-        bookService.deleteBook(1L);
-        verify(bookRepository, times(1)).deleteById(1L);
+    /**
+     * Tests that a versioned delete of a changed book is a conflict and that
+     * deleting a missing book is not.
+     */
+    @Test
+    void testDeleteBookVersionConflict() {
+        when(bookRepository.deleteBook(1L, 3L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        assertThrows(OptimisticLockingFailureException.class, () -> bookService.deleteBook(1L, 3L));
+
+        when(bookRepository.deleteBook(2L, 3L)).thenReturn(0);
+        when(bookRepository.existsById(2L)).thenReturn(false);
+        assertFalse(bookService.deleteBook(2L, 3L));
+        verify(searchIndex, never()).remove(any());
+    }
+
+    /**
+     * Tests that patchBook issues one versioned update and indexes the result.
+     */
+    @Test
+    void testPatchBook() {
+        BookPatchDTO patch = new BookPatchDTO(null, null, null, 15.0, 0L);
+        when(bookRepository.patchBook(1L, null, null, null, 15.0, 0L)).thenReturn(1);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        Optional<Book> patched = bookService.patchBook(1L, patch);
+        assertTrue(patched.isPresent());
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(searchIndex, times(1)).index(book);
+        verify(changeStream, times(1)).publishSaved(book);
+    }
+
+    /**
+     * Tests that patching a book with a stale version is a conflict.
+     */
+    @Test
+    void testPatchBookVersionConflict() {
+        BookPatchDTO patch = new BookPatchDTO("New Title", null, null, null, 0L);
+        when(bookRepository.patchBook(1L, "New Title", null, null, null, 0L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> bookService.patchBook(1L, patch));
+        verify(searchIndex, never()).index(any());
     }
 
     /**
@@ -118,4 +325,77 @@ public class BookServiceImplTest{
         assertEquals(1, books.size());
         assertEquals("Test Book", books.get(0).getTitle());
     }
-}	
\ No newline at end of file
+
+    /**
+     * Tests that a sorted, limited search pushes the ordering and the limit into
+     * the database query while the search index is not ready.
+     */
+    @Test
+    void testSearchBooksPushesSortAndLimit() {
+        when(bookRepository.searchBooks(null, null, "fantasy", null, null, BookSort.CHEAPEST.toSort(), Limit.of(10)))
+            .thenReturn(Arrays.asList(book));
+
+        List<Book> books = bookService.searchBooks(null, null, "Fantasy", null, null, BookSort.CHEAPEST, 10);
+        assertEquals(1, books.size());
+        verify(bookRepository, never()).searchBooks(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Tests that the cheapest books of a genre come from the exact genre query
+     * rather than the search index.
+     */
+    @Test
+    void testGetCheapestBooksOfGenreQueriesExactGenre() {
+        when(bookRepository.findCheapestByGenre("Fantasy", null, 20.0, Limit.of(10))).thenReturn(Arrays.asList(book));
+
+        List<Book> books = bookService.getCheapestBooksOfGenre(" Fantasy ", null, 20.0, 10);
+        assertEquals(1, books.size());
+        verify(searchIndex, never()).search(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Tests that an author's books by title come from the exact author query.
+     */
+    @Test
+    void testGetBooksOfAuthorByTitleQueriesExactAuthor() {
+        when(bookRepository.findByAuthorOrderByTitle("Test Author", Limit.of(5))).thenReturn(Arrays.asList(book));
+
+        List<Book> books = bookService.getBooksOfAuthorByTitle("Test Author", 5);
+        assertEquals(1, books.size());
+    }
+
+    /**
+     * Tests that searchBooks uses the search index once it is ready.
+     */
+    @Test
+    void testSearchBooksUsesIndex() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("test", null, null, null, null, null, null)).thenReturn(Arrays.asList(book));
+
+        List<Book> books = bookService.searchBooks("test", null, null, null, null);
+        assertEquals(1, books.size());
+        verify(bookRepository, times(0)).searchBooks(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Tests that searches differing only in case, whitespace and price within
+     * the same buckets share one cached result, and that a write invalidates it.
+     */
+    @Test
+    void testSearchBooksCachesNormalizedQuery() {
+        Book cheaper = new Book(2L, "Other Book", "Test Author", "Fantasy", 16.0, 0L);
+        book.setPrice(20.0);
+        when(bookRepository.searchBooks(null, null, "fantasy", 15.0, 25.0)).thenReturn(Arrays.asList(book, cheaper));
+        when(bookRepository.save(book)).thenReturn(book);
+
+        List<Book> first = bookService.searchBooks(null, null, " Fantasy ", 17.0, 22.0);
+        assertEquals(1, first.size());
+        assertEquals(1L, first.get(0).getId());
+        assertEquals(2, bookService.searchBooks(null, "", "fantasy", 16.0, 24.99).size());
+        verify(bookRepository, times(1)).searchBooks(any(), any(), any(), any(), any());
+
+        bookService.saveBook(book);
+        bookService.searchBooks(null, null, "FANTASY", 17.0, 22.0);
+        verify(bookRepository, times(2)).searchBooks(any(), any(), any(), any(), any());
+    }
+}
\ No newline at end of file
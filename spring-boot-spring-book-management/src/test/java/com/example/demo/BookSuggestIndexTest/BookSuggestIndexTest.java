@@ -0,0 +1,101 @@
+package com.example.demo.BookSuggestIndexTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.BookSuggestionDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.search.BookSuggestIndex;
+
+/**
+ * Test class for BookSuggestIndex.
+ */
+public class BookSuggestIndexTest {
+
+    private BookSuggestIndex suggestIndex;
+
+    /**
+     * Builds an index over a small catalog before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        suggestIndex = new BookSuggestIndex();
+        suggestIndex.rebuild(() -> Arrays.asList(
+                book(1L, "The Hobbit", "J.R.R. Tolkien"),
+                book(2L, "The Lord of the Rings", "J.R.R. Tolkien"),
+                book(3L, "Hobbies for Beginners", "Anna Smith"),
+                book(4L, "Cien años de soledad", "Gabriel García Márquez")));
+    }
+
+    /**
+     * Tests that any word of a title or author matches, ranked by book count.
+     */
+    @Test
+    void testSuggestMatchesWordPrefixes() {
+        List<BookSuggestionDTO> suggestions = suggestIndex.suggest("HOB", 10);
+        assertEquals(Arrays.asList("The Hobbit", "Hobbies for Beginners"), texts(suggestions));
+
+        suggestions = suggestIndex.suggest("t", 10);
+        assertEquals("J.R.R. Tolkien", suggestions.get(0).getText());
+        assertEquals("AUTHOR", suggestions.get(0).getField());
+        assertEquals(2, suggestions.get(0).getBooks());
+
+        assertEquals(Arrays.asList("Gabriel García Márquez"), texts(suggestIndex.suggest("garc", 10)));
+        assertEquals(Arrays.asList("The Lord of the Rings"), texts(suggestIndex.suggest("lord of the ri", 10)));
+        assertTrue(suggestIndex.suggest("xyz", 10).isEmpty());
+    }
+
+    /**
+     * Tests that index and remove keep the suggestions in sync.
+     */
+    @Test
+    void testIndexAndRemove() {
+        suggestIndex.index(book(1L, "The Silmarillion", "J.R.R. Tolkien"));
+        assertTrue(suggestIndex.suggest("hobbit", 10).isEmpty());
+        assertEquals(Arrays.asList("The Silmarillion"), texts(suggestIndex.suggest("silm", 10)));
+
+        suggestIndex.remove(1L);
+        suggestIndex.remove(2L);
+        assertTrue(suggestIndex.suggest("silm", 10).isEmpty());
+        assertTrue(suggestIndex.suggest("tolk", 10).isEmpty());
+    }
+
+    /**
+     * Tests that an update older than the indexed version is ignored, and so is
+     * an update of a book removed a moment ago.
+     */
+    @Test
+    void testIndexIgnoresStaleUpdates() {
+        Book newer = book(1L, "The Silmarillion", "J.R.R. Tolkien");
+        newer.setVersion(2L);
+        suggestIndex.index(newer);
+        Book older = book(1L, "The Hobbit", "J.R.R. Tolkien");
+        older.setVersion(1L);
+        suggestIndex.index(older);
+        assertTrue(suggestIndex.suggest("hobbit", 10).isEmpty());
+
+        suggestIndex.remove(1L);
+        newer.setVersion(3L);
+        suggestIndex.index(newer);
+        assertTrue(suggestIndex.suggest("silm", 10).isEmpty());
+        assertEquals(1, suggestIndex.suggest("tolk", 10).get(0).getBooks());
+    }
+
+    private static List<String> texts(List<BookSuggestionDTO> suggestions) {
+        return suggestions.stream().map(BookSuggestionDTO::getText).toList();
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
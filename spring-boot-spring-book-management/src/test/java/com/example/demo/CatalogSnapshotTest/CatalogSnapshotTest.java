@@ -0,0 +1,191 @@
+package com.example.demo.CatalogSnapshotTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.dto.BookChangeEventDTO;
+import com.example.demo.dto.BookPageDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.events.BookChangeLog;
+import com.example.demo.snapshot.CatalogSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class for CatalogSnapshot.
+ */
+public class CatalogSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private BookChangeLog changeLog;
+
+    private List<Book> books;
+
+    private String file;
+
+    private CatalogSnapshot catalogSnapshot;
+
+    /**
+     * Writes a snapshot of a small catalog, loads it as on startup and checks it
+     * against the unchanged catalog.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        changeLog = new BookChangeLog(directory.resolve("changes.log").toString(), 10, new ObjectMapper());
+        changeLog.open();
+        books = Arrays.asList(
+                book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 12.5),
+                book(3L, "Cien años de soledad", "Gabriel García Márquez", null, 15.0),
+                book(7L, "The Lord of the Rings", "J.R.R. Tolkien", "Fantasy", 30.0));
+        file = directory.resolve("catalog.snapshot").toString();
+        new CatalogSnapshot(changeLog, true, file, 60, 60).write(books::forEach);
+
+        catalogSnapshot = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        catalogSnapshot.load();
+        catalogSnapshot.checkAgainst(books);
+    }
+
+    /**
+     * Tests that books are read back by ID with every field.
+     */
+    @Test
+    void testFindBook() {
+        Book book = catalogSnapshot.findBook(3L);
+        assertEquals("Cien años de soledad", book.getTitle());
+        assertEquals("Gabriel García Márquez", book.getAuthor());
+        assertNull(book.getGenre());
+        assertEquals(15.0, book.getPrice());
+        assertEquals(2L, book.getVersion());
+        assertNull(catalogSnapshot.findBook(2L));
+    }
+
+    /**
+     * Tests keyset pages and the full listing.
+     */
+    @Test
+    void testPagesAndListing() {
+        BookPageDTO page = catalogSnapshot.getBooksPage(0L, 2);
+        assertEquals(2, page.getItems().size());
+        assertEquals(3L, page.getNextCursor());
+
+        page = catalogSnapshot.getBooksPage(3L, 2);
+        assertEquals(1, page.getItems().size());
+        assertEquals(7L, page.getItems().get(0).getId());
+        assertNull(page.getNextCursor());
+
+        assertEquals(3, catalogSnapshot.listBooks().size());
+    }
+
+    /**
+     * Tests that changed books and listings are left to the database.
+     */
+    @Test
+    void testChangedBooksAreNotServed() {
+        catalogSnapshot.markChanged(1L);
+        assertNull(catalogSnapshot.findBook(1L));
+        assertEquals(7L, catalogSnapshot.findBook(7L).getId());
+        assertNull(catalogSnapshot.listBooks());
+        assertNull(catalogSnapshot.getBooksPage(0L, 10));
+
+        catalogSnapshot.discard();
+        assertNull(catalogSnapshot.findBook(7L));
+    }
+
+    /**
+     * Tests that books changed after the snapshot was written are left to the
+     * database on startup.
+     */
+    @Test
+    void testBooksChangedAfterTheSnapshotAreNotServed() {
+        changeLog.append(event(BookChangeEventDTO.Type.DELETED, 3L));
+
+        CatalogSnapshot restarted = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        restarted.load();
+        restarted.checkAgainst(books);
+        assertNull(restarted.findBook(3L));
+        assertEquals(1L, restarted.findBook(1L).getId());
+        assertNull(restarted.listBooks());
+    }
+
+    /**
+     * Tests that a snapshot is not used when the change log no longer covers its
+     * offset or was reset after it.
+     */
+    @Test
+    void testSnapshotIsIgnoredWhenItsChangesAreUnknown() {
+        changeLog.append(event(BookChangeEventDTO.Type.RESET, null));
+
+        CatalogSnapshot restarted = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        restarted.load();
+        assertNull(restarted.findBook(1L));
+
+        for (long id = 10; id < 30; id++) {
+            changeLog.append(event(BookChangeEventDTO.Type.SAVED, id));
+        }
+        restarted = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        restarted.load();
+        assertNull(restarted.findBook(1L));
+    }
+
+    /**
+     * Tests that books added, updated or deleted in the database since the
+     * snapshot was taken, without this instance logging it, are left to the
+     * database on startup.
+     */
+    @Test
+    void testBooksChangedInTheDatabaseAreNotServed() {
+        Book updated = book(3L, "Cien años de soledad", "Gabriel García Márquez", null, 15.0);
+        updated.setVersion(5L);
+        Book added = book(8L, "The Silmarillion", "J.R.R. Tolkien", "Fantasy", 20.0);
+
+        CatalogSnapshot restarted = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        restarted.load();
+        restarted.checkAgainst(Arrays.asList(books.get(0), updated, added));
+        assertEquals(1L, restarted.findBook(1L).getId());
+        assertNull(restarted.findBook(3L));
+        assertNull(restarted.findBook(7L));
+        assertNull(restarted.listBooks());
+        assertEquals(3, restarted.getMetrics().get("changedBooks"));
+    }
+
+    /**
+     * Tests that a snapshot is not served before it was checked against the
+     * database.
+     */
+    @Test
+    void testSnapshotIsNotServedUntilChecked() {
+        CatalogSnapshot restarted = new CatalogSnapshot(changeLog, true, file, 60, 60);
+        restarted.load();
+        assertNull(restarted.findBook(1L));
+        assertNull(restarted.listBooks());
+
+        restarted.checkAgainst(books);
+        assertEquals(1L, restarted.findBook(1L).getId());
+        assertEquals(3, restarted.listBooks().size());
+    }
+
+    private static BookChangeEventDTO event(BookChangeEventDTO.Type type, Long bookId) {
+        return new BookChangeEventDTO(0, type, bookId, null, null, null, null, null, 0);
+    }
+
+    private static Book book(Long id, String title, String author, String genre, double price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setPrice(price);
+        book.setVersion(id - 1);
+        return book;
+    }
+}
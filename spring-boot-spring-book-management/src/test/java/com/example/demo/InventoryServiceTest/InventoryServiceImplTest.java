@@ -0,0 +1,189 @@
+package com.example.demo.InventoryServiceTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dto.ReservationDTO;
+import com.example.demo.dto.ReservationItemDTO;
+import com.example.demo.dto.StockDTO;
+import com.example.demo.entity.BookStock;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookStockRepository;
+import com.example.demo.service.InventoryServiceImpl;
+
+/**
+ * Test class for InventoryServiceImpl.
+ * Uses JUnit and Mockito to test the service's methods.
+ */
+@ExtendWith(MockitoExtension.class)
+public class InventoryServiceImplTest {
+
+    @Mock
+    private BookStockRepository stockRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private InventoryServiceImpl inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryService = new InventoryServiceImpl(stockRepository, bookRepository, jdbcTemplate, 4, 900);
+        lenient().when(bookRepository.existsById(1L)).thenReturn(true);
+        lenient().when(bookRepository.existsById(2L)).thenReturn(true);
+        lenient().when(stockRepository.findById(1L)).thenReturn(Optional.of(new BookStock(1L, 5)));
+        lenient().when(stockRepository.findById(2L)).thenReturn(Optional.of(new BookStock(2L, 1)));
+    }
+
+    /**
+     * Tests that a reservation takes units from every book.
+     */
+    @Test
+    void testReserve() {
+        ReservationDTO reservation = inventoryService.reserve(
+                List.of(new ReservationItemDTO(1L, 2), new ReservationItemDTO(2L, 1)), null);
+
+        assertEquals(2, reservation.getItems().size());
+        assertEquals(new StockDTO(1L, 3, 2), inventoryService.getStock(1L));
+        assertEquals(new StockDTO(2L, 0, 1), inventoryService.getStock(2L));
+    }
+
+    /**
+     * Tests that a reservation is all or nothing when one book is short.
+     */
+    @Test
+    void testReserveInsufficientStock() {
+        assertThrows(InsufficientStockException.class, () -> inventoryService.reserve(
+                List.of(new ReservationItemDTO(1L, 2), new ReservationItemDTO(2L, 2)), null));
+
+        assertEquals(new StockDTO(1L, 5, 0), inventoryService.getStock(1L));
+        assertEquals(new StockDTO(2L, 1, 0), inventoryService.getStock(2L));
+    }
+
+    /**
+     * Tests that a confirmed reservation is written as a negative change on the
+     * next flush.
+     */
+    @Test
+    void testConfirmFlushesSale() {
+        ReservationDTO reservation = inventoryService.reserve(List.of(new ReservationItemDTO(1L, 2)), null);
+
+        inventoryService.confirm(reservation.getId());
+        inventoryService.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[] { -2L, 1L }, batch.getValue().get(0));
+        assertEquals(new StockDTO(1L, 3, 0), inventoryService.getStock(1L));
+        assertThrows(ResourceNotFoundException.class, () -> inventoryService.confirm(reservation.getId()));
+    }
+
+    /**
+     * Tests that a released reservation makes its units available again and
+     * writes nothing.
+     */
+    @Test
+    void testRelease() {
+        ReservationDTO reservation = inventoryService.reserve(List.of(new ReservationItemDTO(1L, 4)), null);
+
+        inventoryService.release(reservation.getId());
+        inventoryService.flush();
+
+        assertEquals(new StockDTO(1L, 5, 0), inventoryService.getStock(1L));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * Tests that expired reservations are released and can no longer be
+     * confirmed.
+     */
+    @Test
+    void testExpireReservations() throws InterruptedException {
+        ReservationDTO reservation = inventoryService.reserve(List.of(new ReservationItemDTO(2L, 1)), 0L);
+        Thread.sleep(5);
+
+        inventoryService.expireReservations();
+
+        assertEquals(new StockDTO(2L, 1, 0), inventoryService.getStock(2L));
+        assertThrows(ResourceNotFoundException.class, () -> inventoryService.confirm(reservation.getId()));
+    }
+
+    /**
+     * Tests that a deleted book's stock is dropped and that its open
+     * reservations can still be released and confirmed.
+     */
+    @Test
+    void testForgetStockOfDeletedBook() {
+        ReservationDTO released = inventoryService.reserve(List.of(new ReservationItemDTO(1L, 1)), null);
+        ReservationDTO confirmed = inventoryService.reserve(
+                List.of(new ReservationItemDTO(1L, 1), new ReservationItemDTO(2L, 1)), null);
+
+        inventoryService.forgetStock(1L);
+        inventoryService.release(released.getId());
+        inventoryService.confirm(confirmed.getId());
+        inventoryService.flush();
+
+        assertEquals(1, inventoryService.getMetrics().get("books"));
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[] { -1L, 2L }, batch.getValue().get(0));
+    }
+
+    /**
+     * Tests that reading the stock of a book not loaded yet loads nothing.
+     */
+    @Test
+    void testGetStockOfUnloadedBookLoadsNothing() {
+        assertEquals(new StockDTO(99L, 0, 0), inventoryService.getStock(99L));
+
+        assertEquals(0, inventoryService.getMetrics().get("books"));
+    }
+
+    /**
+     * Tests that the stock of a book that does not exist cannot be set.
+     */
+    @Test
+    void testSetStockOfUnknownBook() {
+        assertThrows(ResourceNotFoundException.class, () -> inventoryService.setStock(99L, 5));
+
+        assertEquals(0, inventoryService.getMetrics().get("books"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * Tests that a reservation including a book that does not exist takes no
+     * units of the others.
+     */
+    @Test
+    void testReserveUnknownBook() {
+        assertThrows(ResourceNotFoundException.class, () -> inventoryService.reserve(
+                List.of(new ReservationItemDTO(1L, 2), new ReservationItemDTO(99L, 1)), null));
+
+        assertEquals(new StockDTO(1L, 5, 0), inventoryService.getStock(1L));
+    }
+}
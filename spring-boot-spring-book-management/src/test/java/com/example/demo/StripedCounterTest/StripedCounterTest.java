@@ -0,0 +1,86 @@
+package com.example.demo.StripedCounterTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.inventory.StripedCounter;
+
+/**
+ * Test class for StripedCounter.
+ */
+public class StripedCounterTest {
+
+    /**
+     * Tests that a take larger than any single stripe is served from all of
+     * them, and that a take larger than the total fails without changes.
+     */
+    @Test
+    void testTakeAcrossStripes() {
+        StripedCounter counter = new StripedCounter(4, 10);
+
+        assertTrue(counter.tryTake(9));
+        assertEquals(1, counter.sum());
+        assertFalse(counter.tryTake(2));
+        assertEquals(1, counter.sum());
+        assertTrue(counter.tryTake(1));
+        assertEquals(0, counter.sum());
+    }
+
+    /**
+     * Tests that added units can be taken and removed units cannot.
+     */
+    @Test
+    void testAdd() {
+        StripedCounter counter = new StripedCounter(8, 0);
+        assertFalse(counter.tryTake(1));
+
+        counter.add(5);
+        counter.add(-2);
+
+        assertEquals(3, counter.sum());
+        assertTrue(counter.tryTake(3));
+        assertFalse(counter.tryTake(1));
+    }
+
+    /**
+     * Tests that concurrent takes never hand out more units than there are.
+     */
+    @Test
+    void testConcurrentTakesNeverOversell() throws Exception {
+        StripedCounter counter = new StripedCounter(8, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    int taken = 0;
+                    for (int j = 0; j < 500; j++) {
+                        if (counter.tryTake(1)) {
+                            taken++;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(1000, total);
+            assertEquals(0, counter.sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
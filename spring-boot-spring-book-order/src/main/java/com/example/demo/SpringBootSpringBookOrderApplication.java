@@ -3,8 +3,6 @@ package com.example.demo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 @EnableDiscoveryClient
@@ -13,9 +11,4 @@ public class SpringBootSpringBookOrderApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(SpringBootSpringBookOrderApplication.class, args);
 	}
-	
-	@Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 }